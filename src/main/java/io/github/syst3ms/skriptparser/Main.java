@@ -43,6 +43,12 @@ public class Main {
             programArgs = Arrays.copyOfRange(args, 1, args.length);
         }
         init(scriptName, new String[0], new String[0], programArgs, debug, true);
+        // Keep running while the script waits or has triggers scheduled
+        try {
+            ((Skript) registration.getRegisterer()).awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
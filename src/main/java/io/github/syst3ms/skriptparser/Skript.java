@@ -1,21 +1,34 @@
 package io.github.syst3ms.skriptparser;
 
+import io.github.syst3ms.skriptparser.event.AtTimeEvent;
+import io.github.syst3ms.skriptparser.event.PeriodicalEvent;
 import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
-import io.github.syst3ms.skriptparser.event.ScriptLoadEvent;
+import io.github.syst3ms.skriptparser.execution.EventDispatcher;
+import io.github.syst3ms.skriptparser.execution.Scheduler;
+import io.github.syst3ms.skriptparser.execution.TriggerTimer;
 import io.github.syst3ms.skriptparser.lang.SkriptEvent;
-import io.github.syst3ms.skriptparser.lang.Statement;
 import io.github.syst3ms.skriptparser.lang.Trigger;
 import io.github.syst3ms.skriptparser.registration.SkriptAddon;
+import org.jetbrains.annotations.Nullable;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The {@link SkriptAddon} representing Skript itself
  */
 public class Skript extends SkriptAddon {
+    private static final long IDLE_POLL_MILLIS = 10;
+
     private final String[] mainArgs;
-    private final List<Trigger> mainTriggers = new ArrayList<>();
+    private final EventDispatcher dispatcher = new EventDispatcher();
+    private final List<Trigger> timedTriggers = new ArrayList<>();
+    @Nullable
+    private TriggerTimer timer;
 
     public Skript(String[] mainArgs) {
         this.mainArgs = mainArgs;
@@ -26,14 +39,63 @@ public class Skript extends SkriptAddon {
         SkriptEvent event = trigger.getEvent();
         if (!canHandleEvent(event))
             return;
-        if (event instanceof ScriptLoadEvent)
-            mainTriggers.add(trigger);
+        if (event instanceof PeriodicalEvent || event instanceof AtTimeEvent) {
+            timedTriggers.add(trigger);
+        } else {
+            dispatcher.register(trigger);
+        }
     }
 
     @Override
     public void finishedLoading() {
-        for (Trigger trigger : mainTriggers) {
-            Statement.runAll(trigger, new ScriptLoadContext(mainArgs));
+        dispatcher.dispatch(new ScriptLoadContext(mainArgs));
+        for (Trigger trigger : timedTriggers) {
+            SkriptEvent event = trigger.getEvent();
+            if (event instanceof PeriodicalEvent) {
+                Duration period = ((PeriodicalEvent) event).getPeriod();
+                if (period != null)
+                    getTimer().scheduleEvery(trigger, period);
+            } else {
+                LocalTime time = ((AtTimeEvent) event).getTime();
+                if (time != null)
+                    getTimer().scheduleDaily(trigger, time);
+            }
+        }
+        timedTriggers.clear();
+    }
+
+    /**
+     * Waits until no trigger is scheduled by the {@linkplain #getTimer() timer}, and the
+     * {@linkplain Scheduler#getDefault() default scheduler} is {@linkplain Scheduler#isIdle() idle}. Waits and timers
+     * rely on daemon threads, which don't keep the program running on their own.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitCompletion() throws InterruptedException {
+        while (true) {
+            Scheduler scheduler = Scheduler.getDefaultIfCreated();
+            boolean scheduled = timer != null && timer.getScheduled() > 0;
+            if (!scheduled && (scheduler == null || scheduler.isIdle()))
+                return;
+            TimeUnit.MILLISECONDS.sleep(IDLE_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * @return the dispatcher running the triggers handled by Skript
+     */
+    public EventDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * @return the timer firing periodical and scheduled triggers, sharing the wheel and the execution service of the
+     * {@linkplain Scheduler#getDefault() default scheduler}
+     */
+    public TriggerTimer getTimer() {
+        if (timer == null) {
+            Scheduler scheduler = Scheduler.getDefault();
+            timer = new TriggerTimer(scheduler.getWheel(), scheduler.getService(), Clock.systemDefaultZone());
         }
+        return timer;
     }
 }
@@ -5,6 +5,7 @@ import io.github.syst3ms.skriptparser.types.changers.ChangeMode;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Effect;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
 import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
@@ -165,4 +166,18 @@ public class EffChange extends Effect {
             changed.change(ctx, changeWith.getValues(ctx), mode);
         }
     }
+
+    /**
+     * Changes the expression for all contexts, evaluating what it is changed with only once if it is literal
+     */
+    @Override
+    protected void execute(TriggerContext[] contexts) {
+        if (changeWith == null || !Literal.isLiteral(changeWith)) {
+            super.execute(contexts);
+            return;
+        }
+        Object[] values = changeWith.getValues(contexts[0]);
+        for (TriggerContext ctx : contexts)
+            changed.change(ctx, values.clone(), mode);
+    }
 }
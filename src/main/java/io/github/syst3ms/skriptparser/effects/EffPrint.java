@@ -4,6 +4,7 @@ import io.github.syst3ms.skriptparser.Main;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Effect;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import org.jetbrains.annotations.Nullable;
 
@@ -40,6 +41,23 @@ public class EffPrint extends Effect {
         System.out.println(str);
     }
 
+    /**
+     * Prints the lines of all contexts at once, evaluating the text only once if it is literal
+     */
+    @Override
+    protected void execute(TriggerContext[] contexts) {
+        boolean literal = Literal.isLiteral(string);
+        String str = literal ? string.getSingle(contexts[0]) : null;
+        StringBuilder sb = new StringBuilder();
+        for (TriggerContext ctx : contexts) {
+            if (!literal)
+                str = string.getSingle(ctx);
+            if (str != null)
+                sb.append(str).append(System.lineSeparator());
+        }
+        System.out.print(sb);
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         return "println " + string.toString(ctx, debug);
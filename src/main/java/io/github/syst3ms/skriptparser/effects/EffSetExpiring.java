@@ -0,0 +1,62 @@
+package io.github.syst3ms.skriptparser.effects;
+
+import io.github.syst3ms.skriptparser.Main;
+import io.github.syst3ms.skriptparser.lang.Effect;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Variable;
+import io.github.syst3ms.skriptparser.log.ErrorType;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Sets a variable to a value that is deleted once the given duration has passed, which is useful for cooldowns and
+ * caches. Expiring variables aren't persisted.
+ *
+ * @name Set Expiring
+ * @pattern set %~object% to %object% for %duration%
+ * @since ALPHA
+ * @author Syst3ms
+ */
+public class EffSetExpiring extends Effect {
+    private Variable<?> variable;
+    private Expression<?> value;
+    private Expression<Duration> duration;
+
+    static {
+        Main.getMainRegistration().addEffect(
+            EffSetExpiring.class,
+            4,
+            "set %~object% to %object% for %duration%"
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+        if (!(expressions[0] instanceof Variable) || !expressions[0].isSingle()) {
+            parseContext.getLogger().error("Only single variables can expire", ErrorType.SEMANTIC_ERROR);
+            return false;
+        }
+        variable = (Variable<?>) expressions[0];
+        value = expressions[1];
+        duration = (Expression<Duration>) expressions[2];
+        return true;
+    }
+
+    @Override
+    protected void execute(TriggerContext ctx) {
+        Object v = value.getSingle(ctx);
+        Duration d = duration.getSingle(ctx);
+        if (v == null || d == null)
+            return;
+        variable.setExpiring(ctx, v, d);
+    }
+
+    @Override
+    public String toString(@Nullable TriggerContext ctx, boolean debug) {
+        return "set " + variable.toString(ctx, debug) + " to " + value.toString(ctx, debug) + " for " + duration.toString(ctx, debug);
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.syst3ms.skriptparser.effects;
+
+import io.github.syst3ms.skriptparser.Main;
+import io.github.syst3ms.skriptparser.execution.Scheduler;
+import io.github.syst3ms.skriptparser.lang.Continuation;
+import io.github.syst3ms.skriptparser.lang.Effect;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Waits for a given duration before running the rest of the code. The trigger is suspended in the meantime, without
+ * blocking any thread, and is then resumed by the {@linkplain Scheduler#getDefault() default scheduler}, possibly on
+ * another thread.
+ *
+ * @name Wait
+ * @pattern (wait|halt) [for] %duration%
+ * @since ALPHA
+ * @author Syst3ms
+ */
+public class EffWait extends Effect {
+    private Expression<Duration> duration;
+
+    static {
+        Main.getMainRegistration().addEffect(
+            EffWait.class,
+            "(wait|halt) [for] %duration%"
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+        duration = (Expression<Duration>) expressions[0];
+        return true;
+    }
+
+    /**
+     * Waiting only makes sense as part of the execution of a trigger, so this does nothing : see {@link #walk(TriggerContext)}
+     */
+    @Override
+    protected void execute(TriggerContext ctx) {}
+
+    @Override
+    protected Statement walk(TriggerContext ctx) {
+        Statement next = getNext();
+        Duration d = duration.getSingle(ctx);
+        if (next == null || d == null)
+            return next;
+        Scheduler.getDefault().resumeLater(new Continuation(next, ctx), d);
+        return null;
+    }
+
+    @Override
+    public String toString(@Nullable TriggerContext ctx, boolean debug) {
+        return "wait for " + duration.toString(ctx, debug);
+    }
+}
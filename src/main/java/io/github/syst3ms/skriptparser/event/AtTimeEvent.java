@@ -0,0 +1,55 @@
+package io.github.syst3ms.skriptparser.event;
+
+import io.github.syst3ms.skriptparser.Main;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.SkriptEvent;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.LocalTime;
+
+/**
+ * Runs once a day, at the given time of the day, in the time zone of the system.
+ *
+ * @name At Time
+ * @type EVENT
+ * @pattern at %time%
+ * @since ALPHA
+ * @author Syst3ms
+ */
+public class AtTimeEvent extends SkriptEvent {
+    private Expression<LocalTime> time;
+
+    static {
+        Main.getMainRegistration()
+            .newEvent(AtTimeEvent.class, "at %time%")
+            .setHandledContexts(TimerContext.class)
+            .register();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+        time = (Expression<LocalTime>) expressions[0];
+        return true;
+    }
+
+    @Override
+    public boolean check(TriggerContext ctx) {
+        return ctx instanceof TimerContext;
+    }
+
+    /**
+     * @return the time of the day this event runs at, or {@code null} if there is none
+     */
+    @Nullable
+    public LocalTime getTime() {
+        return time.getSingle(TriggerContext.DUMMY);
+    }
+
+    @Override
+    public String toString(@Nullable TriggerContext ctx, boolean debug) {
+        return "at " + time.toString(ctx, debug);
+    }
+}
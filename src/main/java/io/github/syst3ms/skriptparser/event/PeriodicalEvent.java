@@ -0,0 +1,56 @@
+package io.github.syst3ms.skriptparser.event;
+
+import io.github.syst3ms.skriptparser.Main;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.SkriptEvent;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Runs repeatedly, once every given duration. The first run happens one period after scripts have finished loading.
+ *
+ * @name Periodical
+ * @type EVENT
+ * @pattern every %duration%
+ * @since ALPHA
+ * @author Syst3ms
+ */
+public class PeriodicalEvent extends SkriptEvent {
+    private Expression<Duration> period;
+
+    static {
+        Main.getMainRegistration()
+            .newEvent(PeriodicalEvent.class, "every %duration%")
+            .setHandledContexts(TimerContext.class)
+            .register();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+        period = (Expression<Duration>) expressions[0];
+        return true;
+    }
+
+    @Override
+    public boolean check(TriggerContext ctx) {
+        return ctx instanceof TimerContext;
+    }
+
+    /**
+     * @return the period of this event, or {@code null} if it isn't a positive duration
+     */
+    @Nullable
+    public Duration getPeriod() {
+        Duration d = period.getSingle(TriggerContext.DUMMY);
+        return d == null || d.isZero() || d.isNegative() ? null : d;
+    }
+
+    @Override
+    public String toString(@Nullable TriggerContext ctx, boolean debug) {
+        return "every " + period.toString(ctx, debug);
+    }
+}
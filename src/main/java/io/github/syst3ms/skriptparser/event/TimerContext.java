@@ -0,0 +1,29 @@
+package io.github.syst3ms.skriptparser.event;
+
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+
+import java.time.Instant;
+
+/**
+ * The context of triggers fired by a timer, like the ones of {@link PeriodicalEvent} and {@link AtTimeEvent}. All
+ * triggers due at the same time share the same context.
+ */
+public class TimerContext implements TriggerContext {
+    private final Instant scheduledTime;
+
+    public TimerContext(Instant scheduledTime) {
+        this.scheduledTime = scheduledTime;
+    }
+
+    @Override
+    public String getName() {
+        return "timer";
+    }
+
+    /**
+     * @return the time the triggers were scheduled to run at, which may be slightly earlier than when they actually ran
+     */
+    public Instant getScheduledTime() {
+        return scheduledTime;
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+
+/**
+ * A {@link Statement}, or a whole block of statements, compiled by the {@link TriggerCompiler}.
+ */
+@FunctionalInterface
+interface CompiledStatement {
+    /**
+     * Executes this statement
+     * @param ctx the event
+     * @return {@code true} if execution should go on with the next statement, or {@code false} if the rest of the
+     * innermost enclosing section should be skipped, like when {@link Statement#run(TriggerContext)} returns {@code false}
+     */
+    boolean execute(TriggerContext ctx);
+}
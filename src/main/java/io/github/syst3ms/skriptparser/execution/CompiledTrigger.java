@@ -0,0 +1,74 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.lang.ExecutionFrame;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.parsing.BudgetExceededException;
+
+import java.util.List;
+
+/**
+ * A {@link Trigger} compiled by the {@link TriggerCompiler} or the {@link TriggerAssembler}, which can be run in place
+ * of the original trigger.
+ */
+public class CompiledTrigger {
+    private final Trigger trigger;
+    private final CompiledStatement body;
+
+    CompiledTrigger(Trigger trigger, CompiledStatement body) {
+        this.trigger = trigger;
+        this.body = body;
+    }
+
+    /**
+     * @return the trigger this was compiled from
+     */
+    public Trigger getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * Runs the trigger, in the same way {@link Statement#runAll(Statement, TriggerContext)} would run the original
+     * trigger : nothing is done if its event doesn't accept the given context, and the code runs inside of a new
+     * {@link ExecutionFrame}.
+     * @param ctx the context
+     * @return {@code true} if the code ran normally, and {@code false} if any exception occurred
+     */
+    public boolean run(TriggerContext ctx) {
+        return !trigger.getEvent().check(ctx) || runUnchecked(ctx);
+    }
+
+    /**
+     * Runs the trigger without checking whether its event accepts the given context, for callers that already know it
+     * does, like the {@link EventDispatcher}
+     * @param ctx the context
+     * @return {@code true} if the code ran normally, and {@code false} if any exception occurred
+     */
+    boolean runUnchecked(TriggerContext ctx) {
+        if (Profiler.getActive() != null) {
+            // The profiler only times interpreted statements
+            List<Statement> items = trigger.getItems();
+            return items.isEmpty() || Statement.runAll(items.get(0), ctx);
+        }
+        ExecutionFrame frame = ExecutionFrame.enter();
+        frame.setBudget(trigger.getBudget());
+        try {
+            body.execute(ctx);
+            return true;
+        } catch (BudgetExceededException e) {
+            // Compiled code can't be suspended, so the execution is aborted even if the budget was changed to yield
+            frame.getBudget().recordExceeded(trigger, null, e, false);
+            return false;
+        } catch (StackOverflowError so) {
+            System.err.println("The script repeated itself infinitely !");
+            return false;
+        } catch (Exception e) {
+            System.err.println("An exception occurred. Stack trace :");
+            e.printStackTrace();
+        } finally {
+            frame.exit();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency statistics of the dispatches of one {@link TriggerContext} class by an {@link EventDispatcher}.
+ * All values are updated concurrently, so they may be slightly out of sync with each other while dispatches are running.
+ */
+public class DispatchStatistics {
+    private final LongAdder triggers = new LongAdder();
+    private final LatencyRecorder latency = new LatencyRecorder();
+
+    void record(int ranTriggers, long nanos) {
+        triggers.add(ranTriggers);
+        latency.record(nanos);
+    }
+
+    /**
+     * @return the number of times a context of this class was dispatched
+     */
+    public long getDispatches() {
+        return latency.getCount();
+    }
+
+    /**
+     * @return the total number of triggers that were run by these dispatches
+     */
+    public long getTriggers() {
+        return triggers.sum();
+    }
+
+    /**
+     * @return the total time spent in these dispatches, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return latency.getTotalNanos();
+    }
+
+    /**
+     * @return the average time spent in a dispatch, in nanoseconds, or {@code 0} if there wasn't any
+     */
+    public long getAverageNanos() {
+        return latency.getAverageNanos();
+    }
+
+    /**
+     * @return the longest time spent in a single dispatch, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return latency.getMaxNanos();
+    }
+
+    @Override
+    public String toString() {
+        return getDispatches() + " dispatches, " + getTriggers() + " triggers, average " + getAverageNanos() + "ns, max " + getMaxNanos() + "ns";
+    }
+}
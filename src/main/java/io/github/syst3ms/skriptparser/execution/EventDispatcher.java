@@ -0,0 +1,285 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.lang.SkriptEvent;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.registration.SkriptEventInfo;
+import io.github.syst3ms.skriptparser.registration.SyntaxManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Runs loaded {@linkplain Trigger triggers} when a {@link TriggerContext} is fired.
+ * <br>
+ * Triggers are indexed by the {@link TriggerContext} classes their event is able to handle, as declared in
+ * {@link SkriptEventInfo#getContexts()}. Dispatching a context only considers the triggers registered for its class or
+ * one of its supertypes, in descending order of {@linkplain SkriptEvent#getLoadingPriority() priority}, and then in
+ * registration order. The triggers applicable to each concrete context class are resolved once and cached until the
+ * registered triggers change.
+ * <br>
+ * Triggers are assembled by the {@link TriggerAssembler} once, when they are registered, and run through
+ * {@link Statement#runAll(Statement, TriggerContext)} when they can't be. The time taken by every dispatch is recorded
+ * in {@link DispatchStatistics} for each context class.
+ */
+public class EventDispatcher {
+    private static final Handler[] NO_HANDLERS = new Handler[0];
+    private static final Comparator<Handler> ORDER = Comparator
+            .comparingInt((Handler h) -> -h.trigger.getEvent().getLoadingPriority())
+            .thenComparingLong(h -> h.sequence);
+
+    private final Map<Class<?>, List<Handler>> byContext = new HashMap<>();
+    private final Map<Class<?>, Handler[]> resolved = new ConcurrentHashMap<>();
+    private final Map<Class<?>, DispatchStatistics> statistics = new ConcurrentHashMap<>();
+    private long sequence;
+
+    /**
+     * Registers a trigger for the contexts its event declared when it was registered
+     * @param trigger the trigger
+     * @throws IllegalArgumentException if the event of the trigger isn't registered
+     */
+    public void register(Trigger trigger) {
+        Class<?> eventClass = trigger.getEvent().getClass();
+        for (SkriptEventInfo<?> info : SyntaxManager.getEvents()) {
+            if (info.getSyntaxClass() == eventClass) {
+                register(trigger, info.getContexts());
+                return;
+            }
+        }
+        throw new IllegalArgumentException("The event " + eventClass.getName() + " isn't registered");
+    }
+
+    /**
+     * Registers a trigger for the given contexts, checking each context with {@link SkriptEvent#check(TriggerContext)}
+     * before running it
+     * @param trigger the trigger
+     * @param contexts the context classes the trigger should be run for
+     */
+    public void register(Trigger trigger, Class<? extends TriggerContext>[] contexts) {
+        SkriptEvent event = trigger.getEvent();
+        register(trigger, contexts, event::check);
+    }
+
+    /**
+     * Registers a trigger for the given contexts, with a custom check. This allows for a check that is cheaper than
+     * {@link SkriptEvent#check(TriggerContext)}, because it is computed ahead of time or because it relies on the
+     * context classes being already known.
+     * @param trigger the trigger
+     * @param contexts the context classes the trigger should be run for
+     * @param check the check every context must pass for the trigger to run, or {@code null} if the class of the context
+     *              is enough
+     */
+    public synchronized void register(Trigger trigger, Class<? extends TriggerContext>[] contexts, @Nullable Predicate<TriggerContext> check) {
+        Handler handler = new Handler(trigger, check, TriggerAssembler.assemble(trigger), sequence++);
+        for (Class<? extends TriggerContext> context : contexts) {
+            byContext.computeIfAbsent(context, c -> new ArrayList<>()).add(handler);
+        }
+        resolved.clear();
+    }
+
+    /**
+     * Unregisters a trigger
+     * @param trigger the trigger
+     */
+    public synchronized void unregister(Trigger trigger) {
+        byContext.values().forEach(handlers -> handlers.removeIf(h -> h.trigger == trigger));
+        byContext.values().removeIf(List::isEmpty);
+        resolved.clear();
+    }
+
+    /**
+     * Unregisters all triggers
+     */
+    public synchronized void clear() {
+        byContext.clear();
+        resolved.clear();
+    }
+
+    /**
+     * Runs all triggers that can handle the given context, on the calling thread
+     * @param ctx the context
+     * @return the number of triggers that were run
+     */
+    public int dispatch(TriggerContext ctx) {
+        long start = System.nanoTime();
+        Class<?> contextClass = ctx.getClass();
+        int ran = 0;
+        for (Handler handler : getHandlers(contextClass)) {
+            if (handler.run(ctx))
+                ran++;
+        }
+        statistics.computeIfAbsent(contextClass, c -> new DispatchStatistics()).record(ran, System.nanoTime() - start);
+        return ran;
+    }
+
+    /**
+     * Runs all triggers that can handle the given contexts, on the calling thread, as batches : every trigger is run
+     * once for all the contexts of the same class it accepts, through {@link Statement#runAll(Statement, TriggerContext[])}.
+     * Bursts of contexts are thus much cheaper to dispatch than one by one, but triggers don't run in order anymore for
+     * a given context : every trigger runs for all contexts before the next one does.
+     * @param contexts the contexts
+     * @return the number of times a trigger was run
+     */
+    public int dispatchAll(TriggerContext[] contexts) {
+        Map<Class<?>, List<TriggerContext>> byClass = new LinkedHashMap<>();
+        for (TriggerContext ctx : contexts)
+            byClass.computeIfAbsent(ctx.getClass(), c -> new ArrayList<>()).add(ctx);
+        int total = 0;
+        for (Map.Entry<Class<?>, List<TriggerContext>> entry : byClass.entrySet()) {
+            long start = System.nanoTime();
+            List<TriggerContext> sameClass = entry.getValue();
+            int ran = 0;
+            for (Handler handler : getHandlers(entry.getKey()))
+                ran += handler.runAll(sameClass);
+            total += ran;
+            // A batch is recorded as a single dispatch, as the time taken by each context can't be told apart
+            statistics.computeIfAbsent(entry.getKey(), c -> new DispatchStatistics()).record(ran, System.nanoTime() - start);
+        }
+        return total;
+    }
+
+    /**
+     * Submits all triggers that can handle the given context to an {@link ExecutionService}, which may run them in
+     * parallel. The triggers are submitted in order, so they start in order if the service orders them by context.
+     * The statistics of this dispatch are recorded once all triggers have completed.
+     * @param ctx the context
+     * @param service the service to run the triggers on
+     * @return a future completed with the number of triggers that were run
+     */
+    public CompletableFuture<Integer> dispatchAsync(TriggerContext ctx, ExecutionService service) {
+        long start = System.nanoTime();
+        Class<?> contextClass = ctx.getClass();
+        Handler[] handlers = getHandlers(contextClass);
+        AtomicInteger ran = new AtomicInteger();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[handlers.length];
+        for (int i = 0; i < handlers.length; i++) {
+            Handler handler = handlers[i];
+            futures[i] = service.submit(ctx, () -> {
+                if (handler.run(ctx))
+                    ran.incrementAndGet();
+                return true;
+            });
+        }
+        return CompletableFuture.allOf(futures).handle((v, t) -> {
+            statistics.computeIfAbsent(contextClass, c -> new DispatchStatistics()).record(ran.get(), System.nanoTime() - start);
+            return ran.get();
+        });
+    }
+
+    /**
+     * @param contextClass the class of the context
+     * @return the triggers that would be considered when dispatching a context of the given class, in the order they
+     * would be run in
+     */
+    public List<Trigger> getTriggers(Class<? extends TriggerContext> contextClass) {
+        Handler[] handlers = getHandlers(contextClass);
+        List<Trigger> triggers = new ArrayList<>(handlers.length);
+        for (Handler handler : handlers)
+            triggers.add(handler.trigger);
+        return triggers;
+    }
+
+    /**
+     * @param contextClass the class of the context
+     * @return the statistics of the dispatches of contexts of exactly this class, or {@code null} if none were
+     * dispatched yet
+     */
+    @Nullable
+    public DispatchStatistics getStatistics(Class<? extends TriggerContext> contextClass) {
+        return statistics.get(contextClass);
+    }
+
+    /**
+     * @return the statistics of every context class that was dispatched
+     */
+    public Map<Class<?>, DispatchStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    private Handler[] getHandlers(Class<?> contextClass) {
+        Handler[] handlers = resolved.get(contextClass);
+        return handlers != null ? handlers : resolve(contextClass);
+    }
+
+    private synchronized Handler[] resolve(Class<?> contextClass) {
+        Handler[] handlers = resolved.get(contextClass);
+        if (handlers != null)
+            return handlers;
+        Set<Handler> applicable = new LinkedHashSet<>();
+        byContext.forEach((declared, registered) -> {
+            if (declared.isAssignableFrom(contextClass))
+                applicable.addAll(registered);
+        });
+        handlers = applicable.toArray(NO_HANDLERS);
+        Arrays.sort(handlers, ORDER);
+        resolved.put(contextClass, handlers);
+        return handlers;
+    }
+
+    private static final class Handler {
+        private final Trigger trigger;
+        @Nullable
+        private final Predicate<TriggerContext> check;
+        @Nullable
+        private final CompiledTrigger compiled;
+        private final long sequence;
+
+        Handler(Trigger trigger, @Nullable Predicate<TriggerContext> check, @Nullable CompiledTrigger compiled, long sequence) {
+            this.trigger = trigger;
+            this.check = check;
+            this.compiled = compiled;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return whether the trigger was run
+         */
+        boolean run(TriggerContext ctx) {
+            if (check != null && !check.test(ctx))
+                return false;
+            if (compiled != null) {
+                compiled.runUnchecked(ctx);
+            } else {
+                List<Statement> items = trigger.getItems();
+                if (!items.isEmpty())
+                    Statement.runAll(items.get(0), ctx);
+            }
+            return true;
+        }
+
+        /**
+         * @return the number of contexts the trigger was run for
+         */
+        int runAll(List<TriggerContext> contexts) {
+            List<TriggerContext> accepted = contexts;
+            if (check != null) {
+                accepted = new ArrayList<>(contexts.size());
+                for (TriggerContext ctx : contexts) {
+                    if (check.test(ctx))
+                        accepted.add(ctx);
+                }
+            }
+            List<Statement> items = trigger.getItems();
+            if (accepted.size() == 1 && compiled != null) {
+                compiled.runUnchecked(accepted.get(0));
+            } else if (!accepted.isEmpty() && !items.isEmpty()) {
+                Statement.runAll(items.get(0), accepted.toArray(new TriggerContext[0]));
+            }
+            return accepted.size();
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Runs {@linkplain Trigger triggers} asynchronously, on a pool of worker threads.
+ * <br>
+ * The number of tasks that are either waiting or running is bounded by the capacity of the service. Once it is reached,
+ * {@link #submit(Trigger, TriggerContext)} blocks the submitting thread until a task completes, which slows down
+ * producers instead of letting the backlog grow without bounds, while {@link #trySubmit(Trigger, TriggerContext, long, TimeUnit)}
+ * gives up after a timeout. Tasks submitted by the tasks of the service itself, and resumed executions, never block
+ * their producer, which would either deadlock once every worker waits for a permit held by another, or hold up a timer
+ * thread. While the service is saturated, they are parked instead, and every task that completes hands its permit over
+ * to the oldest parked task before giving it back to blocked producers. Every task that was handed over to the workers
+ * thus holds a permit until it completes, and the capacity always bounds how many there are.
+ * <br>
+ * When the runtime supports virtual threads, they are used instead of a fixed pool of platform threads. The capacity
+ * then bounds the number of tasks running at once.
+ * <br>
+ * An ordering key can be computed from every context. Tasks sharing the same key run one after the other, in submission
+ * order, while tasks with different keys (or with a {@code null} key) may run in parallel. Triggers touching state
+ * specific to a key, like the same player, can thus be serialized without serializing everything else.
+ */
+public class ExecutionService implements AutoCloseable {
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+    /*
+     * The service whose task the current thread is running
+     */
+    private static final ThreadLocal<ExecutionService> WORKER = new ThreadLocal<>();
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final Semaphore capacity;
+    @Nullable
+    private final Function<? super TriggerContext, ?> orderingKey;
+    private final Map<Object, Deque<Runnable>> keyed = new HashMap<>();
+    /*
+     * Tasks waiting for a permit without blocking their producer. Each one hands itself over to the executor, and
+     * returns false if it was rejected.
+     */
+    private final Deque<BooleanSupplier> parked = new ArrayDeque<>();
+    /*
+     * The number of tasks that were accepted and haven't completed yet, parked ones included. Once the service is
+     * closed, the executor is only shut down when it drops to zero, so that parked tasks still get to run.
+     */
+    private final AtomicInteger accepted = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyRecorder waits = new LatencyRecorder();
+    private final LatencyRecorder executions = new LatencyRecorder();
+
+    /**
+     * Creates a service without any ordering, using virtual threads if possible
+     * @param parallelism the number of worker threads, when virtual threads aren't available
+     * @param capacity the maximum number of tasks that can be waiting or running at once
+     */
+    public ExecutionService(int parallelism, int capacity) {
+        this(parallelism, capacity, null, true);
+    }
+
+    /**
+     * Creates a service
+     * @param parallelism the number of worker threads, when virtual threads aren't used
+     * @param capacity the maximum number of tasks that can be waiting or running at once
+     * @param orderingKey the function computing the ordering key of a context, or {@code null} if no ordering is needed
+     * @param useVirtualThreads whether to use virtual threads if the runtime supports them
+     */
+    public ExecutionService(int parallelism, int capacity, @Nullable Function<? super TriggerContext, ?> orderingKey, boolean useVirtualThreads) {
+        if (parallelism <= 0 || capacity <= 0)
+            throw new IllegalArgumentException("The parallelism and the capacity must be positive");
+        ExecutorService virtualExecutor = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            executor = virtualExecutor;
+            virtual = true;
+        } else {
+            int pool = POOL_COUNT.incrementAndGet();
+            AtomicInteger threads = new AtomicInteger();
+            ThreadFactory factory = r -> {
+                Thread t = new Thread(r, "skript-worker-" + pool + "-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            executor = Executors.newFixedThreadPool(parallelism, factory);
+            virtual = false;
+        }
+        this.capacity = new Semaphore(capacity);
+        this.orderingKey = orderingKey;
+    }
+
+    /**
+     * @return whether the current runtime supports virtual threads
+     */
+    public static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Nullable
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Submits a trigger to be run with {@link Statement#runAll(Statement, TriggerContext)}, blocking while the service
+     * is saturated
+     * @param trigger the trigger
+     * @param ctx the context
+     * @return a future completed with the result of {@link Statement#runAll(Statement, TriggerContext)}
+     */
+    public CompletableFuture<Boolean> submit(Trigger trigger, TriggerContext ctx) {
+        return submit(ctx, () -> Statement.runAll(trigger, ctx));
+    }
+
+    /**
+     * Submits a trigger to be run with {@link Statement#runAll(Statement, TriggerContext)}, waiting at most for the given
+     * time while the service is saturated
+     * @param trigger the trigger
+     * @param ctx the context
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return a future completed with the result of {@link Statement#runAll(Statement, TriggerContext)}, or {@code null}
+     * if the service stayed saturated for the whole timeout
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    @Nullable
+    public CompletableFuture<Boolean> trySubmit(Trigger trigger, TriggerContext ctx, long timeout, TimeUnit unit) throws InterruptedException {
+        BooleanSupplier task = () -> Statement.runAll(trigger, ctx);
+        if (WORKER.get() == this)
+            return admit(ctx, task);
+        if (!capacity.tryAcquire(timeout, unit))
+            return null;
+        return enqueue(ctx, task);
+    }
+
+    /**
+     * Submits any code to be run under the same rules as triggers, blocking while the service is saturated, unless
+     * called from a task of this service, in which case the code is parked until there is room
+     * @param ctx the context, which the ordering key is computed from
+     * @param task the code to run, returning {@code false} if it failed
+     * @return a future completed with the result of the task
+     */
+    CompletableFuture<Boolean> submit(TriggerContext ctx, BooleanSupplier task) {
+        if (WORKER.get() == this)
+            return admit(ctx, task);
+        capacity.acquireUninterruptibly();
+        return enqueue(ctx, task);
+    }
+
+    /**
+     * Submits code resuming a suspended execution. This never blocks, so that it can be called from the thread of a
+     * {@link TimerWheel} : while the service is saturated, the code is parked until there is room.
+     * @param ctx the context, which the ordering key is computed from
+     * @param task the code to run, returning {@code false} if it failed
+     * @return a future completed with the result of the task
+     */
+    CompletableFuture<Boolean> resume(TriggerContext ctx, BooleanSupplier task) {
+        return admit(ctx, task);
+    }
+
+    /*
+     * Hands a task over to the executor if a permit is available, or parks it until one is released
+     */
+    private CompletableFuture<Boolean> admit(TriggerContext ctx, BooleanSupplier task) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        if (!accept(future))
+            return future;
+        long submitted = System.nanoTime();
+        queued.incrementAndGet();
+        synchronized (parked) {
+            // Checked under the same lock as release(), so that a permit can't be released past a task being parked
+            if (!capacity.tryAcquire()) {
+                parked.add(() -> dispatch(ctx, task, future, submitted));
+                return future;
+            }
+        }
+        if (!dispatch(ctx, task, future, submitted))
+            release();
+        return future;
+    }
+
+    /*
+     * Hands a task over to the executor, once a permit was acquired for it
+     */
+    private CompletableFuture<Boolean> enqueue(TriggerContext ctx, BooleanSupplier task) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        if (!accept(future)) {
+            release();
+            return future;
+        }
+        queued.incrementAndGet();
+        if (!dispatch(ctx, task, future, System.nanoTime()))
+            release();
+        return future;
+    }
+
+    /*
+     * Counts a task as accepted, unless the service is closed, in which case its future is completed exceptionally
+     */
+    private boolean accept(CompletableFuture<Boolean> future) {
+        accepted.incrementAndGet();
+        if (closed) {
+            finish();
+            future.completeExceptionally(new RejectedExecutionException("The service is closed"));
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Called once an accepted task completed or was rejected
+     */
+    private void finish() {
+        if (accepted.decrementAndGet() == 0 && closed)
+            executor.shutdown();
+    }
+
+    /*
+     * Hands a task holding a permit over to the executor. If the executor rejects it, the future is completed
+     * exceptionally and false is returned, the caller being left to release the permit.
+     */
+    private boolean dispatch(TriggerContext ctx, BooleanSupplier task, CompletableFuture<Boolean> future, long submitted) {
+        Runnable runnable = () -> run(task, future, submitted);
+        Object key = orderingKey == null ? null : orderingKey.apply(ctx);
+        try {
+            if (key == null) {
+                executor.execute(runnable);
+            } else {
+                synchronized (keyed) {
+                    Deque<Runnable> pending = keyed.get(key);
+                    if (pending != null) {
+                        pending.add(runnable);
+                        return true;
+                    }
+                    keyed.put(key, new ArrayDeque<>());
+                    try {
+                        executor.execute(() -> runKeyed(key, runnable));
+                    } catch (RuntimeException e) {
+                        // Otherwise, later tasks with this key would wait for a task that never runs
+                        keyed.remove(key);
+                        throw e;
+                    }
+                }
+            }
+        } catch (RuntimeException e) { // Rejected because the service was closed
+            queued.decrementAndGet();
+            finish();
+            future.completeExceptionally(e);
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Gives a permit back, handing it over to the oldest parked task if there is one
+     */
+    private void release() {
+        while (true) {
+            BooleanSupplier next;
+            synchronized (parked) {
+                next = parked.poll();
+                if (next == null) {
+                    capacity.release();
+                    return;
+                }
+            }
+            if (next.getAsBoolean())
+                return;
+        }
+    }
+
+    /*
+     * Runs the tasks of a key until there are none left. Running them on the same thread, rather than submitting them
+     * one by one, keeps them in order without going through the executor again.
+     */
+    private void runKeyed(Object key, Runnable first) {
+        Runnable next = first;
+        while (next != null) {
+            next.run();
+            synchronized (keyed) {
+                next = keyed.get(key).poll();
+                if (next == null)
+                    keyed.remove(key);
+            }
+        }
+    }
+
+    private void run(BooleanSupplier task, CompletableFuture<Boolean> future, long submitted) {
+        long start = System.nanoTime();
+        waits.record(start - submitted);
+        // Counted as running before it stops being queued, so that the service never looks idle in between
+        running.incrementAndGet();
+        queued.decrementAndGet();
+        boolean result = false;
+        Throwable thrown = null;
+        ExecutionService previous = WORKER.get();
+        WORKER.set(this);
+        try {
+            result = task.getAsBoolean();
+        } catch (Throwable t) {
+            thrown = t;
+        } finally {
+            WORKER.set(previous);
+        }
+        // Statistics are updated before completing the future, so that they account for this task once it is done
+        if (!result)
+            failed.increment();
+        running.decrementAndGet();
+        executions.record(System.nanoTime() - start);
+        release();
+        finish();
+        if (thrown == null) {
+            future.complete(result);
+        } else {
+            future.completeExceptionally(thrown);
+        }
+    }
+
+    /**
+     * @return whether this service runs its tasks on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return the number of tasks that were submitted and haven't started yet
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * @return the number of tasks currently running
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * @return the number of tasks that completed, successfully or not
+     */
+    public long getCompleted() {
+        return executions.getCount();
+    }
+
+    /**
+     * @return the number of tasks that threw an exception or returned {@code false}
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return the average time tasks spent waiting to be run, in nanoseconds
+     */
+    public long getAverageWaitNanos() {
+        return waits.getAverageNanos();
+    }
+
+    /**
+     * @return the longest time a task spent waiting to be run, in nanoseconds
+     */
+    public long getMaxWaitNanos() {
+        return waits.getMaxNanos();
+    }
+
+    /**
+     * @return the average time tasks took to run, in nanoseconds
+     */
+    public long getAverageExecutionNanos() {
+        return executions.getAverageNanos();
+    }
+
+    /**
+     * @return the longest time a task took to run, in nanoseconds
+     */
+    public long getMaxExecutionNanos() {
+        return executions.getMaxNanos();
+    }
+
+    /**
+     * Stops accepting new tasks, and waits for the submitted ones to complete
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return whether all tasks completed before the timeout
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        close();
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Stops accepting new tasks. Tasks already submitted still run, including parked ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (accepted.get() == 0)
+            executor.shutdown();
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.lang.ExecutionFrame;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Loop;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.SyntaxElement;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+
+import java.util.Iterator;
+
+/**
+ * A trigger linearized by the {@link TriggerAssembler} into a flat array of instructions, executed by a single dispatch
+ * loop. Instruction {@code i} is made of {@code opcodes[i]}, {@code operands[i]}, {@code targets[i]} and {@code slots[i]}.
+ * All jump targets are resolved when the trigger is assembled.
+ */
+final class InstructionBlock implements CompiledStatement {
+    /**
+     * Runs the {@link Statement} operand, whose {@link Statement#run(TriggerContext)} always returns {@code true}
+     */
+    static final byte EFFECT = 0;
+    /**
+     * Runs the {@link Statement} operand, and jumps to the target if it returns {@code false}
+     */
+    static final byte STATEMENT = 1;
+    /**
+     * Jumps to the target unless the {@link Expression Expression&lt;Boolean&gt;} operand is {@code true}. This is used both
+     * for inline conditions and for the conditions of sections.
+     */
+    static final byte BRANCH = 2;
+    /**
+     * Jumps to the target
+     */
+    static final byte JUMP = 3;
+    /**
+     * Stores a new iterator of the {@link Loop} operand in its slot of the {@link ExecutionFrame}
+     */
+    static final byte LOOP_INIT = 4;
+    /**
+     * Advances the iterator of the {@link Loop} operand and sets its current value, or jumps to the target if the
+     * iterator is exhausted
+     */
+    static final byte LOOP_NEXT = 5;
+
+    private final byte[] opcodes;
+    private final Object[] operands;
+    private final int[] targets;
+    private final int[] slots;
+
+    InstructionBlock(byte[] opcodes, Object[] operands, int[] targets, int[] slots) {
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.targets = targets;
+        this.slots = slots;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean execute(TriggerContext ctx) {
+        // Local copies keep the arrays in registers for the whole loop
+        byte[] opcodes = this.opcodes;
+        Object[] operands = this.operands;
+        int[] targets = this.targets;
+        ExecutionFrame frame = ExecutionFrame.current();
+        assert frame != null;
+        int pc = 0;
+        while (pc < opcodes.length) {
+            frame.charge(1);
+            switch (opcodes[pc]) {
+                case EFFECT:
+                    ((Statement) operands[pc]).run(ctx);
+                    pc++;
+                    break;
+                case STATEMENT:
+                    pc = ((Statement) operands[pc]).run(ctx) ? pc + 1 : targets[pc];
+                    break;
+                case BRANCH:
+                    Boolean condition = ((Expression<Boolean>) operands[pc]).getSingle(ctx);
+                    pc = condition != null && condition ? pc + 1 : targets[pc];
+                    break;
+                case JUMP:
+                    pc = targets[pc];
+                    break;
+                case LOOP_INIT:
+                    frame.setIterator(slots[pc], ((Loop) operands[pc]).iterator(ctx));
+                    pc++;
+                    break;
+                case LOOP_NEXT:
+                    Iterator<?> iterator = frame.getIterator(slots[pc]);
+                    if (iterator != null && iterator.hasNext()) {
+                        frame.setValue(slots[pc], iterator.next());
+                        pc++;
+                    } else {
+                        frame.setIterator(slots[pc], null);
+                        pc = targets[pc];
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + opcodes[pc] + " at " + pc);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of instructions in this block
+     */
+    int size() {
+        return opcodes.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < opcodes.length; i++) {
+            sb.append(i).append(": ");
+            switch (opcodes[i]) {
+                case EFFECT:
+                    sb.append("effect ").append(describe(operands[i]));
+                    break;
+                case STATEMENT:
+                    sb.append("statement ").append(describe(operands[i])).append(" else ").append(targets[i]);
+                    break;
+                case BRANCH:
+                    sb.append("branch ").append(describe(operands[i])).append(" else ").append(targets[i]);
+                    break;
+                case JUMP:
+                    sb.append("jump ").append(targets[i]);
+                    break;
+                case LOOP_INIT:
+                    sb.append("loop-init #").append(slots[i]).append(' ').append(describe(operands[i]));
+                    break;
+                case LOOP_NEXT:
+                    sb.append("loop-next #").append(slots[i]).append(" else ").append(targets[i]);
+                    break;
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String describe(Object operand) {
+        return ((SyntaxElement) operand).toString(null, true);
+    }
+}
@@ -0,0 +1,218 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.file.FileElement;
+import io.github.syst3ms.skriptparser.lang.CodeSection;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An opt-in profiler, attributing the time spent running scripts to the statements, and thus to the lines, they are
+ * made of.
+ * <br>
+ * While a profiler is {@linkplain #start() active}, {@link Statement#runAll(Statement, TriggerContext)} times every
+ * statement it walks through in a sample of the executions, and leaves the other executions untouched, so that the
+ * overhead can be traded for precision. The time of a statement includes the evaluation of its expressions, including
+ * the conditions of sections, and any code it runs itself, but not the statements inside of it, which are timed on
+ * their own. Compiled triggers are interpreted while a profiler is active, so that their statements can be timed too,
+ * while batches of contexts aren't profiled.
+ * <br>
+ * The results can be read as a {@linkplain #getTop(int) top-N} of the most expensive statements, or as collapsed stacks
+ * that flame graph tools accept, where every frame is a line of a script and every stack follows the sections the line
+ * is nested in.
+ */
+public class Profiler {
+    private static final Comparator<Entry> BY_TIME = Comparator.comparingLong(Entry::getTotalNanos).reversed();
+    @Nullable
+    private static volatile Profiler active;
+
+    private final int sampleEvery;
+    private final Map<Statement, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param sampleEvery the profiler times one out of this many executions on average, so {@code 1} times all of them
+     */
+    public Profiler(int sampleEvery) {
+        if (sampleEvery <= 0)
+            throw new IllegalArgumentException("The sampling interval must be positive");
+        this.sampleEvery = sampleEvery;
+    }
+
+    /**
+     * @return the active profiler, or {@code null} if none is active
+     */
+    @Nullable
+    public static Profiler getActive() {
+        return active;
+    }
+
+    /**
+     * Makes this profiler the active one, replacing any other
+     * @return this profiler
+     */
+    public Profiler start() {
+        active = this;
+        return this;
+    }
+
+    /**
+     * Stops this profiler, if it is the active one. Its results are kept.
+     */
+    public void stop() {
+        if (active == this)
+            active = null;
+    }
+
+    /**
+     * @return whether the execution about to start should be timed
+     */
+    public boolean sample() {
+        return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+
+    /**
+     * Records one run of a statement
+     * @param statement the statement
+     * @param nanos the time it took, in nanoseconds
+     */
+    public void record(Statement statement, long nanos) {
+        entries.computeIfAbsent(statement, Entry::new).record(nanos);
+    }
+
+    /**
+     * Forgets all results
+     */
+    public void reset() {
+        entries.clear();
+    }
+
+    /**
+     * @param n the maximum number of statements
+     * @return the statements that took the most time in total, in descending order
+     */
+    public List<Entry> getTop(int n) {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(BY_TIME);
+        return sorted.size() > n ? sorted.subList(0, n) : sorted;
+    }
+
+    /**
+     * @param n the maximum number of statements
+     * @return a readable report of the statements that took the most time in total
+     */
+    public String report(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-30s %10s %14s %12s  %s%n", "Location", "Runs", "Total (us)", "Avg (ns)", "Statement"));
+        for (Entry entry : getTop(n)) {
+            sb.append(String.format(
+                    "%-30s %10d %14d %12d  %s%n",
+                    entry.getLocation(),
+                    entry.getInvocations(),
+                    entry.getTotalNanos() / 1000,
+                    entry.getAverageNanos(),
+                    entry.getStatement().toString(null, false)
+            ));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the results in the collapsed stack format, with one line per statement made of the lines it is nested in
+     * from the outermost one, separated by semicolons, and then of its total time in nanoseconds
+     */
+    public String toCollapsedStacks() {
+        StringBuilder sb = new StringBuilder();
+        for (Entry entry : getTop(Integer.MAX_VALUE))
+            sb.append(entry.getStack()).append(' ').append(entry.getTotalNanos()).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * The results of a single statement
+     */
+    public static final class Entry {
+        private final Statement statement;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        @Nullable
+        private String stack;
+
+        private Entry(Statement statement) {
+            this.statement = statement;
+        }
+
+        private void record(long nanos) {
+            invocations.increment();
+            totalNanos.add(nanos);
+        }
+
+        /**
+         * @return the statement
+         */
+        public Statement getStatement() {
+            return statement;
+        }
+
+        /**
+         * @return the script and the line the statement was loaded from, like {@code script.sk:12}
+         */
+        public String getLocation() {
+            return location(statement);
+        }
+
+        /**
+         * @return the number of times the statement was timed
+         */
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        /**
+         * @return the total time the statement took, in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * @return the average time the statement took, in nanoseconds
+         */
+        public long getAverageNanos() {
+            long count = getInvocations();
+            return count == 0 ? 0 : getTotalNanos() / count;
+        }
+
+        private String getStack() {
+            if (stack == null) {
+                List<String> frames = new ArrayList<>();
+                frames.add(frame(statement));
+                for (CodeSection section = statement.getParent(); section != null; section = section.getParent())
+                    frames.add(frame(section));
+                Collections.reverse(frames);
+                stack = String.join(";", frames);
+            }
+            return stack;
+        }
+
+        private static String frame(Statement statement) {
+            FileElement element = statement.getFileElement();
+            String content = element != null ? element.getLineContent() : statement.toString(null, false);
+            // Semicolons separate frames, while the value is separated by the last space, so other spaces are fine
+            return (location(statement) + " " + content).replace(';', ',');
+        }
+
+        private static String location(Statement statement) {
+            FileElement element = statement.getFileElement();
+            return element != null ? element.getFileName() + ":" + element.getLine() : "unknown";
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.lang.Continuation;
+import io.github.syst3ms.skriptparser.util.TimeUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resumes suspended executions once a delay has passed.
+ * <br>
+ * Delays are tracked by a single {@link TimerWheel}, so that a suspended execution only costs its {@link Continuation}
+ * and a timeout, and no thread. Once a delay expires, the execution is resumed on an {@link ExecutionService}, or on
+ * the thread advancing the wheel if there is none. Resumed executions are parked rather than waited for when the
+ * service is saturated, so that it never blocks the wheel.
+ */
+public class Scheduler implements AutoCloseable {
+    @Nullable
+    private static volatile Scheduler defaultScheduler;
+
+    private final TimerWheel wheel;
+    @Nullable
+    private final ExecutionService service;
+    private final AtomicInteger suspended = new AtomicInteger();
+
+    /**
+     * @param wheel the timer wheel tracking delays, which must be advanced by someone else
+     * @param service the service resumed executions run on, or {@code null} to run them on the thread advancing the wheel
+     */
+    public Scheduler(TimerWheel wheel, @Nullable ExecutionService service) {
+        this.wheel = wheel;
+        this.service = service;
+    }
+
+    /**
+     * @return the scheduler used by default, which is created on first use with a started {@link TimerWheel} ticking
+     * every 10 milliseconds, and an {@link ExecutionService} with one worker per processor
+     */
+    public static Scheduler getDefault() {
+        Scheduler scheduler = defaultScheduler;
+        if (scheduler == null) {
+            synchronized (Scheduler.class) {
+                scheduler = defaultScheduler;
+                if (scheduler == null) {
+                    defaultScheduler = scheduler = new Scheduler(
+                            new TimerWheel(10, TimeUnit.MILLISECONDS, 512).start(),
+                            new ExecutionService(Runtime.getRuntime().availableProcessors(), 1 << 16)
+                    );
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * @return the scheduler used by default, or {@code null} if it wasn't needed yet
+     */
+    @Nullable
+    public static Scheduler getDefaultIfCreated() {
+        return defaultScheduler;
+    }
+
+    /**
+     * Replaces the scheduler used by default. The previous one isn't closed.
+     * @param scheduler the new default scheduler, or {@code null} to create one on next use
+     */
+    public static void setDefault(@Nullable Scheduler scheduler) {
+        defaultScheduler = scheduler;
+    }
+
+    /**
+     * Resumes a suspended execution after a delay
+     * @param continuation the suspended execution
+     * @param delay the delay
+     * @return a handle to cancel the resumption
+     */
+    public TimerWheel.Timeout resumeLater(Continuation continuation, Duration delay) {
+        suspended.incrementAndGet();
+        return wheel.schedule(() -> {
+            try {
+                if (service == null) {
+                    continuation.resume();
+                } else {
+                    service.resume(continuation.getContext(), continuation::resume);
+                }
+            } finally {
+                // Only once the execution is queued or done, so that the scheduler never looks idle in between
+                suspended.decrementAndGet();
+            }
+        }, TimeUtils.toNanosSaturated(delay), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of executions currently waiting to be resumed
+     */
+    public int getSuspended() {
+        return suspended.get();
+    }
+
+    /**
+     * @return whether no execution is waiting to be resumed, nor queued or running on the service of this scheduler
+     */
+    public boolean isIdle() {
+        return suspended.get() == 0 && (service == null || service.getQueueDepth() == 0 && service.getRunning() == 0);
+    }
+
+    /**
+     * @return the timer wheel of this scheduler
+     */
+    public TimerWheel getWheel() {
+        return wheel;
+    }
+
+    /**
+     * @return the service resumed executions run on, or {@code null} if they run on the thread advancing the wheel
+     */
+    @Nullable
+    public ExecutionService getService() {
+        return service;
+    }
+
+    /**
+     * Closes the timer wheel and the execution service of this scheduler
+     */
+    @Override
+    public void close() {
+        wheel.close();
+        if (service != null)
+            service.close();
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timing statistics of the triggers fired by a {@link TriggerTimer}.
+ * <br>
+ * The jitter of a firing is how late it ran compared to its deadline, which is at most one tick of the timer wheel
+ * when the timer keeps up. Deadlines are computed from the schedule itself rather than from when triggers actually
+ * ran, so that the jitter of successive firings doesn't add up : the drift, which is the jitter of the latest batch,
+ * only grows if the timer falls behind.
+ */
+public class TimerStatistics {
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private final LatencyRecorder jitter = new LatencyRecorder();
+    private volatile long drift;
+
+    void recordBatch(long lateness) {
+        batches.increment();
+        drift = lateness;
+    }
+
+    void recordFiring(long lateness) {
+        jitter.record(lateness);
+    }
+
+    void recordMissed(long count) {
+        missed.add(count);
+    }
+
+    /**
+     * @return the number of batches that were fired, every batch gathering the triggers due at the same tick
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return the number of times a trigger was fired
+     */
+    public long getFirings() {
+        return jitter.getCount();
+    }
+
+    /**
+     * @return the number of firings that were skipped, either because the timer was late by more than a whole period,
+     * or because the previous firing of the trigger hadn't finished yet
+     */
+    public long getMissed() {
+        return missed.sum();
+    }
+
+    /**
+     * @return the average jitter of the firings, in nanoseconds
+     */
+    public long getAverageJitterNanos() {
+        return jitter.getAverageNanos();
+    }
+
+    /**
+     * @return the largest jitter of a firing, in nanoseconds
+     */
+    public long getMaxJitterNanos() {
+        return jitter.getMaxNanos();
+    }
+
+    /**
+     * @return how late the latest batch ran compared to its deadline, in nanoseconds
+     */
+    public long getDriftNanos() {
+        return drift;
+    }
+
+    @Override
+    public String toString() {
+        return getBatches() + " batches, " + getFirings() + " firings, " + getMissed() + " missed, average jitter "
+                + getAverageJitterNanos() + "ns, max jitter " + getMaxJitterNanos() + "ns, drift " + getDriftNanos() + "ns";
+    }
+}
@@ -0,0 +1,237 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed timer wheel, running tasks after a delay.
+ * <br>
+ * Time is divided into ticks of a fixed duration, and the wheel into as many buckets as there are ticks in one
+ * revolution. A task is put in the bucket of the tick it expires at, along with the number of whole revolutions left
+ * before it does. Every tick, only the tasks of one bucket are looked at. Scheduling and cancelling a task is thus done
+ * in constant time, and every pending task costs a single object, regardless of how many there are. The price is that
+ * tasks run up to one tick late.
+ * <br>
+ * The wheel is advanced by {@link #advance()}, either by the thread started with {@link #start()}, or manually. Time is
+ * read from a clock in nanoseconds, which can be replaced to control time in tests. Tasks run on the thread advancing
+ * the wheel, so they should be short, and hand any real work over to another thread.
+ */
+public class TimerWheel implements AutoCloseable {
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final LongSupplier clock;
+    private final long origin;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    /*
+     * The next tick to process, counted from the origin. Only accessed while holding the lock of this wheel.
+     */
+    private long tick;
+    @Nullable
+    private volatile Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Creates a timer wheel using {@link System#nanoTime()} as its clock
+     * @param tickDuration the duration of a tick
+     * @param unit the unit of the tick duration
+     * @param ticksPerWheel the number of buckets, rounded up to a power of two
+     */
+    public TimerWheel(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(tickDuration, unit, ticksPerWheel, System::nanoTime);
+    }
+
+    /**
+     * Creates a timer wheel
+     * @param tickDuration the duration of a tick
+     * @param unit the unit of the tick duration
+     * @param ticksPerWheel the number of buckets, rounded up to a power of two
+     * @param clock the clock of this wheel, in nanoseconds
+     */
+    public TimerWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, LongSupplier clock) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0)
+            throw new IllegalArgumentException("The tick duration and the number of ticks per wheel must be positive");
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(ticksPerWheel);
+        if (size < ticksPerWheel)
+            size <<= 1;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+    }
+
+    /**
+     * Schedules a task
+     * @param task the task
+     * @param delay the delay after which the task should run
+     * @param unit the unit of the delay
+     * @return a handle to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (closed)
+            throw new IllegalStateException("This timer wheel is closed");
+        Timeout timeout = new Timeout(task, clock.getAsLong() + Math.max(0, unit.toNanos(delay)));
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Runs all tasks whose delay has expired, up to the current time of the clock
+     * @return the number of tasks that were run
+     */
+    public synchronized int advance() {
+        long target = (clock.getAsLong() - origin) / tickNanos;
+        int ran = 0;
+        while (tick <= target) {
+            transferAdded();
+            ran += expire((int) (tick & mask));
+            tick++;
+        }
+        return ran;
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled)
+                continue;
+            long deadlineTick = Math.max(tick, ceilDiv(timeout.deadline - origin, tickNanos));
+            timeout.rounds = (deadlineTick - tick) >> Integer.numberOfTrailingZeros(buckets.length);
+            int index = (int) (deadlineTick & mask);
+            timeout.next = buckets[index];
+            buckets[index] = timeout;
+        }
+    }
+
+    private int expire(int index) {
+        int ran = 0;
+        Timeout previous = null;
+        Timeout timeout = buckets[index];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            boolean remove = timeout.cancelled;
+            if (!remove) {
+                if (timeout.rounds <= 0) {
+                    remove = true;
+                    if (timeout.expire())
+                        ran++;
+                } else {
+                    timeout.rounds--;
+                }
+            }
+            if (remove) {
+                if (previous == null) {
+                    buckets[index] = next;
+                } else {
+                    previous.next = next;
+                }
+                timeout.next = null;
+            } else {
+                previous = timeout;
+            }
+            timeout = next;
+        }
+        return ran;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return x <= 0 ? 0 : (x + y - 1) / y;
+    }
+
+    /**
+     * @return the current time of the clock of this wheel, in nanoseconds
+     */
+    public long getTime() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * @return the duration of a tick, in nanoseconds
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Starts a daemon thread advancing this wheel every tick
+     * @return this wheel
+     */
+    public synchronized TimerWheel start() {
+        if (thread != null)
+            return this;
+        Thread t = new Thread(() -> {
+            while (!closed) {
+                long sleep = tickNanos - Math.floorMod(clock.getAsLong() - origin, tickNanos);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (closed)
+                        break;
+                }
+                advance();
+            }
+        }, "skript-timer");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+        return this;
+    }
+
+    /**
+     * Stops the thread advancing this wheel, if any. Pending tasks never run.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Thread t = thread;
+        if (t != null)
+            t.interrupt();
+    }
+
+    /**
+     * A task scheduled on a {@link TimerWheel}
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long rounds;
+        @Nullable
+        private Timeout next;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Prevents the task from running, if it hasn't run yet
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * @return whether this task was cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private boolean expire() {
+            try {
+                task.run();
+                return true;
+            } catch (Exception e) {
+                System.err.println("An exception occurred in a scheduled task. Stack trace :");
+                e.printStackTrace();
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.lang.CodeSection;
+import io.github.syst3ms.skriptparser.lang.Conditional;
+import io.github.syst3ms.skriptparser.lang.Effect;
+import io.github.syst3ms.skriptparser.lang.ExecutionBudget;
+import io.github.syst3ms.skriptparser.lang.InlineCondition;
+import io.github.syst3ms.skriptparser.lang.Loop;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.While;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Linearizes loaded {@linkplain Trigger triggers} into flat arrays of instructions, as another alternative to
+ * interpreting them with {@link Statement#runAll(Statement, TriggerContext)}.
+ * <br>
+ * Where the interpreter resolves the successor of every statement at runtime, by walking up the parent chain in
+ * {@link Statement#getNext()}, the assembler resolves every successor once : sections become conditional branches and
+ * jumps to precomputed instruction indices, and the whole trigger is then run by a single dispatch loop. This is how
+ * the {@link EventDispatcher} and the {@link TriggerTimer} run the triggers they are given, which are assembled once,
+ * when they are registered.
+ * <br>
+ * The same restrictions as the {@link TriggerCompiler} apply : only {@link Conditional conditionals}, {@link Loop loops}
+ * and {@link While while loops} are supported as sections, statements overriding {@code walk()} are not supported, and
+ * neither are triggers whose {@link ExecutionBudget} yields. Every instruction that runs is charged against the budget
+ * of the execution.
+ */
+public class TriggerAssembler {
+    private static final int UNRESOLVED = -1;
+
+    private byte[] opcodes = new byte[16];
+    private Object[] operands = new Object[16];
+    private int[] targets = new int[16];
+    private int[] slots = new int[16];
+    private int size;
+
+    private TriggerAssembler() {}
+
+    /**
+     * Assembles a trigger
+     * @param trigger the trigger to assemble
+     * @return the assembled trigger, or {@code null} if the trigger contains code that can't be assembled, in which case
+     * it should keep being run by {@link Statement#runAll(Statement, TriggerContext)}
+     */
+    @Nullable
+    public static CompiledTrigger assemble(Trigger trigger) {
+        if (trigger.getBudget().getAction() == ExecutionBudget.Action.YIELD)
+            return null;
+        TriggerAssembler assembler = new TriggerAssembler();
+        List<Integer> exits = new ArrayList<>();
+        if (!assembler.emitBlock(trigger.getItems(), UNRESOLVED, exits))
+            return null;
+        assembler.resolve(exits, assembler.size);
+        InstructionBlock block = new InstructionBlock(
+                Arrays.copyOf(assembler.opcodes, assembler.size),
+                Arrays.copyOf(assembler.operands, assembler.size),
+                Arrays.copyOf(assembler.targets, assembler.size),
+                Arrays.copyOf(assembler.slots, assembler.size)
+        );
+        return new CompiledTrigger(trigger, block);
+    }
+
+    /**
+     * Emits the items of a section
+     * @param items the items
+     * @param skipTarget where to go when a statement asks to skip the rest of the section, or {@link #UNRESOLVED} if it
+     *                   isn't known yet
+     * @param exits the instructions whose target will be the end of the section, which {@code skipTarget} is added to
+     *              when it isn't known yet
+     * @return whether all items could be emitted
+     */
+    private boolean emitBlock(List<Statement> items, int skipTarget, @Nullable List<Integer> exits) {
+        for (Statement item : items) {
+            if (!emitStatement(item, skipTarget, exits))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean emitStatement(Statement statement, int skipTarget, @Nullable List<Integer> exits) {
+        if (statement instanceof Conditional) {
+            return emitConditional((Conditional) statement);
+        } else if (statement instanceof Loop) {
+            return emitLoop((Loop) statement);
+        } else if (statement instanceof While) {
+            return emitWhile((While) statement);
+        } else if (statement instanceof CodeSection || statement.overridesWalk()) {
+            return false;
+        } else if (statement instanceof InlineCondition) {
+            emitJump(InstructionBlock.BRANCH, ((InlineCondition) statement).getCondition(), skipTarget, exits);
+        } else if (statement instanceof Effect && !((Effect) statement).overridesRun()) {
+            emit(InstructionBlock.EFFECT, statement, UNRESOLVED);
+        } else {
+            emitJump(InstructionBlock.STATEMENT, statement, skipTarget, exits);
+        }
+        return true;
+    }
+
+    /*
+     * branch condition1 -> next clause
+     *     body1 (skip -> end)
+     *     jump -> end
+     * branch condition2 -> next clause
+     *     ...
+     * body of the else clause
+     * end
+     */
+    private boolean emitConditional(Conditional conditional) {
+        List<Integer> exits = new ArrayList<>();
+        for (Conditional clause = conditional; clause != null; clause = clause.getFallingClause()) {
+            int branch = UNRESOLVED;
+            if (clause.getMode() != Conditional.ConditionalMode.ELSE) {
+                assert clause.getCondition() != null;
+                branch = emit(InstructionBlock.BRANCH, clause.getCondition(), UNRESOLVED);
+            }
+            if (!emitBlock(clause.getItems(), UNRESOLVED, exits))
+                return false;
+            if (clause.getFallingClause() != null)
+                exits.add(emit(InstructionBlock.JUMP, null, UNRESOLVED));
+            if (branch != UNRESOLVED)
+                targets[branch] = size;
+        }
+        resolve(exits, size);
+        return true;
+    }
+
+    /*
+     * loop-init #slot
+     * next: loop-next #slot -> end
+     *     body (skip -> next)
+     *     jump -> next
+     * end
+     */
+    private boolean emitLoop(Loop loop) {
+        slots[emit(InstructionBlock.LOOP_INIT, loop, UNRESOLVED)] = loop.getSlot();
+        int next = emit(InstructionBlock.LOOP_NEXT, loop, UNRESOLVED);
+        slots[next] = loop.getSlot();
+        if (!emitBlock(loop.getItems(), next, null))
+            return false;
+        emit(InstructionBlock.JUMP, null, next);
+        targets[next] = size;
+        return true;
+    }
+
+    /*
+     * next: branch condition -> end
+     *     body (skip -> next)
+     *     jump -> next
+     * end
+     */
+    private boolean emitWhile(While whileLoop) {
+        int next = emit(InstructionBlock.BRANCH, whileLoop.getCondition(), UNRESOLVED);
+        if (!emitBlock(whileLoop.getItems(), next, null))
+            return false;
+        emit(InstructionBlock.JUMP, null, next);
+        targets[next] = size;
+        return true;
+    }
+
+    private void emitJump(byte opcode, Object operand, int target, @Nullable List<Integer> exits) {
+        int index = emit(opcode, operand, target);
+        if (target == UNRESOLVED && exits != null)
+            exits.add(index);
+    }
+
+    private int emit(byte opcode, @Nullable Object operand, int target) {
+        if (size == opcodes.length) {
+            int capacity = size * 2;
+            opcodes = Arrays.copyOf(opcodes, capacity);
+            operands = Arrays.copyOf(operands, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+        }
+        opcodes[size] = opcode;
+        operands[size] = operand;
+        targets[size] = target;
+        return size++;
+    }
+
+    private void resolve(List<Integer> jumps, int target) {
+        for (int jump : jumps)
+            targets[jump] = target;
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.lang.CodeSection;
+import io.github.syst3ms.skriptparser.lang.Conditional;
+import io.github.syst3ms.skriptparser.lang.ExecutionBudget;
+import io.github.syst3ms.skriptparser.lang.ExecutionFrame;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Loop;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Variable;
+import io.github.syst3ms.skriptparser.lang.While;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Compiles loaded {@linkplain Trigger triggers} into trees of closures, as an alternative to interpreting them with
+ * {@link Statement#runAll(Statement, TriggerContext)}.
+ * <br>
+ * The interpreter goes from one statement to the next through {@code walk()} and {@link Statement#getNext()}, looking
+ * up the parent chain every time a section ends. Compiled triggers instead run {@link Conditional conditionals},
+ * {@link Loop loops} and {@link While while loops} as actual Java branches and loops, and run every other statement
+ * directly through {@link Statement#run(TriggerContext)}. The {@link EventDispatcher} and the {@link TriggerTimer} rely
+ * on the {@link TriggerAssembler} instead, which supports the same triggers and charges the budget more precisely.
+ * <br>
+ * Only triggers made of these sections and of statements that don't override {@code walk()} can be compiled. Any other
+ * trigger is left to the interpreter, since its control flow can't be known in advance. So are triggers whose
+ * {@link ExecutionBudget} yields, since compiled code can't be suspended.
+ * <br>
+ * Rather than charging every statement against the budget of the execution, compiled loops charge every iteration
+ * with the number of items in their body, plus one for the loop itself. Since compiled loops can't be suspended, they
+ * receive their values through {@link Expression#forEachValue(TriggerContext, java.util.function.Consumer)} instead
+ * of iterating over them. Code outside of loops runs a bounded number
+ * of statements, and so can't exceed the budget by much.
+ */
+public class TriggerCompiler {
+
+    /**
+     * Compiles a trigger
+     * @param trigger the trigger to compile
+     * @return the compiled trigger, or {@code null} if the trigger contains code that can't be compiled, in which case
+     * it should keep being run by {@link Statement#runAll(Statement, TriggerContext)}
+     */
+    @Nullable
+    public static CompiledTrigger compile(Trigger trigger) {
+        if (trigger.getBudget().getAction() == ExecutionBudget.Action.YIELD)
+            return null;
+        CompiledStatement body = compileBlock(trigger.getItems());
+        return body != null ? new CompiledTrigger(trigger, body) : null;
+    }
+
+    /**
+     * Compiles the items of a section. The resulting block stops as soon as one of its statements asks to skip the rest
+     * of the section ; the enclosing statement then carries on as if the block had completed normally.
+     */
+    @Nullable
+    private static CompiledStatement compileBlock(List<Statement> items) {
+        CompiledStatement[] statements = new CompiledStatement[items.size()];
+        for (int i = 0; i < statements.length; i++) {
+            if ((statements[i] = compileStatement(items.get(i))) == null)
+                return null;
+        }
+        switch (statements.length) {
+            case 0:
+                return ctx -> true;
+            case 1:
+                CompiledStatement single = statements[0];
+                return ctx -> {
+                    single.execute(ctx);
+                    return true;
+                };
+            default:
+                return ctx -> {
+                    for (CompiledStatement statement : statements) {
+                        if (!statement.execute(ctx))
+                            break;
+                    }
+                    return true;
+                };
+        }
+    }
+
+    @Nullable
+    private static CompiledStatement compileStatement(Statement statement) {
+        if (statement instanceof Conditional) {
+            return compileConditional((Conditional) statement);
+        } else if (statement instanceof Loop) {
+            return compileLoop((Loop) statement);
+        } else if (statement instanceof While) {
+            return compileWhile((While) statement);
+        } else if (statement instanceof CodeSection || statement.overridesWalk()) {
+            return null;
+        } else {
+            return statement::run;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private static CompiledStatement compileConditional(Conditional conditional) {
+        List<Expression<Boolean>> conditions = new ArrayList<>();
+        List<CompiledStatement> bodies = new ArrayList<>();
+        for (Conditional clause = conditional; clause != null; clause = clause.getFallingClause()) {
+            CompiledStatement body = compileBlock(clause.getItems());
+            if (body == null)
+                return null;
+            conditions.add(clause.getMode() == Conditional.ConditionalMode.ELSE ? null : clause.getCondition());
+            bodies.add(body);
+        }
+        Expression<Boolean>[] clauseConditions = (Expression<Boolean>[]) conditions.toArray(new Expression<?>[0]);
+        CompiledStatement[] clauseBodies = bodies.toArray(new CompiledStatement[0]);
+        return ctx -> {
+            for (int i = 0; i < clauseConditions.length; i++) {
+                Expression<Boolean> condition = clauseConditions[i];
+                if (condition == null || Boolean.TRUE.equals(condition.getSingle(ctx))) {
+                    clauseBodies[i].execute(ctx);
+                    break;
+                }
+            }
+            return true;
+        };
+    }
+
+    @Nullable
+    private static CompiledStatement compileLoop(Loop loop) {
+        CompiledStatement body = compileBlock(loop.getItems());
+        if (body == null)
+            return null;
+        int slot = loop.getSlot();
+        int cost = loop.getItems().size() + 1;
+        Expression<?> looped = loop.getLoopedExpression();
+        if (!(looped instanceof Variable)) { // List variables are looped over as pairs of indices and values
+            return ctx -> {
+                ExecutionFrame frame = ExecutionFrame.current();
+                assert frame != null;
+                looped.forEachValue(ctx, value -> {
+                    frame.charge(cost);
+                    frame.setValue(slot, value);
+                    body.execute(ctx);
+                });
+                return true;
+            };
+        }
+        return ctx -> {
+            Iterator<?> iterator = loop.iterator(ctx);
+            if (iterator != null) {
+                ExecutionFrame frame = ExecutionFrame.current();
+                assert frame != null;
+                while (iterator.hasNext()) {
+                    frame.charge(cost);
+                    frame.setValue(slot, iterator.next());
+                    body.execute(ctx);
+                }
+            }
+            return true;
+        };
+    }
+
+    @Nullable
+    private static CompiledStatement compileWhile(While whileLoop) {
+        CompiledStatement body = compileBlock(whileLoop.getItems());
+        if (body == null)
+            return null;
+        Expression<Boolean> condition = whileLoop.getCondition();
+        int cost = whileLoop.getItems().size() + 1;
+        return ctx -> {
+            ExecutionFrame frame = ExecutionFrame.current();
+            assert frame != null;
+            while (Boolean.TRUE.equals(condition.getSingle(ctx))) {
+                frame.charge(cost);
+                body.execute(ctx);
+            }
+            return true;
+        };
+    }
+}
@@ -0,0 +1,274 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.event.TimerContext;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires {@linkplain Trigger triggers} on a schedule, either periodically or at a given time of the day.
+ * <br>
+ * All scheduled triggers share a single {@link TimerWheel}, and triggers that are due at the same tick are gathered in
+ * a batch, which takes a single timeout in the wheel and runs as a single task with a single {@link TimerContext}. A
+ * scheduled trigger thus costs no thread, and thousands of triggers sharing the same period cost as much to wake up as
+ * one. Batches run on an {@link ExecutionService}, without blocking on its capacity, or on the thread advancing the
+ * wheel if there is none. A trigger whose previous firing is still queued or running when it is due again isn't fired,
+ * and the firing counts as missed : a trigger slower than its period thus never piles up work in the service. Triggers
+ * are assembled by the {@link TriggerAssembler} when they are scheduled.
+ * <br>
+ * Time is read from the clock of the wheel. The wall-clock time, only used for triggers running at a given time of the
+ * day, is derived from it, starting from the time of the given {@link Clock} when this timer is created.
+ */
+public class TriggerTimer implements AutoCloseable {
+    private final TimerWheel wheel;
+    @Nullable
+    private final ExecutionService service;
+    private final ZoneId zone;
+    private final Instant wallOrigin;
+    private final long origin;
+    private final Map<Long, Batch> batches = new HashMap<>();
+    private final Map<Trigger, Entry> entries = new IdentityHashMap<>();
+    private final TimerStatistics statistics = new TimerStatistics();
+
+    /**
+     * @param wheel the timer wheel, which must be advanced by someone else
+     * @param service the service triggers run on, or {@code null} to run them on the thread advancing the wheel
+     * @param clock the wall clock, only read once, and whose time zone triggers running at a given time of the day
+     *              use
+     */
+    public TriggerTimer(TimerWheel wheel, @Nullable ExecutionService service, Clock clock) {
+        this.wheel = wheel;
+        this.service = service;
+        this.zone = clock.getZone();
+        this.origin = wheel.getTime();
+        this.wallOrigin = clock.instant();
+    }
+
+    /**
+     * Fires a trigger repeatedly, starting one period from now. A trigger that is already scheduled is rescheduled.
+     * @param trigger the trigger
+     * @param period the period
+     * @throws IllegalArgumentException if the period isn't positive
+     */
+    public void scheduleEvery(Trigger trigger, Duration period) {
+        if (period.isZero() || period.isNegative())
+            throw new IllegalArgumentException("The period must be positive");
+        long nanos = period.toNanos();
+        schedule(new Entry(trigger, TriggerAssembler.assemble(trigger)) {
+            @Override
+            long next(long deadline) {
+                return deadline + nanos;
+            }
+        });
+    }
+
+    /**
+     * Fires a trigger every day at the given time of the day. A trigger that is already scheduled is rescheduled.
+     * @param trigger the trigger
+     * @param time the time of the day
+     */
+    public void scheduleDaily(Trigger trigger, LocalTime time) {
+        schedule(new Entry(trigger, TriggerAssembler.assemble(trigger)) {
+            @Override
+            long next(long deadline) {
+                ZonedDateTime after = toInstant(deadline).atZone(zone);
+                ZonedDateTime next = ZonedDateTime.of(after.toLocalDate(), time, zone);
+                if (!next.isAfter(after))
+                    next = ZonedDateTime.of(after.toLocalDate().plusDays(1), time, zone);
+                return toNanos(next.toInstant());
+            }
+        });
+    }
+
+    private synchronized void schedule(Entry entry) {
+        Entry previous = entries.put(entry.trigger, entry);
+        if (previous != null)
+            previous.cancelled = true;
+        enqueue(entry, entry.next(wheel.getTime()));
+    }
+
+    /**
+     * Stops firing a trigger
+     * @param trigger the trigger
+     * @return whether the trigger was scheduled
+     */
+    public synchronized boolean cancel(Trigger trigger) {
+        Entry entry = entries.remove(trigger);
+        if (entry == null)
+            return false;
+        entry.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Stops firing all triggers
+     */
+    public synchronized void cancelAll() {
+        entries.values().forEach(entry -> entry.cancelled = true);
+        entries.clear();
+        batches.values().forEach(batch -> batch.timeout.cancel());
+        batches.clear();
+    }
+
+    /**
+     * @return the number of triggers currently scheduled
+     */
+    public synchronized int getScheduled() {
+        return entries.size();
+    }
+
+    /**
+     * @return the timing statistics of this timer
+     */
+    public TimerStatistics getStatistics() {
+        return statistics;
+    }
+
+    /*
+     * Adds an entry to the batch of the tick it is due at, creating that batch if needed
+     */
+    private void enqueue(Entry entry, long deadline) {
+        entry.deadline = deadline;
+        long tickNanos = wheel.getTickNanos();
+        long tick = Math.floorDiv(deadline - origin + tickNanos - 1, tickNanos);
+        Batch batch = batches.get(tick);
+        if (batch == null) {
+            batch = new Batch(tick);
+            long batchDeadline = origin + tick * tickNanos;
+            Batch created = batch;
+            batch.timeout = wheel.schedule(() -> fire(created), batchDeadline - wheel.getTime(), TimeUnit.NANOSECONDS);
+            batches.put(tick, batch);
+        }
+        batch.entries.add(entry);
+    }
+
+    private void fire(Batch batch) {
+        long now = wheel.getTime();
+        long batchDeadline = Long.MAX_VALUE;
+        List<Entry> due = new ArrayList<>(batch.entries.size());
+        synchronized (this) {
+            batches.remove(batch.tick);
+            for (Entry entry : batch.entries) {
+                if (entry.cancelled)
+                    continue;
+                long skipped = 0;
+                if (entry.inFlight) {
+                    skipped++;
+                } else {
+                    entry.inFlight = true;
+                    due.add(entry);
+                    statistics.recordFiring(now - entry.deadline);
+                    batchDeadline = Math.min(batchDeadline, entry.deadline);
+                }
+                long next = entry.next(entry.deadline);
+                while (next <= now) {
+                    next = entry.next(next);
+                    skipped++;
+                }
+                statistics.recordMissed(skipped);
+                enqueue(entry, next);
+            }
+        }
+        if (due.isEmpty())
+            return;
+        statistics.recordBatch(now - batchDeadline);
+        TriggerContext ctx = new TimerContext(toInstant(batchDeadline));
+        if (service == null) {
+            runAll(due, ctx);
+        } else {
+            // Never block on the capacity of the service, which would hold up every other timeout of the wheel
+            service.resume(ctx, () -> runAll(due, ctx)).whenComplete((result, e) -> {
+                // The batch may have been rejected without running at all
+                if (e != null)
+                    due.forEach(entry -> entry.inFlight = false);
+            });
+        }
+    }
+
+    private static boolean runAll(List<Entry> entries, TriggerContext ctx) {
+        boolean success = true;
+        for (Entry entry : entries) {
+            // A failing trigger mustn't keep the others of the batch from running
+            try {
+                success &= entry.run(ctx);
+            } catch (RuntimeException e) {
+                System.err.println("An exception occurred. Stack trace :");
+                e.printStackTrace();
+                success = false;
+            } finally {
+                entry.inFlight = false;
+            }
+        }
+        return success;
+    }
+
+    private Instant toInstant(long nanos) {
+        return wallOrigin.plusNanos(nanos - origin);
+    }
+
+    private long toNanos(Instant instant) {
+        return origin + Duration.between(wallOrigin, instant).toNanos();
+    }
+
+    /**
+     * Stops firing all triggers. The timer wheel and the execution service aren't closed, as they may be shared.
+     */
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private abstract static class Entry {
+        private final Trigger trigger;
+        @Nullable
+        private final CompiledTrigger compiled;
+        private long deadline;
+        private volatile boolean cancelled;
+        /*
+         * Whether a firing of this entry is queued or running. Only set while holding the lock of the timer.
+         */
+        private volatile boolean inFlight;
+
+        Entry(Trigger trigger, @Nullable CompiledTrigger compiled) {
+            this.trigger = trigger;
+            this.compiled = compiled;
+        }
+
+        /**
+         * @param deadline a deadline of this entry
+         * @return the deadline following it
+         */
+        abstract long next(long deadline);
+
+        boolean run(TriggerContext ctx) {
+            if (compiled != null)
+                return compiled.runUnchecked(ctx);
+            List<Statement> items = trigger.getItems();
+            return items.isEmpty() || Statement.runAll(items.get(0), ctx);
+        }
+    }
+
+    private static final class Batch {
+        private final long tick;
+        private final List<Entry> entries = new ArrayList<>();
+        private TimerWheel.Timeout timeout;
+
+        Batch(long tick) {
+            this.tick = tick;
+        }
+    }
+}
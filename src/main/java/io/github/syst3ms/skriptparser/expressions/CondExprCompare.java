@@ -18,6 +18,8 @@ import io.github.syst3ms.skriptparser.util.ClassUtils;
 import io.github.syst3ms.skriptparser.util.StringUtils;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.function.Predicate;
+
 /**
  * A very general condition, it simply compares two values. Usually you can only compare for equality (e.g. text is/isn't &lt;text&gt;),
  * but some values can also be compared using greater than/less than. In that case you can also test for whether an object is between two others.
@@ -188,9 +190,7 @@ public class CondExprCompare extends ConditionalExpression {
     @Override
     public boolean check(TriggerContext ctx) {
         Expression<?> third = this.third;
-        return first.check(
-                ctx,
-            o1 -> second.check(
+        Predicate<Object> matches = o1 -> second.check(
                     ctx,
                 o2 -> {
                     if (third == null) {
@@ -211,8 +211,18 @@ public class CondExprCompare extends ConditionalExpression {
                     );
                 },
                 isNegated()
-            )
-        );
+            );
+        /*
+         * Being between values that must all match is being inside the intersection of the intervals they describe.
+         * When all elements of a range must be inside of it, checking the smallest and the largest one is then enough.
+         */
+        if (third != null && first instanceof ExprRange && !isNegated()
+                && first.isAndList() && second.isAndList() && third.isAndList()) {
+            Object[] extremes = ((ExprRange) first).getExtremes(ctx);
+            if (extremes != null)
+                return Expression.check(extremes, matches, false, true);
+        }
+        return first.check(ctx, matches);
     }
 
     @Override
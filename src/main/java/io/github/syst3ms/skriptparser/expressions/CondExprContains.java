@@ -0,0 +1,85 @@
+package io.github.syst3ms.skriptparser.expressions;
+
+import io.github.syst3ms.skriptparser.Main;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Variable;
+import io.github.syst3ms.skriptparser.lang.base.ConditionalExpression;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import io.github.syst3ms.skriptparser.types.comparisons.Relation;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Check if some values contain all of the given values. When checking a list variable, the elements of the list are
+ * looked up through an index of their values, instead of being compared one by one. Likewise, ranges are only compared
+ * with their endpoints when they can.
+ *
+ * @name Contains
+ * @type CONDITION
+ * @pattern %objects% contain[s] %objects%
+ * @pattern %objects% (does|do)(n't| not) contain %objects%
+ * @since ALPHA
+ * @author Syst3ms
+ */
+public class CondExprContains extends ConditionalExpression {
+    private Expression<?> container;
+    private Expression<?> values;
+
+    static {
+        Main.getMainRegistration().addExpression(
+                CondExprContains.class,
+                Boolean.class,
+                true,
+                2,
+                "%objects% contain[s] %objects%",
+                "%objects% (does|do)(n't| not) contain %objects%"
+        );
+    }
+
+    @Override
+    public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+        container = expressions[0];
+        values = expressions[1];
+        setNegated(matchedPattern == 1);
+        return true;
+    }
+
+    @Override
+    protected boolean check(TriggerContext ctx) {
+        Object[] searched = values.getValues(ctx);
+        if (searched.length == 0)
+            return isNegated();
+        if (container instanceof Variable && !container.isSingle()) {
+            Variable<?> list = (Variable<?>) container;
+            for (Object value : searched) {
+                if (!list.contains(ctx, value))
+                    return isNegated();
+            }
+            return !isNegated();
+        }
+        if (container instanceof ExprRange) {
+            ExprRange range = (ExprRange) container;
+            for (Object value : searched) {
+                if (!range.contains(ctx, value))
+                    return isNegated();
+            }
+            return !isNegated();
+        }
+        Object[] contained = container.getValues(ctx);
+        outer:
+        for (Object value : searched) {
+            for (Object o : contained) {
+                if (Relation.EQUAL.is(Comparators.compare(o, value)))
+                    continue outer;
+            }
+            return isNegated();
+        }
+        return !isNegated();
+    }
+
+    @Override
+    public String toString(@Nullable TriggerContext ctx, boolean debug) {
+        return container.toString(ctx, debug) + (isNegated() ? " doesn't contain " : " contains ") + values.toString(ctx, debug);
+    }
+}
@@ -19,12 +19,14 @@ public class ExprAmount implements Expression<Number> {
     private Expression<Object> valuesList;
 
     static {
-        Main.getMainRegistration().addExpression(
+        Main.getMainRegistration().newExpression(
             ExprAmount.class,
             Number.class,
             true,
             "(amount|number|size) of %objects%"
-        );
+        )
+            .setPure(true)
+            .register();
     }
 
     @SuppressWarnings("unchecked")
@@ -36,7 +38,14 @@ public class ExprAmount implements Expression<Number> {
 
     @Override
     public Number[] getValues(TriggerContext ctx) {
-        return new Number[]{valuesList.getValues(ctx).length};
+        return new Number[]{getSingle(ctx)};
+    }
+
+    @Override
+    public Number getSingle(TriggerContext ctx) {
+        int[] amount = {0};
+        valuesList.forEachValue(ctx, value -> amount[0]++);
+        return amount[0];
     }
 
     @Override
@@ -43,12 +43,14 @@ public class ExprBinaryMathFunctions implements Expression<Number> {
 	private Expression<Number> first, second;
 
 	static {
-		Main.getMainRegistration().addExpression(
+		Main.getMainRegistration().newExpression(
 			ExprBinaryMathFunctions.class,
 			Number.class,
 			true,
 			PATTERNS.getPatterns()
-		);
+		)
+			.setPure(true)
+			.register();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -62,12 +64,19 @@ public class ExprBinaryMathFunctions implements Expression<Number> {
 
 	@Override
 	public Number[] getValues(TriggerContext ctx) {
+		Number result = getSingle(ctx);
+		return result == null ? new Number[0] : new Number[]{result};
+	}
+
+	@Nullable
+	@Override
+	public Number getSingle(TriggerContext ctx) {
 		Number f = first.getSingle(ctx);
 		Number s = second.getSingle(ctx);
 		if (f == null || s == null)
-			return new Number[0];
+			return null;
 		BinaryOperator<Number> operator = PATTERNS.getInfo(pattern);
-		return new Number[]{operator.apply(f, s)};
+		return operator.apply(f, s);
 	}
 
 	@Override
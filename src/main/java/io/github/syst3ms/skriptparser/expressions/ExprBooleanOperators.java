@@ -1,13 +1,32 @@
 package io.github.syst3ms.skriptparser.expressions;
 
 import io.github.syst3ms.skriptparser.Main;
+import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
+import io.github.syst3ms.skriptparser.lang.base.ConditionalExpression;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Basic boolean operators. It is possible to use conditions inside the operators.
+ * Notes :
+ * <ul>
+ *     <li>{@code and} and {@code or} short-circuit : operands are only evaluated until one of them decides the result
+ *     ({@code false} for {@code and}, {@code true} for {@code or}).</li>
+ *     <li>Chains of the same operator, like {@code a and b and c}, are flattened into a single operation, whose
+ *     operands are evaluated in the order that is measured to be the cheapest at runtime. Operands that decide the
+ *     result often and are fast to compute go first.</li>
+ *     <li>Since the evaluation order isn't fixed, a deciding operand always wins, even if another operand has no value.
+ *     Otherwise, the operation only has no value if one of its operands has no value.</li>
+ * </ul>
  *
  * @name Boolean Operators
  * @pattern not %=boolean%
@@ -17,65 +36,188 @@ import org.jetbrains.annotations.Nullable;
  * @author Syst3ms
  */
 public class ExprBooleanOperators implements Expression<Boolean> {
+    /*
+     * One out of SAMPLE_RATE evaluations, picked at random, is timed, and the evaluation order is revised every
+     * REORDER_INTERVAL sampled evaluations, which must be a power of two. Evaluations that aren't sampled write nothing,
+     * so that concurrent triggers evaluating the same operation don't contend over its statistics.
+     */
+    private static final int SAMPLE_RATE = 16;
+    private static final int REORDER_INTERVAL = 64;
+
     private int pattern;
-    private Expression<Boolean> first;
-    @Nullable
-    private Expression<Boolean> second;
+    private Expression<Boolean>[] operands;
+    /*
+     * The indices of the operands, in evaluation order
+     */
+    private volatile int[] order;
+    /*
+     * Statistics gathered on sampled evaluations. These are deliberately unsynchronized : they only drive a heuristic
+     * and losing an update now and then doesn't matter.
+     */
+    private long[] samples, decisions, nanos;
+    private int sampledEvaluations;
 
     static {
-        Main.getMainRegistration().addExpression(
+        Main.getMainRegistration().newExpression(
                 ExprBooleanOperators.class,
                 Boolean.class,
                 true,
-                3,
                 "not %=boolean%",
                 "%=boolean% or %=boolean%",
                 "%=boolean% and %=boolean%"
-        );
+        )
+                .setPure(true)
+                .setPriority(3)
+                .register();
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
         pattern = matchedPattern;
-        first = (Expression<Boolean>) expressions[0];
-        if (expressions.length > 1) {
-            second = (Expression<Boolean>) expressions[1];
+        if (pattern == 0) {
+            setOperands((Expression<Boolean>[]) new Expression<?>[]{expressions[0]});
+            return true;
         }
+        List<Expression<Boolean>> flattened = new ArrayList<>();
+        for (Expression<?> expression : expressions) {
+            if (expression instanceof ExprBooleanOperators && ((ExprBooleanOperators) expression).pattern == pattern) {
+                Collections.addAll(flattened, ((ExprBooleanOperators) expression).operands);
+            } else {
+                flattened.add((Expression<Boolean>) expression);
+            }
+        }
+        setOperands((Expression<Boolean>[]) flattened.toArray(new Expression<?>[0]));
         return true;
     }
 
+    private void setOperands(Expression<Boolean>[] operands) {
+        this.operands = operands;
+        int[] order = new int[operands.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        this.order = order;
+        samples = new long[operands.length];
+        decisions = new long[operands.length];
+        nanos = new long[operands.length];
+    }
+
     @Override
     public Boolean[] getValues(TriggerContext ctx) {
-        assert second != null || pattern == 0;
-        Boolean f = first.getSingle(ctx);
-        if (f == null)
-            return new Boolean[0];
+        Boolean result = getSingle(ctx);
+        return result == null ? new Boolean[0] : new Boolean[]{result};
+    }
+
+    @Nullable
+    @Override
+    public Boolean getSingle(TriggerContext ctx) {
         if (pattern == 0) {
-            return new Boolean[]{!f};
-        } else {
-            Boolean s = second.getSingle(ctx);
-            if (s == null)
-                return new Boolean[0];
-            if (pattern == 1) {
-                return new Boolean[]{f || s};
+            Boolean b = operands[0].getSingle(ctx);
+            return b == null ? null : !b;
+        }
+        boolean decisive = pattern == 1; // true decides an "or", false decides an "and"
+        boolean sampled = ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+        if (sampled && (++sampledEvaluations & (REORDER_INTERVAL - 1)) == 0)
+            reorder();
+        boolean unknown = false;
+        for (int i : order) {
+            Boolean b;
+            if (sampled) {
+                long start = System.nanoTime();
+                b = operands[i].getSingle(ctx);
+                nanos[i] += System.nanoTime() - start;
+                samples[i]++;
+                if (b != null && b == decisive)
+                    decisions[i]++;
             } else {
-                return new Boolean[]{f && s};
+                b = operands[i].getSingle(ctx);
+            }
+            if (b == null) {
+                unknown = true;
+            } else if (b == decisive) {
+                return decisive;
             }
         }
+        return unknown ? null : !decisive;
     }
 
-    @Override
-    public String toString(@Nullable TriggerContext ctx, boolean debug) {
-        if (pattern == 0) {
-            return "not " + first.toString(ctx, debug);
-        } else {
-            assert second != null;
-            if (pattern == 1) {
-                return first.toString(ctx, debug) + " or " + second.toString(ctx, debug);
+    /**
+     * Sorts the operands by their average cost divided by their probability of deciding the result, which minimizes
+     * the expected cost of an evaluation. Operands that were never reached keep their relative order, after the others.
+     * The statistics are then halved, so that the order keeps up with changes in behaviour.
+     */
+    private void reorder() {
+        int n = operands.length;
+        double[] scores = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (samples[i] == 0) {
+                scores[i] = Double.POSITIVE_INFINITY;
             } else {
-                return first.toString(ctx, debug) + " and " + second.toString(ctx, debug);
+                double cost = (double) nanos[i] / samples[i];
+                double probability = (decisions[i] + 1.0) / (samples[i] + 2.0);
+                scores[i] = cost / probability;
+            }
+            samples[i] >>= 1;
+            decisions[i] >>= 1;
+            nanos[i] >>= 1;
+        }
+        Integer[] sorted = new Integer[n];
+        int[] current = order;
+        for (int i = 0; i < n; i++)
+            sorted[i] = current[i];
+        Arrays.sort(sorted, (a, b) -> Double.compare(scores[a], scores[b])); // Stable, so ties keep their order
+        int[] newOrder = new int[n];
+        for (int i = 0; i < n; i++)
+            newOrder[i] = sorted[i];
+        order = newOrder;
+    }
+
+    /**
+     * Removes operands that can't change the result ({@code true} in an {@code and}, {@code false} in an {@code or}),
+     * and reduces the whole operation to a literal if one of the operands is a deciding literal.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Expression<Boolean> simplify() {
+        if (pattern == 0)
+            return this;
+        boolean decisive = pattern == 1;
+        List<Expression<Boolean>> remaining = new ArrayList<>();
+        for (Expression<Boolean> operand : operands) {
+            Boolean constant = getConstant(operand);
+            if (constant == null) {
+                remaining.add(operand);
+            } else if (constant == decisive) {
+                return new SimpleLiteral<>(Boolean.class, decisive);
             }
         }
+        if (remaining.isEmpty()) {
+            return new SimpleLiteral<>(Boolean.class, !decisive);
+        } else if (remaining.size() == 1 && !(remaining.get(0) instanceof ConditionalExpression)) {
+            return remaining.get(0);
+        } else if (remaining.size() > 1 && remaining.size() < operands.length) {
+            setOperands((Expression<Boolean>[]) remaining.toArray(new Expression<?>[0]));
+        }
+        return this;
+    }
+
+    @Nullable
+    private static Boolean getConstant(Expression<Boolean> expression) {
+        if (!(expression instanceof Literal) || !expression.isAndList())
+            return null;
+        return ((Literal<Boolean>) expression).getSingle();
+    }
+
+    @Override
+    public String toString(@Nullable TriggerContext ctx, boolean debug) {
+        if (pattern == 0)
+            return "not " + operands[0].toString(ctx, debug);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < operands.length; i++) {
+            if (i > 0)
+                sb.append(pattern == 1 ? " or " : " and ");
+            sb.append(operands[i].toString(ctx, debug));
+        }
+        return sb.toString();
     }
 }
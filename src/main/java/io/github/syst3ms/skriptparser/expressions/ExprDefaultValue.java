@@ -3,6 +3,7 @@ package io.github.syst3ms.skriptparser.expressions;
 import io.github.syst3ms.skriptparser.Main;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
 
 import org.jetbrains.annotations.Nullable;
@@ -21,14 +22,16 @@ public class ExprDefaultValue implements Expression<Object> {
     private Expression<Object> firstValue, secondValue;
 
     static {
-        Main.getMainRegistration().addExpression(
+        Main.getMainRegistration().newExpression(
             ExprDefaultValue.class,
             Object.class,
             false,
-            3,
             "%object% \\|\\| %object%",
             "%object% (otherwise|?) %object%"
-        );
+        )
+            .setPure(true)
+            .setPriority(3)
+            .register();
     }
 
     @SuppressWarnings("unchecked")
@@ -41,15 +44,22 @@ public class ExprDefaultValue implements Expression<Object> {
 
     @Override
     public Object[] getValues(TriggerContext ctx) {
+        Object value = getSingle(ctx);
+        return value == null ? new Object[0] : new Object[]{value};
+    }
+
+    @Nullable
+    @Override
+    public Object getSingle(TriggerContext ctx) {
         Object first = firstValue.getSingle(ctx);
-        Object second = secondValue.getSingle(ctx);
-        if (first != null) {
-            return new Object[]{first};
-        } else if (second != null) {
-            return new Object[]{second};
-        } else {
-            return new Object[0];
-        }
+        return first != null ? first : secondValue.getSingle(ctx);
+    }
+
+    @Override
+    public Expression<?> simplify() {
+        if (firstValue instanceof Literal && firstValue.isAndList() && ((Literal<Object>) firstValue).getSingle() != null)
+            return firstValue;
+        return this;
     }
 
     @Override
@@ -19,13 +19,15 @@ import java.util.function.Function;
 public class ExprLength extends PropertyExpression<Number, String> {
 
     static {
-        Main.getMainRegistration().addPropertyExpression(
+        Main.getMainRegistration().newPropertyExpression(
                 ExprLength.class,
                 Number.class,
                 true,
                 "string",
                 "length"
-        );
+        )
+                .setPure(true)
+                .register();
     }
 
     @Override
@@ -16,7 +16,6 @@ import io.github.syst3ms.skriptparser.util.Pair;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Array;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -116,21 +115,25 @@ public class ExprLoopValue implements Expression<Object> {
 
 	@Override
 	public Object[] getValues(TriggerContext ctx) {
+		Object value = getSingle(ctx);
+		if (value == null && isVariableLoop)
+			return new Object[0];
 		Object[] one = (Object[]) Array.newInstance(getReturnType(), 1);
+		one[0] = value;
+		return one;
+	}
+
+	@Nullable
+	@Override
+	public Object getSingle(TriggerContext ctx) {
 		if (isVariableLoop) {
 			@SuppressWarnings("unchecked")
 			final Pair<String, Object> current = (Pair<String, Object>) loop.getCurrent(ctx);
-			if (current == null) {
-				return new Object[0];
-			}
-			if (isIndex) {
-				return new String[] {current.getFirst()};
-			}
-			one[0] = current.getSecond();
-			return one;
+			if (current == null)
+				return null;
+			return isIndex ? current.getFirst() : current.getSecond();
 		}
-		one[0] = loop.getCurrent(ctx);
-		return one;
+		return loop.getCurrent(ctx);
 	}
 
 	@Override
@@ -139,10 +142,10 @@ public class ExprLoopValue implements Expression<Object> {
 			return name;
 		if (isVariableLoop) {
 			@SuppressWarnings("unchecked")
-			final Map.Entry<String, Object> current = (Map.Entry<String, Object>) loop.getCurrent(ctx);
+			final Pair<String, Object> current = (Pair<String, Object>) loop.getCurrent(ctx);
 			if (current == null)
 				return TypeManager.NULL_REPRESENTATION;
-			return isIndex ? "\"" + current.getKey() + "\"" : TypeManager.toString(current.getValue());
+			return isIndex ? "\"" + current.getFirst() + "\"" : TypeManager.toString(current.getSecond());
 		}
 		return TypeManager.toString(loop.getCurrent(ctx));
 	}
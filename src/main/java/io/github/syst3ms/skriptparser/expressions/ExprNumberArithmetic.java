@@ -3,7 +3,6 @@ package io.github.syst3ms.skriptparser.expressions;
 import io.github.syst3ms.skriptparser.Main;
 import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.lang.Literal;
-import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
@@ -273,13 +272,15 @@ public class ExprNumberArithmetic implements Expression<Number> {
     );
 
     static {
-        Main.getMainRegistration().addExpression(
+        Main.getMainRegistration().newExpression(
             ExprNumberArithmetic.class,
             Number.class,
             true,
-            3,
             PATTERNS.getPatterns()
-        );
+        )
+            .setPure(true)
+            .setPriority(3)
+            .register();
     }
 
     private Expression<? extends Number> first, second;
@@ -303,12 +304,17 @@ public class ExprNumberArithmetic implements Expression<Number> {
 
     @Override
     public Number[] getValues(TriggerContext ctx) {
+        return new Number[]{getSingle(ctx)};
+    }
+
+    @Override
+    public Number getSingle(TriggerContext ctx) {
         Number n1 = first.getSingle(ctx), n2 = second.getSingle(ctx);
         if (n1 == null)
             n1 = 0;
         if (n2 == null)
             n2 = 0;
-        return new Number[]{op.calculate(n1, n2)};
+        return op.calculate(n1, n2);
     }
 
     @Override
@@ -316,11 +322,4 @@ public class ExprNumberArithmetic implements Expression<Number> {
         return first.toString(ctx, debug) + " " + op + " " + second.toString(ctx, debug);
     }
 
-    @Override
-    public Expression<? extends Number> simplify() {
-        if (first instanceof Literal && second instanceof Literal)
-            return new SimpleLiteral<>(Number.class, getValues(TriggerContext.DUMMY));
-        return this;
-    }
-
 }
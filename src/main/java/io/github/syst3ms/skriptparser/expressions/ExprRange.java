@@ -9,21 +9,25 @@ import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import io.github.syst3ms.skriptparser.types.comparisons.Comparator;
 import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
 import io.github.syst3ms.skriptparser.types.comparisons.Relation;
+import io.github.syst3ms.skriptparser.types.ranges.IndexedRange;
 import io.github.syst3ms.skriptparser.types.ranges.RangeInfo;
 import io.github.syst3ms.skriptparser.types.ranges.Ranges;
 import io.github.syst3ms.skriptparser.util.ClassUtils;
 import io.github.syst3ms.skriptparser.util.CollectionUtils;
 import org.jetbrains.annotations.Nullable;
 
-import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.function.BiFunction;
-import java.util.stream.IntStream;
-import java.util.stream.LongStream;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Returns a range of values between two endpoints. Types supported by default are integers and characters (length 1 strings).
+ * Ranges registered in their {@linkplain IndexedRange lazy form} are never stored as a whole when they are looped,
+ * counted or compared, and checking whether they contain a value, or whether they lie between two others, only looks at
+ * their endpoints.
  *
  * @name Range
  * @pattern range from %object% to %object%
@@ -68,13 +72,101 @@ public class ExprRange implements Expression<Object> {
             return new Object[0];
         }
         // This is safe... right ?
-        if (comparator != null && ((Comparator<Object, Object>) comparator).apply(f, t).is(Relation.GREATER)) {
+        if (isDescending(f, t)) {
             return CollectionUtils.reverseArray((Object[]) ((BiFunction<? super Object, ? super Object, ?>) this.range.getFunction()).apply(t, f));
         } else {
             return (Object[]) ((BiFunction<? super Object, ? super Object, ?>) this.range.getFunction()).apply(f, t);
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<?> iterator(TriggerContext ctx) {
+        IndexedRange<Object, Object> indexed = (IndexedRange<Object, Object>) range.getIndexedRange();
+        if (indexed == null)
+            return Expression.super.iterator(ctx);
+        Object f = from.getSingle(ctx);
+        Object t = to.getSingle(ctx);
+        if (f == null || t == null)
+            return Collections.emptyIterator();
+        boolean descending = isDescending(f, t);
+        Object lower = descending ? t : f;
+        long size = indexed.size(lower, descending ? f : t);
+        return new Iterator<Object>() {
+            private long i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public Object next() {
+                if (i >= size)
+                    throw new NoSuchElementException();
+                long index = i++;
+                return indexed.get(lower, descending ? size - 1 - index : index);
+            }
+        };
+    }
+
+    @Override
+    public void forEachValue(TriggerContext ctx, Consumer<? super Object> action) {
+        iterator(ctx).forEachRemaining(action);
+    }
+
+    @Override
+    public boolean check(TriggerContext ctx, Predicate<? super Object> predicate, boolean negated) {
+        return Expression.check(iterator(ctx), predicate, negated, isAndList());
+    }
+
+    /**
+     * Checks whether this range contains a value. Ranges registered in their {@linkplain IndexedRange lazy form} only
+     * compare it with their endpoints when they can.
+     * @param ctx the event
+     * @param value the value
+     * @return whether one of the elements of this range is equal to the value
+     */
+    @SuppressWarnings("unchecked")
+    public boolean contains(TriggerContext ctx, Object value) {
+        IndexedRange<Object, Object> indexed = (IndexedRange<Object, Object>) range.getIndexedRange();
+        if (indexed == null)
+            return Expression.check(getValues(ctx), o -> Relation.EQUAL.is(Comparators.compare(o, value)), false, false);
+        Object f = from.getSingle(ctx);
+        Object t = to.getSingle(ctx);
+        if (f == null || t == null)
+            return false;
+        return isDescending(f, t) ? indexed.contains(t, f, value) : indexed.contains(f, t, value);
+    }
+
+    /**
+     * @param ctx the event
+     * @return the smallest and the largest element of this range, which bound all of its other elements, or
+     * {@code null} if this range is empty or isn't registered in its {@linkplain IndexedRange lazy form}
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public Object[] getExtremes(TriggerContext ctx) {
+        IndexedRange<Object, Object> indexed = (IndexedRange<Object, Object>) range.getIndexedRange();
+        if (indexed == null)
+            return null;
+        Object f = from.getSingle(ctx);
+        Object t = to.getSingle(ctx);
+        if (f == null || t == null)
+            return null;
+        boolean descending = isDescending(f, t);
+        Object lower = descending ? t : f;
+        long size = indexed.size(lower, descending ? f : t);
+        if (size == 0)
+            return null;
+        return new Object[]{indexed.get(lower, 0), indexed.get(lower, size - 1)};
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isDescending(Object f, Object t) {
+        return comparator != null && ((Comparator<Object, Object>) comparator).apply(f, t).is(Relation.GREATER);
+    }
+
     @Override
     public Class<?> getReturnType() {
         return range.getTo();
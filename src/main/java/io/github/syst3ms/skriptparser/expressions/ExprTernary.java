@@ -3,9 +3,12 @@ package io.github.syst3ms.skriptparser.expressions;
 import io.github.syst3ms.skriptparser.Main;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.function.Consumer;
+
 /**
  * Returns a value depending of a boolean.
  *
@@ -21,14 +24,16 @@ public class ExprTernary implements Expression<Object> {
     private Expression<Object> firstValue, secondValue;
 
     static {
-        Main.getMainRegistration().addExpression(
+        Main.getMainRegistration().newExpression(
             ExprTernary.class,
             Object.class,
             false,
-            2,
             "%objects% if %=boolean%[,] (otherwise|else) %objects%",
             "%=boolean% ? %objects% : %objects%"
-        );
+        )
+            .setPure(true)
+            .setPriority(2)
+            .register();
     }
 
     @SuppressWarnings("unchecked")
@@ -43,14 +48,26 @@ public class ExprTernary implements Expression<Object> {
     @Override
     public Object[] getValues(TriggerContext ctx) {
         Boolean check = valueToCheck.getSingle(ctx);
-        Object[] first = firstValue.getValues(ctx);
-        Object[] second = secondValue.getValues(ctx);
         if (check == null)
             return new Object[0];
-        Object[] result = check ? first : second;
-        if (result == null)
-            return new Object[0];
-        return result;
+        return check ? firstValue.getValues(ctx) : secondValue.getValues(ctx);
+    }
+
+    @Override
+    public void forEachValue(TriggerContext ctx, Consumer<? super Object> action) {
+        Boolean check = valueToCheck.getSingle(ctx);
+        if (check != null)
+            (check ? firstValue : secondValue).forEachValue(ctx, action);
+    }
+
+    @Override
+    public Expression<?> simplify() {
+        if (valueToCheck instanceof Literal && valueToCheck.isAndList()) {
+            Boolean check = ((Literal<Boolean>) valueToCheck).getSingle();
+            if (check != null)
+                return check ? firstValue : secondValue;
+        }
+        return this;
     }
 
     @Override
@@ -62,12 +62,14 @@ public class ExprUnaryMathFunctions implements Expression<Number> {
 	private Expression<Number> number;
 
 	static {
-		Main.getMainRegistration().addExpression(
+		Main.getMainRegistration().newExpression(
 			ExprUnaryMathFunctions.class,
 			Number.class,
 			true,
 			PATTERNS.getPatterns()
-		);
+		)
+			.setPure(true)
+			.register();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -80,10 +82,17 @@ public class ExprUnaryMathFunctions implements Expression<Number> {
 
 	@Override
 	public Number[] getValues(TriggerContext ctx) {
+		Number result = getSingle(ctx);
+		return result == null ? new Number[0] : new Number[]{result};
+	}
+
+	@Nullable
+	@Override
+	public Number getSingle(TriggerContext ctx) {
 		Number num = number.getSingle(ctx);
 		if (num == null)
-			return new Number[0];
-		return new Number[]{PATTERNS.getInfo(pattern).apply(num)};
+			return null;
+		return PATTERNS.getInfo(pattern).apply(num);
 	}
 
 	@Override
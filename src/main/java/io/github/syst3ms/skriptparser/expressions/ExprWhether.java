@@ -18,12 +18,14 @@ public class ExprWhether implements Expression<Boolean> {
     private Expression<Boolean> condition;
 
     static {
-        Main.getMainRegistration().addExpression(
+        Main.getMainRegistration().newExpression(
                 ExprWhether.class,
                 Boolean.class,
                 true,
                 "whether %~=boolean%"
-        );
+        )
+                .setPure(true)
+                .register();
     }
 
     @SuppressWarnings("unchecked")
@@ -38,6 +40,12 @@ public class ExprWhether implements Expression<Boolean> {
         return condition.getValues(ctx);
     }
 
+    @Nullable
+    @Override
+    public Boolean getSingle(TriggerContext ctx) {
+        return condition.getSingle(ctx);
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         return "whether " + condition.toString(ctx, debug);
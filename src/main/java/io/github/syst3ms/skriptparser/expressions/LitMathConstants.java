@@ -40,13 +40,26 @@ public class LitMathConstants implements Expression<Number> {
     );
     private int pattern;
 
+    /*
+     * Holders, so that each constant is only computed the first time it is used
+     */
+    private static final class Pi {
+        static final BigDecimal VALUE = BigDecimalMath.pi(BigDecimalMath.DEFAULT_CONTEXT);
+    }
+
+    private static final class E {
+        static final BigDecimal VALUE = BigDecimalMath.e(BigDecimalMath.DEFAULT_CONTEXT);
+    }
+
     static {
-        Main.getMainRegistration().addExpression(
+        Main.getMainRegistration().newExpression(
                 LitMathConstants.class,
                 Number.class,
                 true,
                 "(0:pi|1:e|2:phi)"
-        );
+        )
+                .setPure(true)
+                .register();
     }
 
     @Override
@@ -58,9 +71,9 @@ public class LitMathConstants implements Expression<Number> {
     @Override
     public Number[] getValues(TriggerContext ctx) {
         if (pattern == 0) {
-            return new Number[]{BigDecimalMath.pi(BigDecimalMath.DEFAULT_CONTEXT)};
+            return new Number[]{Pi.VALUE};
         } else if (pattern == 1) {
-            return new Number[]{BigDecimalMath.e(BigDecimalMath.DEFAULT_CONTEXT)};
+            return new Number[]{E.VALUE};
         } else if (pattern == 2) {
             return new Number[]{PHI};
         } else {
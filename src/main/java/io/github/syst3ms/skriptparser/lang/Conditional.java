@@ -53,6 +53,23 @@ public class Conditional extends CodeSection {
         }
     }
 
+    /**
+     * @return the condition of this Conditional, or {@code null} if this is an "else" clause
+     */
+    @Nullable
+    public Expression<Boolean> getCondition() {
+        return condition;
+    }
+
+    /**
+     * @return the Conditional this Conditional falls back to when its condition verifies to false, or {@code null}
+     * if there isn't any
+     */
+    @Nullable
+    public Conditional getFallingClause() {
+        return fallingClause;
+    }
+
     /**
      * @param conditional the Conditional object this Conditional falls back to when it's condition verifies to
      *                    false. Setting this to an "if" Conditional may cause unexpected/confusing behaviour.
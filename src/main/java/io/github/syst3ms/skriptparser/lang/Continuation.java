@@ -0,0 +1,58 @@
+package io.github.syst3ms.skriptparser.lang;
+
+/**
+ * The rest of a suspended execution : the {@link Statement} to resume at, along with the context and the
+ * {@link ExecutionFrame} of the execution.
+ * <br>
+ * A statement suspends an execution by creating a continuation in {@link Statement#walk(TriggerContext)}, handing it
+ * over to whatever will resume it, and returning {@code null} so that {@link Statement#runAll(Statement, TriggerContext)}
+ * stops. Nothing but these few objects is kept while the execution is suspended.
+ */
+public final class Continuation {
+    private final Statement next;
+    private final TriggerContext context;
+    private final ExecutionFrame frame;
+
+    /**
+     * Suspends the {@linkplain ExecutionFrame#current() current execution}
+     * @param next the statement to resume at
+     * @param context the context of the execution
+     * @throws IllegalStateException if there is no execution running on this thread
+     */
+    public Continuation(Statement next, TriggerContext context) {
+        ExecutionFrame frame = ExecutionFrame.current();
+        if (frame == null)
+            throw new IllegalStateException("There is no execution to suspend");
+        this.next = next;
+        this.context = context;
+        this.frame = frame;
+    }
+
+    /**
+     * Resumes the execution on the calling thread, until it completes or is suspended again. A continuation must only be
+     * resumed once.
+     * @return {@code true} if the code ran normally, and {@code false} if any exception occurred
+     */
+    public boolean resume() {
+        ExecutionFrame previous = ExecutionFrame.swap(frame);
+        try {
+            return Statement.runInCurrentFrame(next, context);
+        } finally {
+            ExecutionFrame.swap(previous);
+        }
+    }
+
+    /**
+     * @return the statement the execution resumes at
+     */
+    public Statement getNext() {
+        return next;
+    }
+
+    /**
+     * @return the context of the execution
+     */
+    public TriggerContext getContext() {
+        return context;
+    }
+}
@@ -6,11 +6,36 @@ package io.github.syst3ms.skriptparser.lang;
  * @see Statement
  */
 public abstract class Effect extends Statement {
+    private static final ClassValue<Boolean> OVERRIDES_RUN = overriding(Effect.class, "run");
+
     protected abstract void execute(TriggerContext ctx);
 
+    /**
+     * Executes this effect for several contexts at once, when they are run as a batch by
+     * {@link Statement#runAll(Statement, TriggerContext[])}. By default, this executes it for each context in turn, but
+     * effects can override it to share work between the contexts, like evaluating
+     * {@linkplain Literal#isLiteral(Expression) literal} arguments only once.
+     * <br>
+     * This is never called for effects inside of a {@link Loop}, as the contexts don't share the same
+     * {@link ExecutionFrame}.
+     * @param contexts the contexts, in order
+     */
+    protected void execute(TriggerContext[] contexts) {
+        for (TriggerContext ctx : contexts)
+            execute(ctx);
+    }
+
     @Override
     public boolean run(TriggerContext ctx) {
         execute(ctx);
         return true;
     }
+
+    /**
+     * @return whether the class of this effect, or one of its superclasses, overrides {@link #run(TriggerContext)},
+     * in which case it doesn't simply {@linkplain #execute(TriggerContext) execute}
+     */
+    public final boolean overridesRun() {
+        return OVERRIDES_RUN.get(getClass());
+    }
 }
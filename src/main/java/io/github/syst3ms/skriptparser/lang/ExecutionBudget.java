@@ -0,0 +1,154 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.file.FileElement;
+import io.github.syst3ms.skriptparser.parsing.BudgetExceededException;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how long a single execution of a {@link Trigger} may run without interruption, both in number of statements
+ * and in time, so that a script stuck in a {@link While} loop or running a huge {@link Loop} can't hold a thread forever.
+ * <br>
+ * The statements run by an execution are counted in its {@link ExecutionFrame}, and the time is only read every few
+ * statements, so that checking the budget stays cheap. Both are counted from the last time the execution started or
+ * was resumed : time spent suspended doesn't count. Once the budget is exceeded, the execution is either aborted, or
+ * yields : it is suspended, and resumed as soon as possible by the {@linkplain io.github.syst3ms.skriptparser.execution.Scheduler#getDefault() default scheduler},
+ * which lets other executions run in the meantime.
+ * <br>
+ * A budget can be shared between many triggers, and counts how many of their executions exceeded it.
+ */
+public final class ExecutionBudget {
+    /**
+     * A budget that can't be exceeded
+     */
+    public static final ExecutionBudget UNLIMITED = new ExecutionBudget(Long.MAX_VALUE, Long.MAX_VALUE, TimeUnit.NANOSECONDS, Action.ABORT);
+
+    private static volatile ExecutionBudget defaultBudget = UNLIMITED;
+
+    private final long maxStatements;
+    private final long maxNanos;
+    private final Action action;
+    private final LongAdder aborted = new LongAdder();
+    private final LongAdder yielded = new LongAdder();
+
+    /**
+     * @param maxStatements the maximum number of statements an execution may run without interruption
+     * @param maxTime the maximum time an execution may run without interruption
+     * @param unit the unit of the maximum time
+     * @param action what to do with executions exceeding this budget
+     */
+    public ExecutionBudget(long maxStatements, long maxTime, TimeUnit unit, Action action) {
+        if (maxStatements <= 0 || maxTime <= 0)
+            throw new IllegalArgumentException("The maximum number of statements and the maximum time must be positive");
+        this.maxStatements = maxStatements;
+        this.maxNanos = unit.toNanos(maxTime);
+        this.action = action;
+    }
+
+    /**
+     * @return the budget of triggers that don't have one of their own, which is {@link #UNLIMITED} unless changed
+     */
+    public static ExecutionBudget getDefault() {
+        return defaultBudget;
+    }
+
+    /**
+     * @param budget the budget of triggers that don't have one of their own
+     */
+    public static void setDefault(ExecutionBudget budget) {
+        defaultBudget = budget;
+    }
+
+    /**
+     * @return the maximum number of statements an execution may run without interruption
+     */
+    public long getMaxStatements() {
+        return maxStatements;
+    }
+
+    /**
+     * @return the maximum time an execution may run without interruption, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @return what happens to executions exceeding this budget
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * @return whether this budget has a time limit
+     */
+    boolean isTimed() {
+        return maxNanos != Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the number of executions that were aborted because they exceeded this budget
+     */
+    public long getAborted() {
+        return aborted.sum();
+    }
+
+    /**
+     * @return the number of times an execution yielded because it exceeded this budget
+     */
+    public long getYielded() {
+        return yielded.sum();
+    }
+
+    /**
+     * Records that an execution exceeded this budget. Aborted executions are also reported on the error output. This is
+     * called by whatever runs the code.
+     * @param trigger the trigger being run, or {@code null} if the code isn't part of one
+     * @param at the statement that would have exceeded the budget, or {@code null} if it isn't known
+     * @param exception the exception that was thrown when the budget was exceeded
+     * @param yielding whether the execution yields rather than being aborted
+     */
+    public void recordExceeded(@Nullable Trigger trigger, @Nullable Statement at, BudgetExceededException exception, boolean yielding) {
+        if (yielding) {
+            yielded.increment();
+            return;
+        }
+        aborted.increment();
+        System.err.println(
+                (trigger == null ? "Some code" : "The trigger '" + trigger.toString(null, false) + "'")
+                + " was aborted, as it exceeded its execution budget after " + exception.getStatements() + " statements and "
+                + TimeUnit.NANOSECONDS.toMillis(exception.getNanos()) + "ms"
+                + (at == null ? "" : ", at " + locate(at))
+        );
+    }
+
+    private static String locate(Statement statement) {
+        FileElement element = statement.getFileElement();
+        return element != null
+                ? element.getFileName() + ":" + element.getLine()
+                : "'" + statement.toString(null, false) + "'";
+    }
+
+    @Override
+    public String toString() {
+        return this == UNLIMITED ? "unlimited" : maxStatements + " statements, " + maxNanos + "ns, " + action.name().toLowerCase();
+    }
+
+    /**
+     * What happens to an execution exceeding its budget
+     */
+    public enum Action {
+        /**
+         * The execution stops, as if an exception had occurred
+         */
+        ABORT,
+        /**
+         * The execution is suspended, and resumed as soon as possible with a new budget. Only interpreted executions can
+         * yield : triggers with such a budget aren't compiled.
+         */
+        YIELD
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.parsing.BudgetExceededException;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * The state of a single execution of some code, like the values and iterators of the {@link Loop loops} being run.
+ * <br>
+ * Syntax elements are shared between all executions of a trigger, so they can't hold any state specific to one
+ * execution. Instead, every call to {@link Statement#runAll(Statement, TriggerContext)} {@linkplain #enter() enters}
+ * a new frame, which is bound to the current thread until it is {@linkplain #exit() exited}. This allows the same
+ * trigger to be run on multiple threads at once, or recursively on the same thread. A frame outlives its execution
+ * when the execution is suspended, in which case it is carried by a {@link Continuation} and entered again, possibly
+ * on another thread, when the execution resumes.
+ * <br>
+ * Every loop is assigned a slot when it is loaded, which is its nesting depth among loops : two loops with the same
+ * slot can never be running at the same time in a given execution.
+ * <br>
+ * A frame also counts the statements run by its execution, which are {@linkplain #charge(int) charged} against its
+ * {@link ExecutionBudget}.
+ */
+public final class ExecutionFrame {
+    private static final ThreadLocal<ExecutionFrame> CURRENT = new ThreadLocal<>();
+    /*
+     * The number of statements between two checks of the time
+     */
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    @Nullable
+    private ExecutionFrame previous;
+    private Object[] values = new Object[4];
+    private Iterator<?>[] iterators = new Iterator<?>[4];
+    private ExecutionBudget budget = ExecutionBudget.UNLIMITED;
+    private long statements;
+    private long nextTimeCheck = Long.MAX_VALUE;
+    private long sliceStart;
+
+    ExecutionFrame() {}
+
+    /**
+     * @return the frame of the execution currently running on this thread, or {@code null} if there is none
+     */
+    @Nullable
+    public static ExecutionFrame current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts a new execution on this thread. Every call to this method must be followed by a call to {@link #exit()},
+     * typically in a {@code finally} block.
+     * @return the new frame
+     */
+    public static ExecutionFrame enter() {
+        ExecutionFrame frame = new ExecutionFrame();
+        frame.previous = swap(frame);
+        return frame;
+    }
+
+    /**
+     * Makes the given frame current on this thread, without linking it to the frame that was current before, like when
+     * resuming a suspended execution
+     * @param frame the new current frame, or {@code null} for none
+     * @return the frame that was current before
+     */
+    @Nullable
+    static ExecutionFrame swap(@Nullable ExecutionFrame frame) {
+        ExecutionFrame previous = CURRENT.get();
+        if (frame == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(frame);
+        }
+        return previous;
+    }
+
+    /**
+     * Ends this execution, making the frame that was current before this one was {@linkplain #enter() entered} current
+     * again
+     */
+    public void exit() {
+        swap(previous);
+        previous = null;
+    }
+
+    /**
+     * @return the budget of this execution
+     */
+    public ExecutionBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the budget of this execution, and starts counting against it from now on
+     * @param budget the budget
+     */
+    public void setBudget(ExecutionBudget budget) {
+        this.budget = budget;
+        startSlice();
+    }
+
+    /**
+     * Starts counting statements and time from zero, like when the execution starts or is resumed
+     */
+    void startSlice() {
+        statements = 0;
+        sliceStart = System.nanoTime();
+        nextTimeCheck = budget.isTimed() ? TIME_CHECK_INTERVAL : Long.MAX_VALUE;
+    }
+
+    /**
+     * Counts statements that are about to run against the budget of this execution
+     * @param count the number of statements
+     * @throws BudgetExceededException if running these statements would exceed the budget
+     */
+    public void charge(int count) {
+        long total = statements += count;
+        if (total > budget.getMaxStatements()) {
+            statements -= count;
+            throw new BudgetExceededException(total - count, System.nanoTime() - sliceStart);
+        } else if (total >= nextTimeCheck) {
+            nextTimeCheck = total + TIME_CHECK_INTERVAL;
+            long elapsed = System.nanoTime() - sliceStart;
+            if (elapsed > budget.getMaxNanos()) {
+                statements -= count;
+                throw new BudgetExceededException(total - count, elapsed);
+            }
+        }
+    }
+
+    /**
+     * @param slot the slot of the loop
+     * @return the value the loop is currently at, or {@code null} if it isn't running
+     */
+    @Nullable
+    public Object getValue(int slot) {
+        return slot < values.length ? values[slot] : null;
+    }
+
+    /**
+     * @param slot the slot of the loop
+     * @param value the value the loop is currently at
+     */
+    public void setValue(int slot, @Nullable Object value) {
+        if (slot >= values.length)
+            values = Arrays.copyOf(values, Math.max(slot + 1, values.length * 2));
+        values[slot] = value;
+    }
+
+    /**
+     * @param slot the slot of the loop
+     * @return the iterator of the loop, or {@code null} if it isn't running
+     */
+    @Nullable
+    public Iterator<?> getIterator(int slot) {
+        return slot < iterators.length ? iterators[slot] : null;
+    }
+
+    /**
+     * @param slot the slot of the loop
+     * @param iterator the iterator of the loop, or {@code null} once it is done
+     */
+    public void setIterator(int slot, @Nullable Iterator<?> iterator) {
+        if (slot >= iterators.length)
+            iterators = Arrays.copyOf(iterators, Math.max(slot + 1, iterators.length * 2));
+        iterators[slot] = iterator;
+    }
+}
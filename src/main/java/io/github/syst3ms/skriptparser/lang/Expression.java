@@ -13,6 +13,7 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Iterator;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 /**
@@ -28,6 +29,19 @@ public interface Expression<T> extends SyntaxElement {
      */
     T[] getValues(TriggerContext ctx);
 
+    /**
+     * Passes every value of this Expression to the given action, in the same order as {@link #getValues(TriggerContext)}.
+     * By default, this simply iterates over {@link #getValues(TriggerContext)}, but composite expressions (lists,
+     * converted expressions, list variables...) should override it to hand their values over as they are computed,
+     * without building intermediate arrays.
+     * @param ctx the event
+     * @param action the action to apply on each value
+     */
+    default void forEachValue(TriggerContext ctx, Consumer<? super T> action) {
+        for (T value : getValues(ctx))
+            action.accept(value);
+    }
+
     /*
      * This is staying until we figure out a better way to implement this
      */
@@ -57,7 +71,10 @@ public interface Expression<T> extends SyntaxElement {
     default void change(TriggerContext ctx, Object[] changeWith, ChangeMode changeMode) {}
 
     /**
-     * Gets a single value out of this Expression
+     * Gets a single value out of this Expression. By default, this calls {@link #getValues(TriggerContext)} and reads
+     * the only element of the returned array. Expressions that naturally compute a single value should override this
+     * method, so that evaluating them in a single-valued context (conditions, effect arguments...) doesn't require
+     * allocating an array.
      * @param e the event
      * @return the single value of this Expression, or {@code null} if it has no value
      * @throws SkriptRuntimeException if the expression returns more than one value
@@ -142,8 +159,13 @@ public interface Expression<T> extends SyntaxElement {
         return this;
     }
 
-    /*
-     * Maybe later.
+    /**
+     * Simplifies this expression once it has been successfully parsed and initialized. This is meant for expressions
+     * that can be reduced to one of their arguments depending on the other ones, for example a ternary whose condition
+     * is a literal. Pure expressions whose arguments are all literals don't need this, as they are already replaced by
+     * their values at parse time.
+     * @return an expression equivalent to this one, or this expression itself if it can't be simplified
+     * @see io.github.syst3ms.skriptparser.registration.SkriptRegistration.ExpressionRegistrar#setPure(boolean)
      */
     default Expression<? extends T> simplify() {
         return this;
@@ -195,4 +217,30 @@ public interface Expression<T> extends SyntaxElement {
         return hasElement && invert ^ and;
     }
 
+    /**
+     * Checks the elements returned by an iterator against a given predicate, stopping as soon as the result is known
+     * @param all the iterator over the elements to check
+     * @param predicate the predicate
+     * @param invert whether the result should be inverted
+     * @param and whether all elements should match the predicate, or only one
+     * @param <T> the type of the elements to check
+     * @return whether the elements match the given predicate
+     * @see #check(Object[], Predicate, boolean, boolean)
+     */
+    static <T> boolean check(Iterator<? extends T> all, Predicate<? super T> predicate, boolean invert, boolean and) {
+        boolean hasElement = false;
+        while (all.hasNext()) {
+            T t = all.next();
+            if (t == null)
+                continue;
+            hasElement = true;
+            boolean b = predicate.test(t);
+            if (and && !b)
+                return invert;
+            if (!and && b)
+                return !invert;
+        }
+        return hasElement && invert ^ and;
+    }
+
 }
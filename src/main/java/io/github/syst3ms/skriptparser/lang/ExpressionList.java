@@ -6,6 +6,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * A list of expressions
@@ -74,11 +75,29 @@ public class ExpressionList<T> implements Expression<T> {
 
     @Override
     public T[] getValues(TriggerContext ctx) {
-        List<T> values = new ArrayList<>();
-        for (Expression<? extends T> expression : expressions) {
-            Collections.addAll(values, expression.getValues(ctx));
+        Object[][] parts = new Object[expressions.length][];
+        int size = 0;
+        for (int i = 0; i < expressions.length; i++) {
+            parts[i] = expressions[i].getValues(ctx);
+            size += parts[i].length;
+        }
+        T[] values = (T[]) Array.newInstance(returnType, size);
+        int offset = 0;
+        for (Object[] part : parts) {
+            System.arraycopy(part, 0, values, offset, part.length);
+            offset += part.length;
+        }
+        return values;
+    }
+
+    @Override
+    public void forEachValue(TriggerContext ctx, Consumer<? super T> action) {
+        if (and) {
+            for (Expression<? extends T> expression : expressions)
+                expression.forEachValue(ctx, action);
+        } else {
+            Expression.super.forEachValue(ctx, action);
         }
-        return values.toArray((T[]) Array.newInstance(returnType, values.size()));
     }
 
     @Override
@@ -28,6 +28,13 @@ public class InlineCondition extends Statement {
         return cond != null && cond;
     }
 
+    /**
+     * @return the condition that must be met for execution to go on
+     */
+    public Expression<Boolean> getCondition() {
+        return condition;
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         return condition.toString(ctx, debug);
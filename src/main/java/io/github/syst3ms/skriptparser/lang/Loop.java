@@ -9,16 +9,13 @@ import io.github.syst3ms.skriptparser.parsing.ParserState;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Iterator;
-import java.util.Map;
-import java.util.WeakHashMap;
 
 /**
  * A section that iterates over a collection of elements
  */
 public class Loop extends CodeSection {
 	private Expression<?> expr;
-	private final transient Map<TriggerContext, Object> current = new WeakHashMap<>();
-	private final transient Map<TriggerContext, Iterator<?>> currentIter = new WeakHashMap<>();
+	private int slot;
 	@Nullable
 	private Statement actualNext;
 
@@ -41,28 +38,34 @@ public class Loop extends CodeSection {
 
 	@Override
 	public void loadSection(FileSection section, ParserState parserState, SkriptLogger logger) {
+		slot = 0;
+		for (CodeSection sec : parserState.getCurrentSections()) {
+			if (sec instanceof Loop)
+				slot++;
+		}
 		super.loadSection(section, parserState, logger);
 		super.setNext(this);
 	}
 
 	@Override
     protected Statement walk(TriggerContext ctx) {
-		Iterator<?> iter = currentIter.get(ctx);
+		ExecutionFrame frame = frame();
+		Iterator<?> iter = frame.getIterator(slot);
 		if (iter == null) {
-			iter = expr instanceof Variable ? ((Variable<?>) expr).variablesIterator(ctx) : expr.iterator(ctx);
+			iter = iterator(ctx);
 			if (iter != null) {
 				if (iter.hasNext())
-					currentIter.put(ctx, iter);
+					frame.setIterator(slot, iter);
 				else
 					iter = null;
 			}
 		}
 		if (iter == null || !iter.hasNext()) {
 			if (iter != null)
-				currentIter.remove(ctx); // a loop inside another loop can be called multiple times in the same event
+				frame.setIterator(slot, null); // a loop inside another loop can be called multiple times in the same event
 			return actualNext;
 		} else {
-			current.put(ctx, iter.next());
+			frame.setValue(slot, iter.next());
 			return getFirst();
 		}
 	}
@@ -72,9 +75,39 @@ public class Loop extends CodeSection {
 		return "loop " + expr.toString(ctx, debug);
 	}
 
+	/**
+	 * @param ctx the event
+	 * @return a new iterator over the values this loop goes through : pairs of indices and values for list variables,
+	 * and the values of {@linkplain #getLoopedExpression() the looped expression} otherwise
+	 */
+	@Nullable
+	public Iterator<?> iterator(TriggerContext ctx) {
+		return expr instanceof Variable ? ((Variable<?>) expr).variablesIterator(ctx) : expr.iterator(ctx);
+	}
+
+	/**
+	 * @param ctx the event
+	 * @return the value this loop is currently at in the {@linkplain ExecutionFrame#current() current execution}, or
+	 * {@code null} if it isn't running
+	 */
 	@Nullable
-	public Object getCurrent(TriggerContext e) {
-		return current.get(e);
+	public Object getCurrent(TriggerContext ctx) {
+		ExecutionFrame frame = ExecutionFrame.current();
+		return frame == null ? null : frame.getValue(slot);
+	}
+
+	/**
+	 * @return the slot this loop stores its state in, inside of an {@link ExecutionFrame}
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	private static ExecutionFrame frame() {
+		ExecutionFrame frame = ExecutionFrame.current();
+		if (frame == null)
+			throw new IllegalStateException("A loop can only be run inside of an execution frame");
+		return frame;
 	}
 
     /**
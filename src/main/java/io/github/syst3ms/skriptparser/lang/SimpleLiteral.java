@@ -49,6 +49,20 @@ public class SimpleLiteral<T> implements Literal<T> {
         }
     }
 
+    @Nullable
+    @Override
+    public T getSingle(TriggerContext ctx) {
+        if (values.length == 0) {
+            return null;
+        } else if (!isAndList) {
+            return CollectionUtils.getRandom(values);
+        } else if (values.length > 1) {
+            throw new SkriptRuntimeException("Can't call getSingle on an expression that returns multiple values !");
+        } else {
+            return values[0];
+        }
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         if (isSingle()) {
@@ -1,30 +1,79 @@
 package io.github.syst3ms.skriptparser.lang;
 
+import io.github.syst3ms.skriptparser.execution.Profiler;
+import io.github.syst3ms.skriptparser.execution.Scheduler;
+import io.github.syst3ms.skriptparser.file.FileElement;
+import io.github.syst3ms.skriptparser.parsing.BudgetExceededException;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.Arrays;
+
 /**
  * The base class for any runnable line of code inside of a script.
  * @see CodeSection
  * @see Effect
  */
 public abstract class Statement implements SyntaxElement {
+    /*
+     * Whether a class of statements overrides walk, in which case it can't be run in bulk nor compiled
+     */
+    private static final ClassValue<Boolean> OVERRIDES_WALK = overriding(Statement.class, "walk");
+
     @Nullable
     protected CodeSection parent;
     @Nullable
     protected Statement next;
+    @Nullable
+    private FileElement fileElement;
 
     /**
-     * Runs all code starting at a given point sequentially
+     * Runs all code starting at a given point sequentially, inside of a new {@link ExecutionFrame}, within the
+     * {@link ExecutionBudget} of the trigger it is part of
      * @param start the Statement the method should first run
      * @param context the context
      * @return {@code true} if the code ran normally, and {@code false} if any exception occurred
      */
     public static boolean runAll(Statement start, TriggerContext context) {
+        ExecutionFrame frame = ExecutionFrame.enter();
+        frame.setBudget(getBudget(start));
+        try {
+            return runInCurrentFrame(start, context);
+        } finally {
+            frame.exit();
+        }
+    }
+
+    /**
+     * Runs all code starting at a given point sequentially, inside of the {@linkplain ExecutionFrame#current() current frame}
+     * @param start the Statement the method should first run
+     * @param context the context
+     * @return {@code true} if the code ran normally, and {@code false} if any exception occurred
+     */
+    static boolean runInCurrentFrame(Statement start, TriggerContext context) {
+        ExecutionFrame frame = ExecutionFrame.current();
+        assert frame != null;
+        frame.startSlice();
         Statement item = start;
+        Profiler profiler = Profiler.getActive();
         try {
-            while (item != null)
-                item = item.walk(context);
+            if (profiler != null && profiler.sample()) {
+                while (item != null) {
+                    frame.charge(1);
+                    Statement current = item;
+                    long time = System.nanoTime();
+                    item = item.walk(context);
+                    profiler.record(current, System.nanoTime() - time);
+                }
+            } else {
+                while (item != null) {
+                    frame.charge(1);
+                    item = item.walk(context);
+                }
+            }
             return true;
+        } catch (BudgetExceededException e) {
+            return exceeded(e, item, context);
         } catch (StackOverflowError so) {
             System.err.println("The script repeated itself infinitely !");
             return false;
@@ -35,6 +84,168 @@ public abstract class Statement implements SyntaxElement {
         return false;
     }
 
+    /**
+     * Runs all code starting at a given point for several contexts at once, each inside of its own {@link ExecutionFrame}.
+     * <br>
+     * All contexts start together, and the ones that are at the same statement move forward together. Effects are then
+     * executed for all of them with a single call to {@link Effect#execute(TriggerContext[])}, which may share work
+     * between them, while any other statement, or any effect inside of a {@link Loop}, is walked through for every
+     * context in turn. Contexts taking different paths thus simply split into smaller groups, and contexts that are
+     * suspended stop being part of the batch.
+     * <br>
+     * If an effect fails while executed for a group of contexts, all contexts of that group stop. Every context is
+     * charged against the {@link ExecutionBudget} of the trigger on its own.
+     * @param start the Statement the method should first run
+     * @param contexts the contexts
+     * @return the number of contexts for which the code ran normally
+     */
+    public static int runAll(Statement start, TriggerContext[] contexts) {
+        int size = contexts.length;
+        Statement[] positions = new Statement[size];
+        ExecutionFrame[] frames = new ExecutionFrame[size];
+        boolean[] failed = new boolean[size];
+        Arrays.fill(positions, start);
+        ExecutionBudget budget = getBudget(start);
+        for (int i = 0; i < size; i++) {
+            frames[i] = new ExecutionFrame();
+            frames[i].setBudget(budget);
+        }
+        int[] group = new int[size];
+        int remaining = size;
+        int first = 0;
+        ExecutionFrame previous = ExecutionFrame.current();
+        try {
+            while (remaining > 0) {
+                // The group is made of all contexts at the same statement as the first one that isn't done yet
+                while (positions[first] == null)
+                    first++;
+                Statement item = positions[first];
+                int groupSize = 0;
+                for (int i = first; i < size; i++) {
+                    if (positions[i] == item)
+                        group[groupSize++] = i;
+                }
+                if (item instanceof Effect && groupSize > 1 && !item.overridesWalk() && !isInLoop(item)) {
+                    // Contexts exceeding their budget leave the group before it runs
+                    int charged = 0;
+                    for (int i = 0; i < groupSize; i++) {
+                        int index = group[i];
+                        try {
+                            frames[index].charge(1);
+                            group[charged++] = index;
+                        } catch (BudgetExceededException e) {
+                            ExecutionFrame.swap(frames[index]);
+                            failed[index] = !exceeded(e, item, contexts[index]);
+                            positions[index] = null;
+                            remaining--;
+                        }
+                    }
+                    groupSize = charged;
+                    if (groupSize == 0)
+                        continue;
+                    TriggerContext[] groupContexts = new TriggerContext[groupSize];
+                    for (int i = 0; i < groupSize; i++)
+                        groupContexts[i] = contexts[group[i]];
+                    Statement next;
+                    try {
+                        ((Effect) item).execute(groupContexts);
+                        next = item.getNext();
+                    } catch (StackOverflowError so) {
+                        System.err.println("The script repeated itself infinitely !");
+                        next = null;
+                        markFailed(failed, group, groupSize);
+                    } catch (Exception e) {
+                        System.err.println("An exception occurred. Stack trace :");
+                        e.printStackTrace();
+                        next = null;
+                        markFailed(failed, group, groupSize);
+                    }
+                    for (int i = 0; i < groupSize; i++)
+                        positions[group[i]] = next;
+                    if (next == null)
+                        remaining -= groupSize;
+                } else {
+                    for (int i = 0; i < groupSize; i++) {
+                        int index = group[i];
+                        ExecutionFrame.swap(frames[index]);
+                        Statement next;
+                        try {
+                            frames[index].charge(1);
+                            next = item.walk(contexts[index]);
+                        } catch (BudgetExceededException e) {
+                            next = null;
+                            failed[index] = !exceeded(e, item, contexts[index]);
+                        } catch (StackOverflowError so) {
+                            System.err.println("The script repeated itself infinitely !");
+                            next = null;
+                            failed[index] = true;
+                        } catch (Exception e) {
+                            System.err.println("An exception occurred. Stack trace :");
+                            e.printStackTrace();
+                            next = null;
+                            failed[index] = true;
+                        }
+                        positions[index] = next;
+                        if (next == null)
+                            remaining--;
+                    }
+                }
+            }
+        } finally {
+            ExecutionFrame.swap(previous);
+        }
+        int succeeded = 0;
+        for (boolean f : failed) {
+            if (!f)
+                succeeded++;
+        }
+        return succeeded;
+    }
+
+    /*
+     * The budget of the trigger some code is part of, or the default budget if it isn't part of any
+     */
+    private static ExecutionBudget getBudget(Statement start) {
+        Trigger trigger = getTrigger(start);
+        return trigger != null ? trigger.getBudget() : ExecutionBudget.getDefault();
+    }
+
+    @Nullable
+    private static Trigger getTrigger(Statement item) {
+        Statement root = item;
+        while (root.parent != null)
+            root = root.parent;
+        return root instanceof Trigger ? (Trigger) root : null;
+    }
+
+    /*
+     * Handles an execution exceeding its budget, in the current frame, right before running the given statement.
+     * Returns whether the execution yielded, rather than being aborted.
+     */
+    private static boolean exceeded(BudgetExceededException e, Statement item, TriggerContext context) {
+        ExecutionFrame frame = ExecutionFrame.current();
+        assert frame != null;
+        ExecutionBudget budget = frame.getBudget();
+        boolean yielding = budget.getAction() == ExecutionBudget.Action.YIELD;
+        budget.recordExceeded(getTrigger(item), item, e, yielding);
+        if (yielding)
+            Scheduler.getDefault().resumeLater(new Continuation(item, context), Duration.ZERO);
+        return yielding;
+    }
+
+    private static boolean isInLoop(Statement item) {
+        for (CodeSection section = item.parent; section != null; section = section.parent) {
+            if (section instanceof Loop)
+                return true;
+        }
+        return false;
+    }
+
+    private static void markFailed(boolean[] failed, int[] group, int groupSize) {
+        for (int i = 0; i < groupSize; i++)
+            failed[group[i]] = true;
+    }
+
     /**
      * Executes this Statement
      * @param ctx the event
@@ -59,6 +270,24 @@ public abstract class Statement implements SyntaxElement {
         return this;
     }
 
+    /**
+     * @return the line this Statement was loaded from, or {@code null} if it wasn't loaded from a file
+     */
+    @Nullable
+    public FileElement getFileElement() {
+        return fileElement;
+    }
+
+    /**
+     * Sets the line this Statement was loaded from
+     * @param fileElement the line
+     * @return this Statement
+     */
+    public Statement setFileElement(FileElement fileElement) {
+        this.fileElement = fileElement;
+        return this;
+    }
+
     /**
      * @return the Statement after this one in the file. If this Statement is the last item of the section, returns the item after
      *         said section. If this Statement is the very last item of a trigger, returns {@code null}
@@ -100,4 +329,36 @@ public abstract class Statement implements SyntaxElement {
             return null;
         }
     }
+
+    /**
+     * Statements overriding {@code walk()} may jump anywhere, so there is no way to tell what they do from the outside.
+     * @return whether the class of this statement, or one of its superclasses, overrides {@link #walk(TriggerContext)}
+     */
+    public final boolean overridesWalk() {
+        return OVERRIDES_WALK.get(getClass());
+    }
+
+    /**
+     * Caches, for each class of statements, whether it declares a method taking a {@link TriggerContext}, either
+     * itself or through a superclass below {@code base}.
+     * @param base the class the method is inherited from
+     * @param method the name of the method
+     * @return the cache
+     */
+    static ClassValue<Boolean> overriding(Class<? extends Statement> base, String method) {
+        return new ClassValue<Boolean>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                for (Class<?> c = type; c != base; c = c.getSuperclass()) {
+                    try {
+                        c.getDeclaredMethod(method, TriggerContext.class);
+                        return true;
+                    } catch (NoSuchMethodException ignored) {
+                        // Look in the superclass
+                    }
+                }
+                return false;
+            }
+        };
+    }
 }
@@ -12,6 +12,8 @@ import org.jetbrains.annotations.Nullable;
  */
 public class Trigger extends CodeSection {
     private final SkriptEvent event;
+    @Nullable
+    private ExecutionBudget budget;
 
     public Trigger(SkriptEvent event) {
         this.event = event;
@@ -24,6 +26,7 @@ public class Trigger extends CodeSection {
 
     @Override
     public void loadSection(FileSection section, ParserState parserState, SkriptLogger logger) {
+        setFileElement(section);
         parserState.setSyntaxRestrictions(event.getAllowedSyntaxes(), event.isRestrictingExpressions());
         parserState.addCurrentSection(this);
         setItems(event.loadSection(section, parserState, logger));
@@ -44,4 +47,21 @@ public class Trigger extends CodeSection {
     public SkriptEvent getEvent() {
         return event;
     }
+
+    /**
+     * @return the budget of the executions of this trigger, which is the {@linkplain ExecutionBudget#getDefault() default
+     * budget} unless it was set
+     */
+    public ExecutionBudget getBudget() {
+        return budget != null ? budget : ExecutionBudget.getDefault();
+    }
+
+    /**
+     * Sets the budget of the executions of this trigger. As triggers whose budget yields can't be compiled, this should
+     * be done before the trigger is registered anywhere.
+     * @param budget the budget, or {@code null} to use the default one
+     */
+    public void setBudget(@Nullable ExecutionBudget budget) {
+        this.budget = budget;
+    }
 }
@@ -16,7 +16,9 @@ import io.github.syst3ms.skriptparser.variables.Variables;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Array;
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * A reference to a variable, whose value is only known at runtime. It can be local to the event, meaning it isn't
@@ -50,13 +52,13 @@ public class Variable<T> implements Expression<T> {
         return val;
     }
 
-    private Object get(TriggerContext ctx) {
-        Object val = getRaw(ctx);
-        if (!list)
-            return val;
+    /**
+     * Passes the converted value of each element of the given list variable map to the given action, skipping elements
+     * that have no value or can't be converted.
+     */
+    private void forEachElement(@Nullable Object val, Consumer<? super T> action) {
         if (val == null)
-            return Array.newInstance(type, 0);
-        List<Object> l = new ArrayList<>();
+            return;
         for (Map.Entry<String, ?> v : ((Map<String, ?>) val).entrySet()) {
             if (v.getKey() != null && v.getValue() != null) {
                 Object o;
@@ -64,10 +66,20 @@ public class Variable<T> implements Expression<T> {
                     o = ((Map<String, ?>) v.getValue()).get(null);
                 else
                     o = v.getValue();
-                l.add(o);
+                T converted = (T) Converters.convert(o, type);
+                if (converted != null)
+                    action.accept(converted);
             }
         }
-        return l.toArray();
+    }
+
+    /**
+     * Unwraps the value of an element of a list, which is a map holding its value under the {@code null} key when the
+     * element has elements of its own
+     */
+    @Nullable
+    private static Object getElement(@Nullable Object element) {
+        return element instanceof Map ? ((Map<String, ?>) element).get(null) : element;
     }
 
     @Override
@@ -83,12 +95,37 @@ public class Variable<T> implements Expression<T> {
         return one;
     }
 
+    @Nullable
+    @Override
+    public T getSingle(TriggerContext ctx) {
+        if (list)
+            return Expression.super.getSingle(ctx);
+        return getConverted(ctx);
+    }
+
+    @Override
+    public void forEachValue(TriggerContext ctx, Consumer<? super T> action) {
+        if (list) {
+            forEachElement(getRaw(ctx), action);
+        } else {
+            T o = getConverted(ctx);
+            if (o != null)
+                action.accept(o);
+        }
+    }
+
     private T getConverted(TriggerContext ctx) {
-        return (T) Converters.convert(get(ctx), type);
+        return (T) Converters.convert(getRaw(ctx), type);
     }
 
     private T[] getConvertedArray(TriggerContext ctx) {
-        return Converters.convertArray((Object[]) get(ctx), (Class<T>) type, (Class<T>) supertype);
+        Object val = getRaw(ctx);
+        if (val == null)
+            return (T[]) Array.newInstance(supertype, 0);
+        // The list can grow between reading its size and iterating over it, so the size is only a hint
+        List<T> values = new ArrayList<>(((Map<?, ?>) val).size());
+        forEachElement(val, values::add);
+        return values.toArray((T[]) Array.newInstance(supertype, values.size()));
     }
 
     @Override
@@ -118,12 +155,10 @@ public class Variable<T> implements Expression<T> {
         Object val = Variables.getVariable(name + "*", ctx, local);
         if (val == null)
             return Collections.emptyIterator();
-        assert val instanceof TreeMap;
-        // temporary list to prevent CMEs
-        Iterator<String> keys = new ArrayList<>(((Map<String, Object>) val).keySet()).iterator();
+        assert val instanceof Map;
+        // iterates over a snapshot of the indexes, so the list can be modified while iterating
+        Iterator<Map.Entry<String, Object>> entries = ((Map<String, Object>) val).entrySet().iterator();
         return new Iterator<T>() {
-            @Nullable
-            private String key;
             @Nullable
             private T next;
 
@@ -131,11 +166,11 @@ public class Variable<T> implements Expression<T> {
             public boolean hasNext() {
                 if (next != null)
                     return true;
-                while (keys.hasNext()) {
-                    key = keys.next();
-                    if (key != null) {
-                        next = (T) Converters.convert(Variables.getVariable(name + key, ctx, local), type);
-                        if (next != null && !(next instanceof TreeMap))
+                while (entries.hasNext()) {
+                    Map.Entry<String, Object> entry = entries.next();
+                    if (entry.getKey() != null) {
+                        next = (T) Converters.convert(getElement(entry.getValue()), type);
+                        if (next != null && !(next instanceof Map))
                             return true;
                     }
                 }
@@ -172,9 +207,9 @@ public class Variable<T> implements Expression<T> {
         Object val = Variables.getVariable(name + "*", ctx, local);
         if (val == null)
             return Collections.emptyIterator();
-        assert val instanceof TreeMap;
-        // temporary list to prevent CMEs
-        Iterator<String> keys = new ArrayList<>(((Map<String, Object>) val).keySet()).iterator();
+        assert val instanceof Map;
+        // iterates over a snapshot of the indexes, so the list can be modified while iterating
+        Iterator<Map.Entry<String, Object>> entries = ((Map<String, Object>) val).entrySet().iterator();
         return new Iterator<Pair<String, Object>>() {
             @Nullable
             private String key;
@@ -185,11 +220,12 @@ public class Variable<T> implements Expression<T> {
             public boolean hasNext() {
                 if (next != null)
                     return true;
-                while (keys.hasNext()) {
-                    key = keys.next();
+                while (entries.hasNext()) {
+                    Map.Entry<String, Object> entry = entries.next();
+                    key = entry.getKey();
                     if (key != null) {
-                        next = Variables.getVariable(name + key, ctx, local) ;
-                        if (next != null && !(next instanceof TreeMap))
+                        next = getElement(entry.getValue());
+                        if (next != null && !(next instanceof Map))
                             return true;
                     }
                 }
@@ -213,6 +249,19 @@ public class Variable<T> implements Expression<T> {
         };
     }
 
+    /**
+     * Checks whether this list variable has an element equal to the given value, which is much faster than comparing
+     * the value with every element of the list
+     * @param ctx the event
+     * @param value the value
+     * @return whether an element of the list is equal to the value
+     */
+    public boolean contains(TriggerContext ctx, Object value) {
+        if (!list)
+            throw new SkriptRuntimeException("Searching a non-list variable");
+        return Variables.containsValue(name.toString(ctx), value, ctx, local);
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         if (ctx != null)
@@ -231,15 +280,20 @@ public class Variable<T> implements Expression<T> {
         return new Variable<>(name, local, list, to);
     }
 
-    private void set(TriggerContext ctx, @Nullable Object value) {
-        Variables.setVariable(name.toString(ctx), value, ctx, local);
+    /**
+     * Sets this variable to a value that is deleted once the given duration has passed
+     * @param ctx the event
+     * @param value the value
+     * @param ttl the duration after which the value is deleted
+     */
+    public void setExpiring(TriggerContext ctx, Object value, Duration ttl) {
+        if (list)
+            throw new SkriptRuntimeException("Setting a list variable to expire");
+        Variables.setVariable(name.toString(ctx), value, ttl, ctx, local);
     }
 
-    private void setIndex(TriggerContext ctx, String index, @Nullable Object value) {
-        assert list;
-        String s = name.toString(ctx);
-        assert s.endsWith("::*") : s + "; " + name;
-        Variables.setVariable(s.substring(0, s.length() - 1) + index, value, ctx, local);
+    private void set(TriggerContext ctx, @Nullable Object value) {
+        Variables.setVariable(name.toString(ctx), value, ctx, local);
     }
 
     @Override
@@ -254,38 +308,13 @@ public class Variable<T> implements Expression<T> {
     public void change(TriggerContext ctx, Object[] changeWith, ChangeMode mode) throws UnsupportedOperationException {
         switch (mode) {
             case DELETE:
-                if (list) {
-                    ArrayList<String> rem = new ArrayList<>();
-                    Map<String, Object> o = (Map<String, Object>) getRaw(ctx);
-                    if (o == null)
-                        return;
-                    for (Map.Entry<String, Object> i : o.entrySet()) {
-                        if (i.getKey() != null){
-                            rem.add(i.getKey());
-                        }
-                    }
-                    for (String r : rem) {
-                        assert r != null;
-                        setIndex(ctx, r, null);
-                    }
-                }
-
+                // Deleting a list drops all of its elements at once
                 set(ctx, null);
                 break;
             case SET:
                 assert changeWith.length > 0;
                 if (list) {
-                    set(ctx, null);
-                    int i = 1;
-                    for (Object d : changeWith) {
-                        if (d instanceof Object[]) {
-                            for (int j = 0; j < ((Object[]) d).length; j++)
-                                setIndex(ctx, i + Variables.LIST_SEPARATOR + j, ((Object[]) d)[j]);
-                        } else {
-                            setIndex(ctx, String.valueOf(i), d);
-                        }
-                        i++;
-                    }
+                    Variables.setList(name.toString(ctx), changeWith, ctx, local);
                 } else {
                     set(ctx, changeWith[0]);
                 }
@@ -311,50 +340,17 @@ public class Variable<T> implements Expression<T> {
             case REMOVE_ALL:
                 assert changeWith.length > 0;
                 if (list) {
-                    Map<String, Object> o = (Map<String, Object>) getRaw(ctx);
-                    if (mode == ChangeMode.REMOVE) {
-                        if (o == null)
-                            return;
-                        ArrayList<String> rem = new ArrayList<>(); // prevents CMEs
-                        for (Object d : changeWith) {
-                            for (Map.Entry<String, Object> i : o.entrySet()) {
-                                if (Relation.EQUAL.is(Comparators.compare(i.getValue(), d))) {
-                                    rem.add(i.getKey());
-                                    break;
-                                }
-                            }
-                        }
-                        for (String r : rem) {
-                            assert r != null;
-                            setIndex(ctx, r, null);
-                        }
-                    } else if (mode == ChangeMode.REMOVE_ALL) {
-                        if (o == null)
-                            return;
-                        ArrayList<String> rem = new ArrayList<>(); // prevents CMEs
-                        for (Map.Entry<String, Object> i : o.entrySet()) {
-                            for (Object d : changeWith) {
-                                if (Relation.EQUAL.is(Comparators.compare(i.getValue(), d)))
-                                    rem.add(i.getKey());
-                            }
-                        }
-                        for (String r : rem) {
-                            assert r != null;
-                            setIndex(ctx, r, null);
-                        }
+                    String n = name.toString(ctx);
+                    if (mode == ChangeMode.REMOVE || mode == ChangeMode.REMOVE_ALL) {
+                        for (Object d : changeWith)
+                            Variables.removeValue(n, d, mode == ChangeMode.REMOVE_ALL, ctx, local);
                     } else {
                         assert mode == ChangeMode.ADD;
-                        int i = 1;
-                        for (Object d : changeWith) {
-                            if (o != null)
-                                while (o.containsKey(String.valueOf(i)))
-                                    i++;
-                            setIndex(ctx, String.valueOf(i), d);
-                            i++;
-                        }
+                        for (Object d : changeWith)
+                            Variables.appendVariable(n, d, ctx, local);
                     }
                 } else {
-                    Object o = get(ctx);
+                    Object o = getRaw(ctx);
                     Type<?> type;
                     if (o == null) {
                         type = null;
@@ -45,6 +45,13 @@ public class While extends CodeSection {
         }
     }
 
+    /**
+     * @return the condition that must be met to keep executing the contents of this section
+     */
+    public Expression<Boolean> getCondition() {
+        return condition;
+    }
+
     @Override
     public Statement setNext(@Nullable Statement next) {
         this.actualNext = next;
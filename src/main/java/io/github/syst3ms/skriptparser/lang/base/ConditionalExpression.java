@@ -49,5 +49,10 @@ public abstract class ConditionalExpression implements Expression<Boolean> {
         return new Boolean[]{check(ctx)};
     }
 
+    @Override
+    public Boolean getSingle(TriggerContext ctx) {
+        return check(ctx);
+    }
+
     protected abstract boolean check(TriggerContext ctx);
 }
@@ -10,6 +10,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -47,6 +48,24 @@ public class ConvertedExpression<F, T> implements Expression<T> {
         return Converters.convert(source.getValues(ctx), to, converter);
     }
 
+    @Override
+    public void forEachValue(TriggerContext ctx, Consumer<? super T> action) {
+        source.forEachValue(ctx, value -> {
+            T converted = converter.apply(value);
+            if (converted != null)
+                action.accept(converted);
+        });
+    }
+
+    @Nullable
+    @Override
+    public T getSingle(TriggerContext ctx) {
+        if (!source.isSingle())
+            return Expression.super.getSingle(ctx);
+        F value = source.getSingle(ctx);
+        return value == null ? null : converter.apply(value);
+    }
+
     @Override
     public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
         throw new UnsupportedOperationException();
@@ -0,0 +1,34 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.lang.ExecutionBudget;
+
+/**
+ * An exception thrown when an execution exceeds its {@link ExecutionBudget}. It is thrown before running the statement
+ * that would exceed the budget, and is caught by whatever runs the code, so it never reaches the user.
+ */
+public class BudgetExceededException extends SkriptRuntimeException {
+    private static final long serialVersionUID = 0L;
+
+    private final long statements;
+    private final long nanos;
+
+    public BudgetExceededException(long statements, long nanos) {
+        super("The execution budget was exceeded after " + statements + " statements and " + nanos + "ns");
+        this.statements = statements;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return the number of statements that were run when the budget was exceeded
+     */
+    public long getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return the time that was spent running when the budget was exceeded, in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -114,7 +114,7 @@ public class ScriptLoader {
                         logger.error("Conditionals are not allowed in this section", ErrorType.SEMANTIC_ERROR);
                         continue;
                     }
-                    items.add(new Conditional(sec, booleanExpression, Conditional.ConditionalMode.IF, parserState, logger));
+                    items.add(new Conditional(sec, booleanExpression, Conditional.ConditionalMode.IF, parserState, logger).setFileElement(sec));
                 } else if (content.regionMatches(true, 0, "else if ", 0, "else if ".length())) {
                     if (items.size() == 0 ||
                         !(items.get(items.size() - 1) instanceof Conditional) ||
@@ -133,6 +133,7 @@ public class ScriptLoader {
                         continue;
                     }
                     Conditional c = new Conditional(sec, booleanExpression, Conditional.ConditionalMode.ELSE_IF, parserState, logger);
+                    c.setFileElement(sec);
                     ((Conditional) items.get(items.size() - 1)).setFallingClause(c);
                 } else if (content.equalsIgnoreCase("else")) {
                     if (items.size() == 0 ||
@@ -146,6 +147,7 @@ public class ScriptLoader {
                         continue;
                     }
                     Conditional c = new Conditional(sec, null, Conditional.ConditionalMode.ELSE, parserState, logger);
+                    c.setFileElement(sec);
                     ((Conditional) items.get(items.size() - 1)).setFallingClause(c);
                 } else {
                     CodeSection codeSection = SyntaxParser.parseSection(sec, parserState, logger);
@@ -156,7 +158,7 @@ public class ScriptLoader {
                         logger.error("The enclosing section does not allow the use of this section : " + codeSection.toString(null, logger.isDebug()), ErrorType.SEMANTIC_ERROR);
                         continue;
                     }
-                    items.add(codeSection);
+                    items.add(codeSection.setFileElement(sec));
                 }
             } else {
                 String content = element.getLineContent();
@@ -164,7 +166,7 @@ public class ScriptLoader {
                 if (eff == null) {
                     continue;
                 }
-                items.add(eff);
+                items.add(eff.setFileElement(element));
             }
         }
         logger.logOutput();
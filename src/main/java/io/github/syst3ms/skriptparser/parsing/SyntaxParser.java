@@ -261,9 +261,10 @@ public class SyntaxParser {
             if (element.match(s, 0, parser) != -1) {
                 try {
                     Expression<? extends T> expression = (Expression<? extends T>) info.getSyntaxClass().newInstance();
+                    Expression<?>[] arguments = parser.getParsedExpressions().toArray(new Expression[0]);
                     logger.setContext(ErrorContext.INITIALIZATION);
                     if (!expression.init(
-                            parser.getParsedExpressions().toArray(new Expression[0]),
+                            arguments,
                             i,
                             parser.toParseResult()
                     )) {
@@ -272,7 +273,7 @@ public class SyntaxParser {
                     logger.setContext(ErrorContext.CONSTRAINT_CHECKING);
                     Class<?> expressionReturnType = expression.getReturnType();
                     if (!expectedTypeClass.isAssignableFrom(expressionReturnType)) { // Would only screw up in case of bad dynamic type usage
-                        Expression<?> converted = expression.convertExpression(expectedTypeClass);
+                        Expression<?> converted = optimize(expression, info, arguments, logger).convertExpression(expectedTypeClass);
                         if (converted != null) {
                             return (Expression<? extends T>) converted;
                         } else {
@@ -295,7 +296,7 @@ public class SyntaxParser {
                         logger.error("The enclosing section does not allow the use of this expression : " + expression.toString(null, logger.isDebug()), ErrorType.SEMANTIC_ERROR);
                         continue;
                     }
-                    return expression;
+                    return optimize(expression, info, arguments, logger);
                 } catch (InstantiationException | IllegalAccessException e) {
                     logger.error("Couldn't instantiate class '" + info.getSyntaxClass().getName() + "'", ErrorType.EXCEPTION);
                 }
@@ -304,6 +305,46 @@ public class SyntaxParser {
         return null;
     }
 
+    /**
+     * Lets the given expression {@linkplain Expression#simplify() simplify} itself, and otherwise replaces it with a
+     * {@link SimpleLiteral} holding its values if it is {@linkplain ExpressionInfo#isPure() pure} and all of its
+     * arguments are literals. Since arguments are parsed before the expressions that use them, constant subtrees are
+     * folded bottom-up.
+     * Conditions are left alone, because some places require the parsed expression to be a {@link ConditionalExpression}.
+     * @param expression the successfully initialized expression
+     * @param info the info of the expression
+     * @param arguments the expressions it was initialized with
+     * @param logger the logger, to which failures to fold the expression are reported in debug mode
+     * @param <T> the return type of the expression
+     * @return the optimized expression
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Expression<? extends T> optimize(Expression<? extends T> expression, ExpressionInfo<?, ?> info, Expression<?>[] arguments, SkriptLogger logger) {
+        Expression<? extends T> simplified = expression.simplify();
+        if (simplified != expression)
+            return simplified;
+        if (info.isPure() && !(expression instanceof ConditionalExpression)) {
+            boolean constant = true;
+            for (Expression<?> argument : arguments) {
+                if (!Literal.isLiteral(argument) || !argument.isAndList()) { // An or-list picks a random value every time
+                    constant = false;
+                    break;
+                }
+            }
+            if (constant) {
+                try {
+                    T[] values = (T[]) expression.getValues(TriggerContext.DUMMY);
+                    if (!expression.isSingle() || values.length == 1)
+                        return new SimpleLiteral<>((Class<T>) expression.getReturnType(), values);
+                } catch (RuntimeException e) {
+                    // The same error will happen at runtime, where it is reported properly
+                    logger.debug("Couldn't fold '" + expression.toString(null, true) + "' into a constant : " + e);
+                }
+            }
+        }
+        return expression;
+    }
+
     /**
      * Parses a line of code as an {@link InlineCondition}
      * @param s the line to be parsed
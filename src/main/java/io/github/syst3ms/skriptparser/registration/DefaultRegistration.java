@@ -6,16 +6,20 @@ import io.github.syst3ms.skriptparser.types.comparisons.Comparator;
 import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
 import io.github.syst3ms.skriptparser.types.comparisons.Relation;
 import io.github.syst3ms.skriptparser.types.conversions.Converters;
+import io.github.syst3ms.skriptparser.types.ranges.IndexedRange;
 import io.github.syst3ms.skriptparser.types.ranges.Ranges;
+import io.github.syst3ms.skriptparser.types.serialization.TypeCodec;
+import io.github.syst3ms.skriptparser.types.serialization.ValueInput;
+import io.github.syst3ms.skriptparser.types.serialization.ValueOutput;
+import io.github.syst3ms.skriptparser.util.TimeUtils;
 import io.github.syst3ms.skriptparser.util.math.BigDecimalMath;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.IntStream;
-import java.util.stream.LongStream;
+import java.time.Duration;
+import java.time.LocalTime;
 
 /**
  * A class registering features such as types and comparators at startup.
@@ -156,7 +160,83 @@ public class DefaultRegistration {
                         public Class<? extends Number> getRelativeType() {
                             return Number.class;
                         }
-                    }).register();
+                    })
+                    .codec(new TypeCodec<Number>() {
+                        private static final int LONG = 0, DOUBLE = 1, INTEGRAL_DOUBLE = 2, SMALL_BIG_INTEGER = 3,
+                                BIG_INTEGER = 4, SMALL_BIG_DECIMAL = 5, BIG_DECIMAL = 6;
+
+                        @Override
+                        public void write(Number value, ValueOutput out) {
+                            if (value instanceof BigDecimal) {
+                                BigDecimal bd = (BigDecimal) value;
+                                BigInteger unscaled = bd.unscaledValue();
+                                boolean small = unscaled.bitLength() < 64;
+                                out.writeByte(small ? SMALL_BIG_DECIMAL : BIG_DECIMAL);
+                                out.writeSignedVarLong(bd.scale());
+                                if (small) {
+                                    out.writeSignedVarLong(unscaled.longValue());
+                                } else {
+                                    out.writeBytes(unscaled.toByteArray());
+                                }
+                            } else if (value instanceof BigInteger) {
+                                BigInteger bi = (BigInteger) value;
+                                if (bi.bitLength() < 64) {
+                                    out.writeByte(SMALL_BIG_INTEGER);
+                                    out.writeSignedVarLong(bi.longValue());
+                                } else {
+                                    out.writeByte(BIG_INTEGER);
+                                    out.writeBytes(bi.toByteArray());
+                                }
+                            } else if (value instanceof Double || value instanceof Float) {
+                                double d = value.doubleValue();
+                                // Whole doubles are common and much shorter as varints, but -0.0 must keep its sign
+                                if (d == Math.rint(d) && Math.abs(d) < 0x1p53 && (d != 0 || 1 / d > 0)) {
+                                    out.writeByte(INTEGRAL_DOUBLE);
+                                    out.writeSignedVarLong((long) d);
+                                } else {
+                                    out.writeByte(DOUBLE);
+                                    out.writeDouble(d);
+                                }
+                            } else {
+                                out.writeByte(LONG);
+                                out.writeSignedVarLong(value.longValue());
+                            }
+                        }
+
+                        @Override
+                        public Number read(ValueInput in) throws IOException {
+                            int tag = in.readByte();
+                            switch (tag) {
+                                case LONG:
+                                    return in.readSignedVarLong();
+                                case DOUBLE:
+                                    return in.readDouble();
+                                case INTEGRAL_DOUBLE:
+                                    return (double) in.readSignedVarLong();
+                                case SMALL_BIG_INTEGER:
+                                    return BigInteger.valueOf(in.readSignedVarLong());
+                                case BIG_INTEGER:
+                                    return readBigInteger(in);
+                                case SMALL_BIG_DECIMAL:
+                                case BIG_DECIMAL:
+                                    int scale = (int) in.readSignedVarLong();
+                                    BigInteger unscaled = tag == SMALL_BIG_DECIMAL
+                                            ? BigInteger.valueOf(in.readSignedVarLong())
+                                            : readBigInteger(in);
+                                    return new BigDecimal(unscaled, scale);
+                                default:
+                                    throw new IOException("Unknown number tag " + tag);
+                            }
+                        }
+
+                        private BigInteger readBigInteger(ValueInput in) throws IOException {
+                            byte[] bytes = in.readBytes();
+                            if (bytes.length == 0)
+                                throw new IOException("Malformed big integer");
+                            return new BigInteger(bytes);
+                        }
+                    })
+                    .register();
         registration.newType(Long.class, "integer", "integer@s")
                 .literalParser(s -> {
                     try {
@@ -186,6 +266,17 @@ public class DefaultRegistration {
                         return Long.class;
                     }
                 })
+                .codec(new TypeCodec<Long>() {
+                    @Override
+                    public void write(Long value, ValueOutput out) {
+                        out.writeSignedVarLong(value);
+                    }
+
+                    @Override
+                    public Long read(ValueInput in) throws IOException {
+                        return in.readSignedVarLong();
+                    }
+                })
                 .register();
         registration.newType(BigInteger.class, "biginteger", "biginteger@s")
                 .literalParser(s -> {
@@ -216,12 +307,37 @@ public class DefaultRegistration {
                         return BigInteger.class;
                     }
                 })
+                .codec(new TypeCodec<BigInteger>() {
+                    @Override
+                    public void write(BigInteger value, ValueOutput out) {
+                        boolean small = value.bitLength() < 64;
+                        out.writeBoolean(small);
+                        if (small) {
+                            out.writeSignedVarLong(value.longValue());
+                        } else {
+                            out.writeBytes(value.toByteArray());
+                        }
+                    }
+
+                    @Override
+                    public BigInteger read(ValueInput in) throws IOException {
+                        return in.readBoolean() ? BigInteger.valueOf(in.readSignedVarLong()) : new BigInteger(in.readBytes());
+                    }
+                })
                 .register();
-        registration.addType(
-                String.class,
-                "string",
-                "string@s"
-        );
+        registration.newType(String.class, "string", "string@s")
+                    .codec(new TypeCodec<String>() {
+                        @Override
+                        public void write(String value, ValueOutput out) {
+                            out.writeString(value);
+                        }
+
+                        @Override
+                        public String read(ValueInput in) throws IOException {
+                            return in.readString();
+                        }
+                    })
+                    .register();
         registration.newType(Boolean.class, "boolean", "boolean@s")
                     .literalParser(s -> {
                         if (s.equalsIgnoreCase("true")) {
@@ -233,6 +349,56 @@ public class DefaultRegistration {
                         }
                     })
                     .toStringFunction(String::valueOf)
+                    .codec(new TypeCodec<Boolean>() {
+                        @Override
+                        public void write(Boolean value, ValueOutput out) {
+                            out.writeBoolean(value);
+                        }
+
+                        @Override
+                        public Boolean read(ValueInput in) throws IOException {
+                            return in.readBoolean();
+                        }
+                    })
+                    .register();
+        registration.newType(Duration.class, "duration", "duration@s")
+                    .literalParser(TimeUtils::parseDuration)
+                    .toStringFunction(TimeUtils::toString)
+                    .codec(new TypeCodec<Duration>() {
+                        @Override
+                        public void write(Duration value, ValueOutput out) {
+                            out.writeSignedVarLong(value.getSeconds());
+                            out.writeVarLong(value.getNano());
+                        }
+
+                        @Override
+                        public Duration read(ValueInput in) throws IOException {
+                            long seconds = in.readSignedVarLong();
+                            long nanos = in.readVarLong();
+                            // Out of range nanoseconds could make the seconds overflow
+                            if (nanos < 0 || nanos >= 1_000_000_000)
+                                throw new IOException("Malformed duration");
+                            return Duration.ofSeconds(seconds, nanos);
+                        }
+                    })
+                    .register();
+        registration.newType(LocalTime.class, "time", "time@s")
+                    .literalParser(TimeUtils::parseTime)
+                    .toStringFunction(LocalTime::toString)
+                    .codec(new TypeCodec<LocalTime>() {
+                        @Override
+                        public void write(LocalTime value, ValueOutput out) {
+                            out.writeVarLong(value.toNanoOfDay());
+                        }
+
+                        @Override
+                        public LocalTime read(ValueInput in) throws IOException {
+                            long nanos = in.readVarLong();
+                            if (nanos < 0 || nanos > LocalTime.MAX.toNanoOfDay())
+                                throw new IOException("Malformed time");
+                            return LocalTime.ofNanoOfDay(nanos);
+                        }
+                    })
                     .register();
         Comparators.registerComparator(
                 Number.class,
@@ -263,36 +429,79 @@ public class DefaultRegistration {
                     }
                 }
         );
+        Comparators.registerComparator(
+                Duration.class,
+                Duration.class,
+                new Comparator<Duration, Duration>(true) {
+                    @Override
+                    public Relation apply(Duration duration, Duration duration2) {
+                        return Relation.get(duration.compareTo(duration2));
+                    }
+                }
+        );
+        Comparators.registerComparator(
+                LocalTime.class,
+                LocalTime.class,
+                new Comparator<LocalTime, LocalTime>(true) {
+                    @Override
+                    public Relation apply(LocalTime time, LocalTime time2) {
+                        return Relation.get(time.compareTo(time2));
+                    }
+                }
+        );
         /*
          * Ranges
          */
         Ranges.registerRange(
                 Long.class,
                 Long.class,
-                (l, r) -> {
-                    if (l.compareTo(r) >= 0) {
-                        return new Long[0];
-                    } else {
-                        return LongStream.range(l, r + 1)
-                                .boxed()
-                                .toArray(Long[]::new);
+                new IndexedRange<Long, Long>() {
+                    @Override
+                    public long size(Long lower, Long upper) {
+                        if (lower >= upper)
+                            return 0;
+                        long size = upper - lower + 1;
+                        return size > 0 ? size : Long.MAX_VALUE; // Overflow
+                    }
+
+                    @Override
+                    public Long get(Long lower, long index) {
+                        return lower + index;
+                    }
+
+                    @Override
+                    public boolean contains(Long lower, Long upper, Object element) {
+                        if (!(element instanceof Long))
+                            return IndexedRange.super.contains(lower, upper, element);
+                        long l = (Long) element;
+                        return lower < upper && lower <= l && l <= upper;
                     }
                 }
         );
         Ranges.registerRange(
                 BigInteger.class,
                 BigInteger.class,
-                (l, r) -> {
-                    if (l.compareTo(r) >= 0) {
-                        return new BigInteger[0];
-                    } else {
-                        List<BigInteger> elements = new ArrayList<>();
-                        BigInteger current = l;
-                        do {
-                            elements.add(current);
-                            current = current.add(BigInteger.ONE);
-                        } while (current.compareTo(r) <= 0);
-                        return elements.toArray(new BigInteger[0]);
+                new IndexedRange<BigInteger, BigInteger>() {
+                    private final BigInteger maxSize = BigInteger.valueOf(Long.MAX_VALUE);
+
+                    @Override
+                    public long size(BigInteger lower, BigInteger upper) {
+                        if (lower.compareTo(upper) >= 0)
+                            return 0;
+                        return upper.subtract(lower).add(BigInteger.ONE).min(maxSize).longValue();
+                    }
+
+                    @Override
+                    public BigInteger get(BigInteger lower, long index) {
+                        return lower.add(BigInteger.valueOf(index));
+                    }
+
+                    @Override
+                    public boolean contains(BigInteger lower, BigInteger upper, Object element) {
+                        if (!(element instanceof BigInteger))
+                            return IndexedRange.super.contains(lower, upper, element);
+                        BigInteger b = (BigInteger) element;
+                        return lower.compareTo(upper) < 0 && lower.compareTo(b) <= 0 && b.compareTo(upper) <= 0;
                     }
                 }
         );
@@ -300,13 +509,26 @@ public class DefaultRegistration {
         Ranges.registerRange(
                 String.class,
                 String.class,
-                (l, r) -> {
-                    if (l.length() != 1 || r.length() != 1)
-                        return new String[0];
-                    char leftChar = l.charAt(0), rightChar = r.charAt(0);
-                    return IntStream.range(leftChar, rightChar + 1)
-                            .mapToObj(i -> Character.toString((char) i))
-                            .toArray(String[]::new);
+                new IndexedRange<String, String>() {
+                    @Override
+                    public long size(String lower, String upper) {
+                        if (lower.length() != 1 || upper.length() != 1)
+                            return 0;
+                        return Math.max(0, upper.charAt(0) - lower.charAt(0) + 1);
+                    }
+
+                    @Override
+                    public String get(String lower, long index) {
+                        return Character.toString((char) (lower.charAt(0) + index));
+                    }
+
+                    @Override
+                    public boolean contains(String lower, String upper, Object element) {
+                        if (!(element instanceof String))
+                            return IndexedRange.super.contains(lower, upper, element);
+                        String s = (String) element;
+                        return size(lower, upper) > 0 && s.length() == 1 && lower.charAt(0) <= s.charAt(0) && s.charAt(0) <= upper.charAt(0);
+                    }
                 }
         );
         /*
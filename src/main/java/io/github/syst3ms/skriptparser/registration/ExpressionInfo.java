@@ -14,13 +14,28 @@ import java.util.List;
  */
 public class ExpressionInfo<C, T> extends SyntaxInfo<C> {
     private final PatternType<T> returnType;
+    private final boolean pure;
 
     public ExpressionInfo(Class<C> c, List<PatternElement> patterns, SkriptAddon registerer, Type<T> returnType, boolean isSingle, int priority) {
+        this(c, patterns, registerer, returnType, isSingle, priority, false);
+    }
+
+    public ExpressionInfo(Class<C> c, List<PatternElement> patterns, SkriptAddon registerer, Type<T> returnType, boolean isSingle, int priority, boolean pure) {
         super(c, patterns, priority, registerer);
         this.returnType = new PatternType<>(returnType, isSingle);
+        this.pure = pure;
     }
 
     public PatternType<T> getReturnType() {
         return returnType;
     }
+
+    /**
+     * @return whether this expression is pure, that is, whether its values only depend on the values of the
+     * expressions it was initialized with. Pure expressions whose arguments are all literals are evaluated once at
+     * parse time and replaced by a {@link io.github.syst3ms.skriptparser.lang.Literal literal}.
+     */
+    public boolean isPure() {
+        return pure;
+    }
 }
\ No newline at end of file
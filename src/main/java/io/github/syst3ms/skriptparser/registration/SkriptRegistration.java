@@ -13,6 +13,7 @@ import io.github.syst3ms.skriptparser.types.TypeManager;
 import io.github.syst3ms.skriptparser.types.changers.Arithmetic;
 import io.github.syst3ms.skriptparser.types.changers.Changer;
 import io.github.syst3ms.skriptparser.types.conversions.Converters;
+import io.github.syst3ms.skriptparser.types.serialization.TypeCodec;
 import io.github.syst3ms.skriptparser.util.MultiMap;
 import org.jetbrains.annotations.Nullable;
 
@@ -346,6 +347,8 @@ public class SkriptRegistration {
         private Changer<? super C> defaultChanger;
         @Nullable
         private Arithmetic<C, ?> arithmetic;
+        @Nullable
+        private TypeCodec<C> codec;
 
         public TypeRegistrar(Class<C> c, String baseName, String pattern) {
             this.c = c;
@@ -389,13 +392,22 @@ public class SkriptRegistration {
             return this;
         }
 
+        /**
+         * @param codec a {@link TypeCodec} serializing instances of the type, which allows them to be persisted
+         * @return the registrar
+         */
+        public TypeRegistrar<C> codec(TypeCodec<C> codec) {
+            this.codec = codec;
+            return this;
+        }
+
         /**
          * Adds this type to the list of currently registered syntaxes
          */
         @Override
         public void register() {
             newTypes = true;
-            types.add(new Type<>(c, baseName, pattern, literalParser, toStringFunction, defaultChanger, arithmetic));
+            types.add(new Type<>(c, baseName, pattern, literalParser, toStringFunction, defaultChanger, arithmetic, codec));
         }
     }
 
@@ -431,6 +443,7 @@ public class SkriptRegistration {
     public class ExpressionRegistrar<C extends Expression<? extends T>, T> extends SyntaxRegistrar<C> {
         private final Class<T> returnType;
         private final boolean isSingle;
+        private boolean pure;
 
         ExpressionRegistrar(Class<C> c, Class<T> returnType, boolean isSingle) {
             this(c, returnType, isSingle, new String[0]);
@@ -443,6 +456,19 @@ public class SkriptRegistration {
             this.isSingle = isSingle;
         }
 
+        /**
+         * Declares whether this expression is pure, meaning that its values only depend on the values of the
+         * expressions it is initialized with : it must not read variables, the {@link TriggerContext} or any other
+         * state, and must not have side effects. When all of its arguments are literals, a pure expression is
+         * evaluated once at parse time and replaced by its result.
+         * @param pure whether the expression is pure
+         * @return the registrar
+         */
+        public ExpressionRegistrar<C, T> setPure(boolean pure) {
+            this.pure = pure;
+            return this;
+        }
+
         public void register() {
             List<PatternElement> elements = new ArrayList<>();
             for (String s : super.patterns) {
@@ -456,7 +482,7 @@ public class SkriptRegistration {
                 logger.error("Couldn't find a type corresponding to the class '" + returnType.getName() + "'", ErrorType.NO_MATCH);
                 return;
             }
-            ExpressionInfo<C, T> info = new ExpressionInfo<>(super.c, elements, registerer, type, isSingle, super.priority);
+            ExpressionInfo<C, T> info = new ExpressionInfo<>(super.c, elements, registerer, type, isSingle, super.priority, pure);
             expressions.putOne(super.c, info);
         }
     }
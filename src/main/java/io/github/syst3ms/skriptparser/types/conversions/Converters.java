@@ -222,13 +222,14 @@ public abstract class Converters {
             return null;
         if (to.isAssignableFrom(o.getClass().getComponentType()))
             return (T[]) o;
-        List<T> l = new ArrayList<>(o.length);
+        T[] converted = (T[]) Array.newInstance(to, o.length);
+        int size = 0;
         for (Object e : o) {
             T c = convert(e, to);
             if (c != null)
-                l.add(c);
+                converted[size++] = c;
         }
-        return l.toArray((T[]) Array.newInstance(to, l.size()));
+        return size == converted.length ? converted : Arrays.copyOf(converted, size);
     }
 
     /**
@@ -246,13 +247,14 @@ public abstract class Converters {
         }
         if (to.isAssignableFrom(o.getClass().getComponentType()))
             return (T[]) o;
-        List<T> l = new ArrayList<>(o.length);
+        T[] converted = (T[]) Array.newInstance(superType, o.length);
+        int size = 0;
         for (Object e : o) {
             T c = convert(e, to);
             if (c != null)
-                l.add(c);
+                converted[size++] = c;
         }
-        return l.toArray((T[]) Array.newInstance(superType, l.size()));
+        return size == converted.length ? converted : Arrays.copyOf(converted, size);
     }
 
     private final static Map<Pair<Class<?>, Class<?>>, Function<?, ?>> convertersCache = new HashMap<>();
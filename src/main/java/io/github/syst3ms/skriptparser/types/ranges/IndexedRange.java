@@ -0,0 +1,47 @@
+package io.github.syst3ms.skriptparser.types.ranges;
+
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import io.github.syst3ms.skriptparser.types.comparisons.Relation;
+
+/**
+ * A range whose elements can be computed one at a time from their position in the range. Registering a range this way
+ * allows it to be looped over, counted or checked without ever creating an array of all of its elements.
+ * <br>
+ * The elements of the range must be in ascending order, so that the first and the last one bound all of the others.
+ * @param <B> the type of the two endpoints
+ * @param <T> the type of the elements of the range
+ * @see Ranges#registerRange(Class, Class, IndexedRange)
+ */
+public interface IndexedRange<B, T> {
+    /**
+     * @param lower the lower endpoint
+     * @param upper the upper endpoint
+     * @return the amount of elements between the two endpoints, or {@link Long#MAX_VALUE} if there are more than that
+     */
+    long size(B lower, B upper);
+
+    /**
+     * @param lower the lower endpoint
+     * @param index the position of the element, between 0 (inclusive) and the size of the range (exclusive)
+     * @return the element at the given position in the range
+     */
+    T get(B lower, long index);
+
+    /**
+     * Checks whether an element is part of the range. By default, this goes through the elements of the range until
+     * one of them is equal to the given element, but ranges should override it to only compare it with the endpoints
+     * when they can.
+     * @param lower the lower endpoint
+     * @param upper the upper endpoint
+     * @param element the element to look for
+     * @return whether the range contains the element
+     */
+    default boolean contains(B lower, B upper, Object element) {
+        long size = size(lower, upper);
+        for (long i = 0; i < size; i++) {
+            if (Relation.EQUAL.is(Comparators.compare(get(lower, i), element)))
+                return true;
+        }
+        return false;
+    }
+}
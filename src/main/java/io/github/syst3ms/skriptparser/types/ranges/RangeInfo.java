@@ -1,5 +1,7 @@
 package io.github.syst3ms.skriptparser.types.ranges;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.util.function.BiFunction;
 
 /**
@@ -11,11 +13,18 @@ public class RangeInfo<B, T> {
     private final Class<B> bound;
     private final Class<T> to;
     private final BiFunction<? super B, ? super B, T[]> function;
+    @Nullable
+    private final IndexedRange<B, T> indexedRange;
 
     public RangeInfo(Class<B> bound, Class<T> to, BiFunction<? super B, ? super B, T[]> function) {
+        this(bound, to, function, null);
+    }
+
+    public RangeInfo(Class<B> bound, Class<T> to, BiFunction<? super B, ? super B, T[]> function, @Nullable IndexedRange<B, T> indexedRange) {
         this.bound = bound;
         this.to = to;
         this.function = function;
+        this.indexedRange = indexedRange;
     }
 
     public Class<B> getBound() {
@@ -29,4 +38,12 @@ public class RangeInfo<B, T> {
     public BiFunction<? super B, ? super B, T[]> getFunction() {
         return function;
     }
+
+    /**
+     * @return the lazy form of this range, or {@code null} if it can only be computed as a whole
+     */
+    @Nullable
+    public IndexedRange<B, T> getIndexedRange() {
+        return indexedRange;
+    }
 }
@@ -1,5 +1,8 @@
 package io.github.syst3ms.skriptparser.types.ranges;
 
+import io.github.syst3ms.skriptparser.parsing.SkriptRuntimeException;
+
+import java.lang.reflect.Array;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.BiFunction;
@@ -17,6 +20,30 @@ public class Ranges {
         );
     }
 
+    /**
+     * Registers a range that can be computed lazily. The array form of the range is derived from it.
+     * @param bound the class of the endpoints
+     * @param to the class of the elements of the range
+     * @param range the lazy form of the range
+     * @param <B> the type of the endpoints
+     * @param <T> the type of the elements of the range
+     */
+    @SuppressWarnings("unchecked")
+    public static <B, T> void registerRange(Class<B> bound, Class<T> to, IndexedRange<B, T> range) {
+        rangeMap.put(
+                bound,
+                new RangeInfo<>(bound, to, (l, r) -> {
+                    long size = range.size(l, r);
+                    if (size > Integer.MAX_VALUE - 8)
+                        throw new SkriptRuntimeException("The range is too large to be stored at once (" + size + " elements)");
+                    T[] elements = (T[]) Array.newInstance(to, (int) size);
+                    for (int i = 0; i < elements.length; i++)
+                        elements[i] = range.get(l, i);
+                    return elements;
+                }, range)
+        );
+    }
+
     @SuppressWarnings("unchecked")
     public static <B, T> RangeInfo<B, T> getRange(Class<B> bound) {
         for (Class<?> c : rangeMap.keySet()) {
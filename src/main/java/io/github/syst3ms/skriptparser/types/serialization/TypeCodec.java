@@ -0,0 +1,26 @@
+package io.github.syst3ms.skriptparser.types.serialization;
+
+import java.io.IOException;
+
+/**
+ * An interface describing how values of a type are written to and read from a compact binary form, for persisting or
+ * transferring them
+ * @param <T> the type
+ */
+public interface TypeCodec<T> {
+
+    /**
+     * Writes a value
+     * @param value the value
+     * @param out the output to write to
+     */
+    void write(T value, ValueOutput out);
+
+    /**
+     * Reads a value written by {@link #write(Object, ValueOutput)}
+     * @param in the input to read from
+     * @return the value
+     * @throws IOException if the input is malformed
+     */
+    T read(ValueInput in) throws IOException;
+}
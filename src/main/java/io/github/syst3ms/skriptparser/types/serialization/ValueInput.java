@@ -0,0 +1,133 @@
+package io.github.syst3ms.skriptparser.types.serialization;
+
+import io.github.syst3ms.skriptparser.types.Type;
+import io.github.syst3ms.skriptparser.types.TypeManager;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads values from bytes written by a {@link ValueOutput}
+ */
+public class ValueInput {
+    private final byte[] buffer;
+    private final int end;
+    private int position;
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * @param buffer the bytes, all of which are read
+     */
+    public ValueInput(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    /**
+     * @param buffer the bytes
+     * @param offset the position of the first byte to read
+     * @param length the number of bytes to read
+     */
+    public ValueInput(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * Reads a value written by {@link ValueOutput#writeValue(Object)}
+     * @return the value
+     * @throws IOException if the input is malformed, or the type of the value is unknown or has no {@link TypeCodec}
+     */
+    public Object readValue() throws IOException {
+        return read(readString());
+    }
+
+    /**
+     * Reads a value written by {@link ValueOutput#writeValue(Object, java.util.Map)}
+     * @param types the names of the types, in the order of their positions in the table the value was written with
+     * @return the value
+     * @throws IOException if the input is malformed, or the type of the value is unknown or has no {@link TypeCodec}
+     */
+    public Object readValue(List<String> types) throws IOException {
+        long id = readVarLong();
+        if (id < 0 || id >= types.size())
+            throw new IOException("Unknown type reference " + id);
+        return read(types.get((int) id));
+    }
+
+    private Object read(String name) throws IOException {
+        Type<?> type = TypeManager.getByExactName(name);
+        TypeCodec<?> codec = type == null ? null : type.getCodec();
+        if (codec == null)
+            throw new IOException("Values of type '" + name + "' can't be deserialized");
+        return codec.read(this);
+    }
+
+    public byte readByte() throws IOException {
+        if (position >= end)
+            throw new EOFException();
+        return buffer[position++];
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public double readDouble() throws IOException {
+        if (end - position < 8)
+            throw new EOFException();
+        long bits = 0;
+        for (int i = 0; i < 8; i++)
+            bits = bits << 8 | (buffer[position++] & 0xFF);
+        return Double.longBitsToDouble(bits);
+    }
+
+    public byte[] readBytes() throws IOException {
+        long length = readVarLong();
+        if (length < 0 || length > end - position)
+            throw new EOFException();
+        byte[] bytes = new byte[(int) length];
+        System.arraycopy(buffer, position, bytes, 0, bytes.length);
+        position += bytes.length;
+        return bytes;
+    }
+
+    public String readString() throws IOException {
+        long index = readVarLong();
+        if (index != 0) {
+            if (index > strings.size())
+                throw new IOException("Unknown string reference " + index);
+            return strings.get((int) index - 1);
+        }
+        String s = new String(readBytes(), StandardCharsets.UTF_8);
+        if (strings.size() < ValueOutput.MAX_STRINGS)
+            strings.add(s);
+        return s;
+    }
+
+    /**
+     * @return the number of bytes left to read
+     */
+    public int remaining() {
+        return end - position;
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.syst3ms.skriptparser.types.serialization;
+
+import io.github.syst3ms.skriptparser.types.Type;
+import io.github.syst3ms.skriptparser.types.TypeManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A growable buffer values are written to, in a compact binary form.
+ * <br>
+ * Integers are written as varints : 7 bits per byte, the highest bit telling whether more bytes follow, so that small
+ * values take a single byte. Signed integers are zigzag-encoded first, so that small negative values are small too.
+ * Strings are deduplicated : the first occurrence of a string is written in full and added to a table, and the next ones
+ * only write their position in the table. This makes repeated strings, like the names of types, nearly free.
+ * <br>
+ * Values of any type that has a {@link TypeCodec} are written by {@link #writeValue(Object)}, preceded by the name of
+ * their type, or by {@link #writeValue(Object, Map)}, preceded by the position of their type in a table kept aside, for
+ * streams holding too few values for the names of types to be worth repeating. The output can be
+ * {@linkplain #reset() reset} to start a new, independent stream, which must be read by a new {@link ValueInput}.
+ */
+public class ValueOutput {
+    /**
+     * The maximum number of strings in the table of a stream, beyond which new strings are always written in full
+     */
+    static final int MAX_STRINGS = 1 << 16;
+
+    private byte[] buffer;
+    private int size;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Class<?>, Type<?>> types = new HashMap<>();
+
+    public ValueOutput() {
+        this(256);
+    }
+
+    /**
+     * @param capacity the initial capacity of the buffer, in bytes
+     */
+    public ValueOutput(int capacity) {
+        buffer = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * @param value a value
+     * @return whether the value can be written by {@link #writeValue(Object)}
+     */
+    public boolean canWrite(Object value) {
+        Type<?> type = getType(value.getClass());
+        return type != null && type.getCodec() != null;
+    }
+
+    /**
+     * Writes a value, along with the name of its type
+     * @param value the value
+     * @throws IllegalArgumentException if the type of the value has no {@link TypeCodec}
+     */
+    public void writeValue(Object value) {
+        Type<?> type = getWritableType(value);
+        writeString(type.getBaseName());
+        write(type, value);
+    }
+
+    /**
+     * Writes a value, along with the position of the name of its type in the given table, which must be passed to
+     * {@link ValueInput#readValue(java.util.List)} as a list to read it back
+     * @param value the value
+     * @param types the positions of the names of types, which the type of the value is added to if it is missing
+     * @throws IllegalArgumentException if the type of the value has no {@link TypeCodec}
+     */
+    public void writeValue(Object value, Map<String, Integer> types) {
+        Type<?> type = getWritableType(value);
+        Integer id = types.get(type.getBaseName());
+        if (id == null) {
+            id = types.size();
+            types.put(type.getBaseName(), id);
+        }
+        writeVarLong(id);
+        write(type, value);
+    }
+
+    private Type<?> getWritableType(Object value) {
+        Type<?> type = getType(value.getClass());
+        if (type == null || type.getCodec() == null)
+            throw new IllegalArgumentException("Values of class " + value.getClass().getName() + " can't be serialized");
+        return type;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(Type<?> type, Object value) {
+        TypeCodec<Object> codec = (TypeCodec<Object>) type.getCodec();
+        assert codec != null;
+        codec.write(value, this);
+    }
+
+    @Nullable
+    private Type<?> getType(Class<?> c) {
+        Type<?> type = types.get(c);
+        if (type == null && !types.containsKey(c)) {
+            type = TypeManager.getByClass(c);
+            types.put(c, type);
+        }
+        return type;
+    }
+
+    public void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) b;
+    }
+
+    public void writeBoolean(boolean b) {
+        writeByte(b ? 1 : 0);
+    }
+
+    /**
+     * Writes a long as a varint, which is only compact for non-negative values
+     * @param value the value
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Writes a long as a zigzag-encoded varint, which is compact for values close to zero
+     * @param value the value
+     */
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        ensureCapacity(8);
+        for (int i = 56; i >= 0; i -= 8)
+            buffer[size++] = (byte) (bits >>> i);
+    }
+
+    /**
+     * Writes an array of bytes, preceded by its length
+     * @param bytes the bytes
+     */
+    public void writeBytes(byte[] bytes) {
+        writeVarLong(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /**
+     * Writes a string, or its position in the table of strings if it was written before
+     * @param s the string
+     */
+    public void writeString(String s) {
+        Integer index = strings.get(s);
+        if (index != null) {
+            writeVarLong(index + 1);
+            return;
+        }
+        writeVarLong(0);
+        writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        if (strings.size() < MAX_STRINGS)
+            strings.put(s, strings.size());
+    }
+
+    private void ensureCapacity(int length) {
+        if (size + length > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+    }
+
+    /**
+     * @return the number of bytes written since the output was created or reset
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a copy of the bytes written since the output was created or reset
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Discards the written bytes and the table of strings, keeping the buffer for the next stream
+     */
+    public void reset() {
+        size = 0;
+        strings.clear();
+    }
+}
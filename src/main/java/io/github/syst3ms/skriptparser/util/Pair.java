@@ -40,4 +40,9 @@ public class Pair<T, U> {
         return first.equals(pair.first) &&
                 second.equals(pair.second);
     }
+
+    @Override
+    public int hashCode() {
+        return 31 * first.hashCode() + second.hashCode();
+    }
 }
@@ -0,0 +1,111 @@
+package io.github.syst3ms.skriptparser.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility functions for durations and other time-related values
+ */
+public class TimeUtils {
+    private static final Pattern DURATION_PATTERN = Pattern.compile("(?i)(an?|\\d+(?:\\.\\d+)?) (millisecond|second|minute|hour|day)s?");
+    private static final TimeUnit[] UNITS = {TimeUnit.DAYS, TimeUnit.HOURS, TimeUnit.MINUTES, TimeUnit.SECONDS, TimeUnit.MILLISECONDS};
+    private static final String[] UNIT_NAMES = {"day", "hour", "minute", "second", "millisecond"};
+    private static final Pattern TIME_PATTERN = Pattern.compile("(\\d{1,2}):(\\d{2})(?::(\\d{2}))?");
+    private static final Pattern TWELVE_HOUR_TIME_PATTERN = Pattern.compile("(?i)(\\d{1,2})(?::(\\d{2}))? ?([ap])\\.?m\\.?");
+
+    /**
+     * Parses a duration of the form {@code <amount> <unit>}, like {@code 5 seconds}, {@code 1.5 hours} or {@code a day}
+     * @param s the string to parse
+     * @return the duration, or {@code null} if the string isn't a valid duration
+     */
+    @Nullable
+    public static Duration parseDuration(String s) {
+        Matcher m = DURATION_PATTERN.matcher(s.trim());
+        if (!m.matches())
+            return null;
+        String amount = m.group(1);
+        String unit = m.group(2).toLowerCase();
+        BigDecimal value = Character.isDigit(amount.charAt(0)) ? new BigDecimal(amount) : BigDecimal.ONE;
+        for (int i = 0; i < UNITS.length; i++) {
+            if (UNIT_NAMES[i].equals(unit)) {
+                BigDecimal millis = value.multiply(BigDecimal.valueOf(UNITS[i].toMillis(1)));
+                try {
+                    return Duration.ofMillis(millis.longValueExact());
+                } catch (ArithmeticException e) { // Too large, or less than a millisecond
+                    return millis.compareTo(BigDecimal.ONE) < 0 ? Duration.ZERO : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param duration the duration
+     * @return a readable representation of the duration, using the largest unit it is a whole amount of, like
+     * {@code 90 seconds} or {@code 2 hours}
+     */
+    public static String toString(Duration duration) {
+        long millis = duration.toMillis();
+        for (int i = 0; i < UNITS.length; i++) {
+            long unit = UNITS[i].toMillis(1);
+            if (millis % unit == 0) {
+                long amount = millis / unit;
+                return amount + " " + UNIT_NAMES[i] + (amount == 1 ? "" : "s");
+            }
+        }
+        throw new AssertionError();
+    }
+
+    /**
+     * Parses a time of day, either on a 24-hour clock like {@code 18:30} or {@code 6:05:30}, on a 12-hour clock like
+     * {@code 6pm} or {@code 6:30 am}, or as {@code noon} or {@code midnight}
+     * @param s the string to parse
+     * @return the time, or {@code null} if the string isn't a valid time
+     */
+    @Nullable
+    public static LocalTime parseTime(String s) {
+        s = s.trim();
+        if (s.equalsIgnoreCase("noon")) {
+            return LocalTime.NOON;
+        } else if (s.equalsIgnoreCase("midnight")) {
+            return LocalTime.MIDNIGHT;
+        }
+        Matcher m = TIME_PATTERN.matcher(s);
+        if (m.matches()) {
+            int hour = Integer.parseInt(m.group(1));
+            int minute = Integer.parseInt(m.group(2));
+            int second = m.group(3) == null ? 0 : Integer.parseInt(m.group(3));
+            return hour < 24 && minute < 60 && second < 60 ? LocalTime.of(hour, minute, second) : null;
+        }
+        m = TWELVE_HOUR_TIME_PATTERN.matcher(s);
+        if (m.matches()) {
+            int hour = Integer.parseInt(m.group(1));
+            int minute = m.group(2) == null ? 0 : Integer.parseInt(m.group(2));
+            if (hour < 1 || hour > 12 || minute >= 60)
+                return null;
+            hour %= 12;
+            if (m.group(3).equalsIgnoreCase("p"))
+                hour += 12;
+            return LocalTime.of(hour, minute);
+        }
+        return null;
+    }
+
+    /**
+     * @param duration the duration
+     * @return the duration in nanoseconds, saturated to {@link Long#MAX_VALUE} if it is too long
+     */
+    public static long toNanosSaturated(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the variables of a map that were set to expire
+ */
+public class ExpiryStatistics {
+    private static final long SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder expired = new LongAdder();
+    // Only modified while holding the lock of the variable map
+    private volatile long expiring;
+    private long sampleTime = System.nanoTime();
+    private long sampleCount;
+    private double rate;
+
+    void scheduled() {
+        expiring++;
+    }
+
+    void cancelled() {
+        expiring--;
+    }
+
+    void expired() {
+        expiring--;
+        expired.increment();
+    }
+
+    /**
+     * @return the number of variables that are waiting to expire
+     */
+    public long getExpiring() {
+        return expiring;
+    }
+
+    /**
+     * @return the number of variables that expired
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * The rate of expirations is sampled at most once per second, so that polling it more often returns the same value
+     * @return the average number of variables that expired per second, between the last two samples
+     */
+    public synchronized double getExpirationRate() {
+        long now = System.nanoTime();
+        if (now - sampleTime >= SAMPLE_NANOS) {
+            long count = expired.sum();
+            rate = (count - sampleCount) * (double) SAMPLE_NANOS / (now - sampleTime);
+            sampleTime = now;
+            sampleCount = count;
+        }
+        return rate;
+    }
+
+    @Override
+    public String toString() {
+        return getExpiring() + " expiring, " + getExpired() + " expired, " + getExpirationRate() + " expirations/s";
+    }
+}
@@ -0,0 +1,303 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.serialization.ValueInput;
+import io.github.syst3ms.skriptparser.types.serialization.ValueOutput;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of variables that is read in place, through a memory mapping of its file, instead of being loaded.
+ * <br>
+ * The file starts with a header, followed by a block of values, an index block and a block of types. The index block
+ * starts with a table of the positions of the keys, and then the keys themselves, sorted by their UTF-8 bytes, each
+ * followed by the position and length of its value. Looking up a variable is a binary search over the table, and the
+ * elements of a list are the contiguous range of keys starting with its prefix. Values are written by
+ * {@link ValueOutput}, each as a stream of its own, so that any of them can be read without reading the others. Rather
+ * than the name of its type, every value starts with the position of that name in the block of types.
+ * <br>
+ * Opening a snapshot only reads its header and its types, regardless of the number of variables it holds : the
+ * operating system pages in the parts of the file that are actually read. The blocks of values and keys must be smaller
+ * than 2 GiB.
+ */
+final class MappedSnapshot {
+    static final int MAGIC = 0x534B5649; // "SKVI"
+    private static final int HEADER = 28;
+
+    private final ByteBuffer values;
+    private final ByteBuffer index;
+    private final int count;
+    private final List<String> types;
+
+    private MappedSnapshot(ByteBuffer values, ByteBuffer index, int count, List<String> types) {
+        this.values = values;
+        this.index = index;
+        this.count = count;
+        this.types = types;
+    }
+
+    /**
+     * Maps a snapshot file
+     * @param file the file
+     * @return the snapshot
+     * @throws IOException if the file isn't a complete snapshot, or couldn't be mapped
+     */
+    static MappedSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header) == -1)
+                    throw new IOException("Incomplete variable snapshot : " + file);
+            }
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not a variable snapshot : " + file);
+            int count = header.getInt();
+            long valuesLength = header.getLong();
+            long indexLength = header.getLong();
+            int typesLength = header.getInt();
+            if (count < 0 || valuesLength < 0 || indexLength < 4L * count || typesLength < 0
+                    || HEADER + valuesLength + indexLength + typesLength != channel.size())
+                throw new IOException("Incomplete variable snapshot : " + file);
+            if (valuesLength > Integer.MAX_VALUE || indexLength > Integer.MAX_VALUE)
+                throw new IOException("Variable snapshot too large to be mapped : " + file);
+            ByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, valuesLength);
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + valuesLength, indexLength);
+            ByteBuffer typeBlock = ByteBuffer.allocate(typesLength);
+            while (typeBlock.hasRemaining()) {
+                if (channel.read(typeBlock, HEADER + valuesLength + indexLength + typeBlock.position()) == -1)
+                    throw new IOException("Incomplete variable snapshot : " + file);
+            }
+            return new MappedSnapshot(values, index, count, readTypes(typeBlock.array()));
+        }
+    }
+
+    private static List<String> readTypes(byte[] block) throws IOException {
+        ValueInput in = new ValueInput(block);
+        List<String> types = new ArrayList<>();
+        while (in.remaining() > 0)
+            types.add(in.readString());
+        return types;
+    }
+
+    /**
+     * @return the names of the types of the values in this snapshot, in the order of their positions
+     */
+    List<String> getTypes() {
+        return types;
+    }
+
+    /**
+     * @return the number of variables in this snapshot
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * @param key the UTF-8 bytes of a name
+     * @return the position of the variable with this name, or {@code -1} if there is none
+     */
+    int find(byte[] key) {
+        int i = lowerBound(key);
+        return i < count && compare(i, key) == 0 ? i : -1;
+    }
+
+    /**
+     * @param prefix the UTF-8 bytes of a prefix
+     * @return the positions of the first variable whose name starts with the prefix and of the first variable after
+     * it whose name doesn't
+     */
+    int[] range(byte[] prefix) {
+        // No UTF-8 byte is 0xFF, so this sorts right after every name starting with the prefix
+        byte[] after = Arrays.copyOf(prefix, prefix.length + 1);
+        after[prefix.length] = (byte) 0xFF;
+        return new int[] {lowerBound(prefix), lowerBound(after)};
+    }
+
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int i, byte[] key) {
+        int position = index.getInt(4 * i);
+        int length = index.getInt(position);
+        position += 4;
+        int common = Math.min(length, key.length);
+        for (int j = 0; j < common; j++) {
+            int c = index.get(position + j) & 0xFF;
+            int d = key[j] & 0xFF;
+            if (c != d)
+                return c - d;
+        }
+        return length - key.length;
+    }
+
+    /**
+     * @param i the position of a variable
+     * @return the UTF-8 bytes of its name
+     */
+    byte[] getKey(int i) {
+        int position = index.getInt(4 * i);
+        byte[] key = new byte[index.getInt(position)];
+        ByteBuffer buffer = index.duplicate();
+        buffer.position(position + 4);
+        buffer.get(key);
+        return key;
+    }
+
+    String getName(int i) {
+        return new String(getKey(i), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param i the position of a variable
+     * @return the serialized form of its value, as a buffer of its own
+     */
+    ByteBuffer getRawValue(int i) {
+        int position = index.getInt(4 * i);
+        position += 4 + index.getInt(position);
+        int offset = (int) index.getLong(position);
+        int length = index.getInt(position + 8);
+        ByteBuffer buffer = values.duplicate();
+        buffer.position(offset).limit(offset + length);
+        return buffer.slice();
+    }
+
+    /**
+     * @param i the position of a variable
+     * @return its value
+     * @throws IOException if the value couldn't be deserialized
+     */
+    Object readValue(int i) throws IOException {
+        ByteBuffer raw = getRawValue(i);
+        byte[] bytes = new byte[raw.remaining()];
+        raw.get(bytes);
+        return new ValueInput(bytes).readValue(types);
+    }
+
+    /**
+     * Writes a snapshot file. Values are written to the file as they are added, while the index and the types are kept
+     * in memory until the snapshot is {@linkplain #close() closed}.
+     */
+    static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final Map<String, Integer> types = new LinkedHashMap<>();
+        private final ByteArrayOutputStream keys = new ByteArrayOutputStream(8192);
+        private final DataOutputStream keysOut = new DataOutputStream(keys);
+        private int[] positions = new int[256];
+        private int count;
+        private long valuesLength;
+        @Nullable
+        private byte[] lastKey;
+
+        /**
+         * @param channel the channel of the file
+         * @param types the types of an earlier snapshot, which keep their position so that its values can be
+         *              {@linkplain #add(byte[], ByteBuffer) added} as they are
+         * @throws IOException if the file couldn't be written
+         */
+        Writer(FileChannel channel, List<String> types) throws IOException {
+            this.channel = channel;
+            for (String type : types)
+                this.types.put(type, this.types.size());
+            channel.position(HEADER);
+        }
+
+        /**
+         * @return the positions of the names of the types of the values, to be passed to
+         * {@link ValueOutput#writeValue(Object, Map)}
+         */
+        Map<String, Integer> getTypes() {
+            return types;
+        }
+
+        /**
+         * Adds a variable. Variables must be added in the order of the UTF-8 bytes of their names.
+         * @param key the UTF-8 bytes of the name
+         * @param value the serialized value, which is consumed
+         * @throws IOException if the value couldn't be written
+         */
+        void add(byte[] key, ByteBuffer value) throws IOException {
+            assert lastKey == null || compareKeys(lastKey, key) < 0;
+            lastKey = key;
+            if (count == positions.length)
+                positions = Arrays.copyOf(positions, count * 2);
+            positions[count++] = keys.size();
+            int length = value.remaining();
+            keysOut.writeInt(key.length);
+            keysOut.write(key);
+            keysOut.writeLong(valuesLength);
+            keysOut.writeInt(length);
+            while (value.hasRemaining())
+                channel.write(value);
+            valuesLength += length;
+        }
+
+        /**
+         * Writes the index and the header. The snapshot still has to be forced to the disk.
+         */
+        @Override
+        public void close() throws IOException {
+            long tableLength = 4L * count;
+            ByteBuffer table = ByteBuffer.allocate((int) tableLength);
+            for (int i = 0; i < count; i++)
+                table.putInt((int) (tableLength + positions[i]));
+            table.flip();
+            while (table.hasRemaining())
+                channel.write(table);
+            ByteBuffer block = ByteBuffer.wrap(keys.toByteArray());
+            while (block.hasRemaining())
+                channel.write(block);
+            // The map keeps the order of insertion, which is the order of the positions
+            ValueOutput typesOut = new ValueOutput();
+            for (String type : types.keySet())
+                typesOut.writeString(type);
+            ByteBuffer typeBlock = ByteBuffer.wrap(typesOut.toByteArray());
+            while (typeBlock.hasRemaining())
+                channel.write(typeBlock);
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putInt(count).putLong(valuesLength).putLong(tableLength + keys.size()).putInt(typesOut.size()).flip();
+            long position = 0;
+            while (header.hasRemaining())
+                position += channel.write(header, position);
+        }
+    }
+
+    /**
+     * Compares the UTF-8 bytes of two names, as unsigned bytes
+     */
+    static int compareKeys(byte[] first, byte[] second) {
+        int common = Math.min(first.length, second.length);
+        for (int i = 0; i < common; i++) {
+            int c = first[i] & 0xFF;
+            int d = second[i] & 0xFF;
+            if (c != d)
+                return c - d;
+        }
+        return first.length - second.length;
+    }
+}
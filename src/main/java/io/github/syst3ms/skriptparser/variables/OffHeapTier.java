@@ -0,0 +1,159 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.serialization.TypeCodec;
+import io.github.syst3ms.skriptparser.types.serialization.ValueInput;
+import io.github.syst3ms.skriptparser.types.serialization.ValueOutput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Moves the elements of large lists that aren't accessed out of the heap, so that they don't weigh on the garbage
+ * collector.
+ * <br>
+ * Lists are moved as a whole, by {@linkplain Variables#sweepColdLists() sweeps} that are meant to be run periodically.
+ * Accessing the elements of a list marks it, and a sweep moves every list that wasn't marked since the previous sweep,
+ * and clears the marks of the others. The elements of a moved list are serialized with the {@link TypeCodec}s of their
+ * types into a direct {@link ByteBuffer}, and the list is moved back into the heap the next time its elements are
+ * accessed. Only lists with enough elements are moved, and only if none of their elements is itself a list, and all of
+ * them have a codec.
+ * <br>
+ * The memory of a direct buffer is only released once the buffer is garbage collected, which may take a while after
+ * its list was moved back.
+ */
+public class OffHeapTier {
+    private final int minimumSize;
+    // Only modified while holding the lock of the variable map
+    private volatile long offHeapLists;
+    private volatile long offHeapElements;
+    private volatile long offHeapBytes;
+    private volatile long heapLists;
+    private volatile long heapElements;
+    private volatile long demotions;
+    private volatile long promotions;
+    private volatile long sweeps;
+
+    /**
+     * @param minimumSize the minimum number of elements of a list for it to be moved out of the heap
+     */
+    public OffHeapTier(int minimumSize) {
+        if (minimumSize <= 0)
+            throw new IllegalArgumentException("The minimum size must be positive");
+        this.minimumSize = minimumSize;
+    }
+
+    public int getMinimumSize() {
+        return minimumSize;
+    }
+
+    /**
+     * @return the number of lists whose elements are out of the heap
+     */
+    public long getOffHeapLists() {
+        return offHeapLists;
+    }
+
+    /**
+     * @return the number of elements out of the heap
+     */
+    public long getOffHeapElements() {
+        return offHeapElements;
+    }
+
+    /**
+     * @return the number of bytes of direct memory holding elements
+     */
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    /**
+     * @return the number of lists whose elements were in the heap, as of the last sweep
+     */
+    public long getHeapLists() {
+        return heapLists;
+    }
+
+    /**
+     * @return the number of elements of lists that were in the heap, as of the last sweep
+     */
+    public long getHeapElements() {
+        return heapElements;
+    }
+
+    /**
+     * @return the number of times a list was moved out of the heap
+     */
+    public long getDemotions() {
+        return demotions;
+    }
+
+    /**
+     * @return the number of times a list was moved back into the heap
+     */
+    public long getPromotions() {
+        return promotions;
+    }
+
+    /**
+     * @return the number of sweeps that were run
+     */
+    public long getSweeps() {
+        return sweeps;
+    }
+
+    Block demote(ValueOutput out, int count, boolean dense) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(out.size());
+        buffer.put(out.toByteArray()).flip();
+        offHeapLists++;
+        offHeapElements += count;
+        offHeapBytes += buffer.capacity();
+        demotions++;
+        return new Block(buffer, count, dense);
+    }
+
+    void promote(Block block) {
+        release(block);
+        promotions++;
+    }
+
+    /*
+     * Forgets a block whose list was deleted, or moved back into the heap
+     */
+    void release(Block block) {
+        offHeapLists--;
+        offHeapElements -= block.count;
+        offHeapBytes -= block.buffer.capacity();
+    }
+
+    void swept(long heapLists, long heapElements) {
+        this.heapLists = heapLists;
+        this.heapElements = heapElements;
+        sweeps++;
+    }
+
+    /**
+     * The elements of a list, out of the heap. They are written as a single stream : the name of each element, unless
+     * the names are the indexes {@code 1} to {@code count}, followed by its value.
+     */
+    final class Block {
+        private final ByteBuffer buffer;
+        final int count;
+        final boolean dense;
+
+        private Block(ByteBuffer buffer, int count, boolean dense) {
+            this.buffer = buffer;
+            this.count = count;
+            this.dense = dense;
+        }
+
+        OffHeapTier getTier() {
+            return OffHeapTier.this;
+        }
+
+        ValueInput read() {
+            byte[] bytes = new byte[buffer.capacity()];
+            buffer.duplicate().get(bytes);
+            return new ValueInput(bytes);
+        }
+    }
+}
@@ -1,18 +1,126 @@
 package io.github.syst3ms.skriptparser.variables;
 
+import io.github.syst3ms.skriptparser.execution.TimerWheel;
+import io.github.syst3ms.skriptparser.types.comparisons.Comparator;
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import io.github.syst3ms.skriptparser.types.comparisons.Relation;
+import io.github.syst3ms.skriptparser.types.serialization.ValueInput;
+import io.github.syst3ms.skriptparser.types.serialization.ValueOutput;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
+/**
+ * A tree of variables, keyed by the segments of their names between list separators.
+ * <br>
+ * Every variable is stored exactly once, in the node of its name : {@code {a::b::c}} is the value of the node {@code c},
+ * child of {@code b}, child of {@code a}. A node holds both its own value and its children, so that {@code {a::b}} and
+ * {@code {a::b::*}} can coexist. Direct lookups walk down the segments of the name, list lookups return a view of the
+ * children of a node, and deleting a list simply drops the children of its node.
+ * <br>
+ * The children of a node are kept in an array, rather than a map, as long as their names are the contiguous indexes
+ * {@code 1, 2, ..., n}, which is how lists are built by adding or setting values. Looking up, appending or iterating
+ * over their elements then involves no hashing, and {@linkplain #appendVariable(String, Object) appending} an element
+ * doesn't need to look for a free index. Removing an element that isn't the last one leaves a hole in the array, which
+ * only turns into a map once more than half of it is made of holes. Writing any other name turns the array into a map
+ * for good.
+ * <br>
+ * Either way, the children of a node are sorted by {@link #INDEX_ORDER}, which puts numeric names in numeric order, so
+ * that lists are iterated over in the order of their indexes. Views of a list are {@link SortedMap sorted maps}, which
+ * allows iterating over a range of indexes without going through the whole list. Iterating over a view reads a
+ * snapshot of the names of the elements, taken without copying anything : the array or map of a node is instead copied
+ * the next time it is modified, if a snapshot of it was taken in the meantime.
+ * <br>
+ * The map can be backed by a {@link MappedSnapshot}, which holds the variables that weren't accessed since it was
+ * opened. A variable is loaded into the tree the first time it is read, and a list with all of its elements, while
+ * writing a variable or deleting a list only marks the corresponding entries of the snapshot as overwritten. Once an
+ * entry is loaded or overwritten, the tree is the only place the variable is looked up in.
+ * <br>
+ * A variable can be {@linkplain #setVariable(String, Object, long, TimerWheel) set to expire}, in which case it is
+ * deleted by a task of a {@link TimerWheel} once its deadline has passed, or when it is read after its deadline if that
+ * happens first. Setting or deleting the variable in any other way cancels its expiry.
+ */
 class VariableMap {
-    private static final Pattern listSplitPattern = Pattern.compile(Pattern.quote(Variables.LIST_SEPARATOR));
-    private final Map<String, Object> map = new HashMap<>(); // Ordering is not important right now
+    /**
+     * The order of the elements of a list : names made of digits come first, ordered by their numeric value, and then
+     * any other name, in lexicographic order
+     */
+    static final java.util.Comparator<String> INDEX_ORDER = VariableMap::compareSegments;
+    /*
+     * Longer durations would overflow the clock of the timer wheel, and are as good as forever anyway
+     */
+    private static final long MAX_TTL = Long.MAX_VALUE >> 2;
+
+    private final Node root = new Node();
+    @Nullable
+    private VariableStorage storage;
+    @Nullable
+    private MappedSnapshot snapshot;
+    /*
+     * The entries of the snapshot that were loaded into the tree or overwritten
+     */
+    @Nullable
+    private BitSet loaded;
+    private int unloaded;
+    private boolean reportedFailure;
+    private final ExpiryStatistics expiryStatistics = new ExpiryStatistics();
+    @Nullable
+    private TimerWheel wheel;
 
-    private static String[] splitList(String name) {
-        return listSplitPattern.split(name);
+    /**
+     * @param storage the storage every change to this map is recorded to, or {@code null} for none
+     */
+    void setStorage(@Nullable VariableStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Backs this map by a snapshot, whose variables are loaded as they are accessed. The map must not hold any of the
+     * variables of the snapshot yet.
+     * @param snapshot the snapshot
+     */
+    void setSnapshot(MappedSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.loaded = new BitSet(snapshot.size());
+        this.unloaded = snapshot.size();
+        if (unloaded == 0)
+            releaseSnapshot();
+    }
+
+    /**
+     * @return the snapshot backing this map, or {@code null} if all of its variables were loaded or overwritten
+     */
+    @Nullable
+    MappedSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return a copy of the set of entries of the {@linkplain #getSnapshot() snapshot} that were loaded or overwritten
+     */
+    BitSet getLoadedEntries() {
+        return loaded == null ? new BitSet() : (BitSet) loaded.clone();
     }
 
     /**
@@ -21,88 +129,220 @@ class VariableMap {
 	 * @param name  The variable's name. Can be a "list variable::*" (<tt>value</tt> must be <tt>null</tt> in this case)
 	 * @param value The variable's value. Use <tt>null</tt> to delete the variable.
 	 */
-    @SuppressWarnings("unchecked")
     public void setVariable(String name, @Nullable Object value) {
-        if (!name.endsWith("*")) {
-            if (value == null) {
-                map.remove(name);
-            } else {
-                map.put(name, value);
-            }
-        }
-        String[] split = splitList(name);
-        Map<String, Object> parent = map;
-        for (int i = 0; i < split.length; i++) {
-            String n = split[i];
-            Object current = parent.get(n);
-            if (current == null) {
-                if (i == split.length - 1) {
-                    if (value != null) {
-                        parent.put(n, value);
-                    }
-                    break;
-                } else if (value != null) {
-                    parent.put(n, current = new HashMap<>());
-                    parent = (Map<String, Object>) current;
-                } else {
-                    break;
-                }
-            } else if (current instanceof Map) {
-                if (i == split.length - 1) {
-                    if (value == null) {
-                        ((Map<String, Object>) current).remove(null);
-                    } else {
-                        ((Map<String, Object>) current).put(null, value);
-                    }
-                    break;
-                } else if (i == split.length - 2 && split[i + 1].equals("*")) {
-                    assert value == null;
-                    deleteFromHashMap(String
-                        .join(Variables.LIST_SEPARATOR, Arrays.copyOfRange(split, 0, i + 1)), (Map<String, Object>) current);
-                    Object v = ((Map<String, Object>) current).get(null);
-                    if (v == null) {
-                        parent.remove(n);
-                    } else {
-                        parent.put(n, v);
-                    }
-                    break;
-                } else {
-                    parent = (Map<String, Object>) current;
-                }
+        boolean list = name.endsWith(Variables.LIST_SEPARATOR + "*");
+        assert !list || value == null;
+        if (storage != null)
+            storage.record(name, value);
+        String path = list ? name.substring(0, name.length() - Variables.LIST_SEPARATOR.length() - 1) : name;
+        if (snapshot != null) {
+            if (list) {
+                loadList(path, false);
             } else {
-                if (i == split.length - 1) {
-                    if (value == null) {
-                        parent.remove(n);
-                    } else {
-                        parent.put(n, value);
+                load(path, false);
+            }
+        }
+        if (value == null) {
+            delete(path, list);
+        } else {
+            put(path, value);
+        }
+    }
+
+    /**
+     * Replaces the elements of a list in a single walk down the tree, instead of setting each element by its full name.
+     * The values are named from {@code 1} upwards, arrays are set as lists of their own, named from {@code 0} upwards,
+     * and {@code null} values are skipped, leaving their index unused.
+     *
+     * @param name   the name of the list, ending with the list separator and an asterisk
+     * @param values the new elements of the list
+     */
+    public void setList(String name, Object[] values) {
+        assert name.endsWith(Variables.LIST_SEPARATOR + "*");
+        String path = name.substring(0, name.length() - Variables.LIST_SEPARATOR.length() - 1);
+        if (storage != null) {
+            storage.record(name, null);
+            String prefix = path + Variables.LIST_SEPARATOR;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] instanceof Object[]) {
+                    Object[] nested = (Object[]) values[i];
+                    for (int j = 0; j < nested.length; j++) {
+                        if (nested[j] != null)
+                            storage.record(prefix + (i + 1) + Variables.LIST_SEPARATOR + j, nested[j]);
                     }
-                    break;
-                } else if (value != null) {
-                    Map<String, Object> c = new HashMap<>();
-                    c.put(null, current);
-                    parent.put(n, c);
-                    parent = c;
-                } else {
-                    break;
+                } else if (values[i] != null) {
+                    storage.record(prefix + (i + 1), values[i]);
                 }
             }
         }
+        if (snapshot != null)
+            loadList(path, false);
+        Node node = root;
+        int start = 0;
+        while (true) {
+            int end = path.indexOf(Variables.LIST_SEPARATOR, start);
+            node = node.getOrCreateChild(end == -1 ? path.substring(start) : path.substring(start, end));
+            if (end == -1)
+                break;
+            start = end + Variables.LIST_SEPARATOR.length();
+        }
+        cancelExpiries(node);
+        node.setChildren(values);
+        if (node.isEmpty())
+            delete(path, true);
     }
 
-    @SuppressWarnings("unchecked")
-    private void deleteFromHashMap(String parent, Map<String, Object> current) {
-        for (Map.Entry<String, Object> e : current.entrySet()) {
-            if (e.getKey() == null) {
-                continue;
-            }
-            map.remove(parent + Variables.LIST_SEPARATOR + e.getKey());
-            Object val = e.getValue();
-            if (val instanceof Map) {
-                deleteFromHashMap(parent + Variables.LIST_SEPARATOR + e.getKey(), (Map<String, Object>) val);
+    /**
+     * Sets a variable that is deleted once the given duration has passed. Expiring variables aren't persisted.
+     *
+     * @param name  the name of the variable, which can't be a list variable
+     * @param value the value of the variable
+     * @param ttl   the duration after which the variable is deleted, in nanoseconds
+     * @param wheel the timer wheel the deletion is scheduled on, which is also the clock the deadline is read from
+     */
+    public void setVariable(String name, Object value, long ttl, TimerWheel wheel) {
+        assert !name.endsWith(Variables.LIST_SEPARATOR + "*");
+        if (storage != null)
+            storage.record(name, null);
+        if (snapshot != null)
+            load(name, false);
+        Node node = put(name, value);
+        this.wheel = wheel;
+        Expiry expiry = new Expiry(name);
+        ttl = Math.max(0, Math.min(ttl, MAX_TTL));
+        node.deadline = wheel.getTime() + ttl;
+        node.expiry = expiry.timeout = wheel.schedule(expiry, ttl, TimeUnit.NANOSECONDS);
+        expiryStatistics.scheduled();
+    }
+
+    /**
+     * @return the statistics of the variables of this map that were set to expire
+     */
+    ExpiryStatistics getExpiryStatistics() {
+        return expiryStatistics;
+    }
+
+    private void cancelExpiry(Node node) {
+        if (node.expiry != null) {
+            node.expiry.cancel();
+            node.expiry = null;
+            expiryStatistics.cancelled();
+        }
+    }
+
+    /*
+     * Cancels the expiry of every variable below a node, before its children are dropped. Children that were moved out
+     * of the heap never expire.
+     */
+    private void cancelExpiries(Node node) {
+        if (expiryStatistics.getExpiring() == 0 || node.cold != null)
+            return;
+        node.forEachChild((segment, child) -> {
+            cancelExpiry(child);
+            cancelExpiries(child);
+        });
+    }
+
+    /*
+     * Deletes a variable whose deadline has passed
+     */
+    private void expire(String path, Node node) {
+        assert node.expiry != null;
+        node.expiry.cancel();
+        node.expiry = null;
+        expiryStatistics.expired();
+        delete(path, false);
+    }
+
+    /**
+     * Deletes a variable once its deadline has passed, unless its expiry was cancelled in the meantime. The deletion
+     * waits for the lock of the map, which the thread setting the variable holds until the timeout is known.
+     */
+    private final class Expiry implements Runnable {
+        private final String path;
+        @Nullable
+        private TimerWheel.Timeout timeout;
+
+        Expiry(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public void run() {
+            synchronized (VariableMap.this) {
+                if (timeout == null || timeout.isCancelled())
+                    return;
+                Node node = find(path);
+                if (node != null && node.expiry == timeout)
+                    expire(path, node);
             }
         }
     }
 
+    @Nullable
+    private Node find(String path) {
+        Node node = root;
+        int start = 0;
+        while (node != null) {
+            int end = path.indexOf(Variables.LIST_SEPARATOR, start);
+            node = node.getChild(end == -1 ? path.substring(start) : path.substring(start, end));
+            if (end == -1)
+                break;
+            start = end + Variables.LIST_SEPARATOR.length();
+        }
+        return node;
+    }
+
+    private Node put(String path, Object value) {
+        Node parent = root;
+        Node node = root;
+        String segment;
+        int start = 0;
+        while (true) {
+            int end = path.indexOf(Variables.LIST_SEPARATOR, start);
+            segment = end == -1 ? path.substring(start) : path.substring(start, end);
+            parent = node;
+            node = node.getOrCreateChild(segment);
+            if (end == -1)
+                break;
+            start = end + Variables.LIST_SEPARATOR.length();
+        }
+        cancelExpiry(node);
+        parent.setChildValue(segment, node, value);
+        return node;
+    }
+
+    /*
+     * Deletes either the value or the children of a node, and then removes the nodes that became empty along the path
+     */
+    private void delete(String path, boolean children) {
+        int depth = 1;
+        for (int i = path.indexOf(Variables.LIST_SEPARATOR); i != -1; i = path.indexOf(Variables.LIST_SEPARATOR, i + Variables.LIST_SEPARATOR.length()))
+            depth++;
+        Node[] nodes = new Node[depth + 1];
+        String[] segments = new String[depth];
+        nodes[0] = root;
+        int start = 0;
+        for (int i = 0; i < depth; i++) {
+            int end = path.indexOf(Variables.LIST_SEPARATOR, start);
+            segments[i] = end == -1 ? path.substring(start) : path.substring(start, end);
+            nodes[i + 1] = nodes[i].getChild(segments[i]);
+            if (nodes[i + 1] == null)
+                return;
+            start = end + Variables.LIST_SEPARATOR.length();
+        }
+        Node node = nodes[depth];
+        if (children) {
+            cancelExpiries(node);
+            node.clearChildren();
+        } else {
+            cancelExpiry(node);
+            nodes[depth - 1].setChildValue(segments[depth - 1], node, null);
+        }
+        for (int i = depth; i > 0 && nodes[i].isEmpty(); i--)
+            nodes[i - 1].removeChild(segments[i - 1]);
+    }
+
     /**
 	 * Returns the internal value of the requested variable.
 	 * <p>
@@ -111,32 +351,1098 @@ class VariableMap {
 	 * @param name
 	 * @return an Object for a normal Variable or a Map<String, Object> for a list variable, or null if the variable is not set.
 	 */
-    @SuppressWarnings("unchecked")
     @Nullable
     public Object getVariable(String name) {
-        if (!name.endsWith("*")) {
-            return map.get(name);
+        boolean list = name.endsWith(Variables.LIST_SEPARATOR + "*");
+        String path = list ? name.substring(0, name.length() - Variables.LIST_SEPARATOR.length() - 1) : name;
+        if (snapshot != null) {
+            if (list) {
+                loadList(path, true);
+            } else {
+                load(path, true);
+            }
+        }
+        Node node = find(path);
+        if (node == null) {
+            return null;
+        } else if (list) {
+            return node.hasChildren() ? node.view(this) : null;
+        } else if (node.expiry != null && wheel != null && wheel.getTime() - node.deadline >= 0) {
+            // The timer wheel runs up to a tick late, and may not have caught up
+            expire(path, node);
+            return null;
         } else {
-            String[] split = splitList(name);
-            Map<String, Object> current = map;
-            for (int i = 0; i < split.length; i++) {
-                String n = split[i];
-                if (n.equals("*")) {
-                    assert i == split.length - 1;
-                    return current;
-                }
-                Object o = current.get(n);
-                if (o == null) {
-                    return null;
+            return node.value;
+        }
+    }
+
+    /**
+     * Adds a value to a list variable, at the lowest positive index that isn't used yet
+     *
+     * @param name  the name of the list variable, ending with "::*"
+     * @param value the value to add
+     * @return the index the value was added at
+     */
+    public int appendVariable(String name, Object value) {
+        assert name.endsWith(Variables.LIST_SEPARATOR + "*");
+        String path = name.substring(0, name.length() - Variables.LIST_SEPARATOR.length() - 1);
+        if (snapshot != null)
+            loadList(path, true);
+        Node node = root;
+        int start = 0;
+        while (true) {
+            int end = path.indexOf(Variables.LIST_SEPARATOR, start);
+            node = node.getOrCreateChild(end == -1 ? path.substring(start) : path.substring(start, end));
+            if (end == -1)
+                break;
+            start = end + Variables.LIST_SEPARATOR.length();
+        }
+        int index = node.nextIndex();
+        String segment = String.valueOf(index);
+        if (storage != null)
+            storage.record(path + Variables.LIST_SEPARATOR + segment, value);
+        node.setChildValue(segment, node.getOrCreateChild(segment), value);
+        return index;
+    }
+
+    /**
+     * Checks whether a list variable has an element equal to the given value, according to {@link Comparators}
+     *
+     * @param name  the name of the list variable, ending with "::*"
+     * @param value the value
+     * @return whether an element of the list is equal to the value
+     */
+    public boolean containsValue(String name, Object value) {
+        Node node = getListNode(name);
+        return node != null && !node.findValue(this, value, false).isEmpty();
+    }
+
+    /**
+     * Deletes the elements of a list variable that are equal to the given value, according to {@link Comparators}
+     *
+     * @param name  the name of the list variable, ending with "::*"
+     * @param value the value
+     * @param all   whether to delete all equal elements, rather than only the first one
+     * @return the number of deleted elements
+     */
+    public int removeValue(String name, Object value, boolean all) {
+        Node node = getListNode(name);
+        if (node == null)
+            return 0;
+        List<String> found = node.findValue(this, value, all);
+        if (found.isEmpty())
+            return 0;
+        String path = name.substring(0, name.length() - Variables.LIST_SEPARATOR.length() - 1);
+        for (String segment : found) {
+            if (storage != null)
+                storage.record(path + Variables.LIST_SEPARATOR + segment, null);
+            Node child = node.getChild(segment);
+            assert child != null;
+            cancelExpiry(child);
+            node.setChildValue(segment, child, null);
+            if (child.isEmpty())
+                node.removeChild(segment);
+        }
+        if (node.isEmpty())
+            delete(path, false); // Removes the nodes that became empty along the path
+        return found.size();
+    }
+
+    /**
+     * Passes every variable that is set to the given action, along with its full name. The variables of the tree are
+     * passed first, parents before their elements, and then the ones that are still only in the snapshot, which are
+     * read but not loaded.
+     *
+     * @param action the action
+     */
+    public void forEachVariable(BiConsumer<String, Object> action) {
+        root.forEachChild((segment, child) -> forEachVariable(segment, child, true, action));
+        if (snapshot == null)
+            return;
+        assert loaded != null;
+        for (int i = loaded.nextClearBit(0); i < snapshot.size(); i = loaded.nextClearBit(i + 1)) {
+            Object value = read(i);
+            if (value != null)
+                action.accept(snapshot.getName(i), value);
+        }
+    }
+
+    /**
+     * Passes every variable of the tree that doesn't expire to the given action, along with its full name, parents
+     * before their elements. The variables of the snapshot that weren't loaded are left out.
+     *
+     * @param action the action
+     */
+    void forEachLoadedVariable(BiConsumer<String, Object> action) {
+        root.forEachChild((segment, child) -> forEachVariable(segment, child, false, action));
+    }
+
+    private static void forEachVariable(String name, Node node, boolean expiring, BiConsumer<String, Object> action) {
+        if (node.value != null && (expiring || node.expiry == null))
+            action.accept(name, node.value);
+        String prefix = name + Variables.LIST_SEPARATOR;
+        node.forEachChild((segment, child) -> forEachVariable(prefix + segment, child, expiring, action));
+    }
+
+    /**
+     * Starts going over the same variables as {@link #forEachLoadedVariable(BiConsumer)}, in steps that can be spread
+     * over several times the lock of the map is held, so that walking over a large tree never holds it for long. Must
+     * be called while holding the lock.
+     *
+     * @return the walk
+     */
+    LoadedWalk walkLoadedVariables() {
+        return new LoadedWalk(root);
+    }
+
+    /**
+     * A walk over the variables of the tree that don't expire, whose every {@linkplain #step(int, BiConsumer) step}
+     * must be run while holding the lock of the map. The map can be modified between two steps : the children of every
+     * node are read from a snapshot taken when the walk reaches the node, the same way views of lists are iterated
+     * over, and values are read when the walk reaches their variable. A variable modified during the walk is thus seen
+     * with any of the values it had since the walk started, or not at all if it was set after its parent was reached.
+     */
+    static final class LoadedWalk {
+        private final Deque<String> prefixes = new ArrayDeque<>();
+        private final Deque<Iterator<Map.Entry<String, Node>>> children = new ArrayDeque<>();
+
+        private LoadedWalk(Node root) {
+            push("", root);
+        }
+
+        private void push(String prefix, Node node) {
+            Iterator<Map.Entry<String, Node>> iterator = node.snapshotChildren();
+            if (iterator.hasNext()) {
+                prefixes.push(prefix);
+                children.push(iterator);
+            }
+        }
+
+        /**
+         * Goes over the next variables of the walk
+         * @param count the maximum number of variables to go over
+         * @param action the action the variables are passed to, along with their full name
+         * @return whether the walk isn't over
+         */
+        boolean step(int count, BiConsumer<String, Object> action) {
+            while (count > 0 && !children.isEmpty()) {
+                Iterator<Map.Entry<String, Node>> iterator = children.peek();
+                if (!iterator.hasNext()) {
+                    prefixes.pop();
+                    children.pop();
+                    continue;
+                }
+                Map.Entry<String, Node> entry = iterator.next();
+                String name = prefixes.element() + entry.getKey();
+                Node node = entry.getValue();
+                if (node.value != null && node.expiry == null)
+                    action.accept(name, node.value);
+                count--;
+                push(name + Variables.LIST_SEPARATOR, node);
+            }
+            return !children.isEmpty();
+        }
+    }
+
+    /**
+     * Moves the lists that weren't accessed since the last sweep out of the heap, and clears the marks of the others
+     *
+     * @param tier the tier the lists are moved to
+     */
+    void sweep(OffHeapTier tier) {
+        ValueOutput out = new ValueOutput();
+        long[] heap = new long[2];
+        root.forEachChild((segment, child) -> sweep(child, tier, out, heap));
+        tier.swept(heap[0], heap[1]);
+    }
+
+    private static void sweep(Node node, OffHeapTier tier, ValueOutput out, long[] heap) {
+        if (node.cold != null || !node.hasChildren())
+            return;
+        if (!node.accessed && node.demote(tier, out))
+            return;
+        node.accessed = false;
+        heap[0]++;
+        heap[1] += node.childCount();
+        node.forEachChild((segment, child) -> sweep(child, tier, out, heap));
+    }
+
+    /**
+     * Moves all lists back into the heap
+     */
+    void promoteAll() {
+        root.forEachChild((segment, child) -> promoteAll(child));
+    }
+
+    private static void promoteAll(Node node) {
+        if (!node.hasChildren())
+            return;
+        node.access();
+        node.forEachChild((segment, child) -> promoteAll(child));
+    }
+
+    /*
+     * Loads a variable from the snapshot into the tree, or only marks it as overwritten
+     */
+    private void load(String name, boolean read) {
+        assert snapshot != null && loaded != null;
+        int i = snapshot.find(name.getBytes(StandardCharsets.UTF_8));
+        if (i != -1 && !loaded.get(i))
+            load(i, name, read);
+    }
+
+    /*
+     * Loads all the elements of a list from the snapshot into the tree, or only marks them as overwritten
+     */
+    private void loadList(String path, boolean read) {
+        assert snapshot != null && loaded != null;
+        MappedSnapshot base = snapshot;
+        int[] range = base.range((path + Variables.LIST_SEPARATOR).getBytes(StandardCharsets.UTF_8));
+        for (int i = loaded.nextClearBit(range[0]); i < range[1]; i = loaded.nextClearBit(i + 1)) {
+            load(i, read ? base.getName(i) : null, read);
+            // The last entry may have released the snapshot
+            if (loaded == null)
+                return;
+        }
+    }
+
+    private void load(int i, @Nullable String name, boolean read) {
+        assert loaded != null;
+        if (read) {
+            assert name != null;
+            Object value = read(i);
+            // A value that can't be read stays in the snapshot, so that it isn't lost
+            if (value == null)
+                return;
+            put(name, value);
+        }
+        loaded.set(i);
+        if (--unloaded == 0)
+            releaseSnapshot();
+    }
+
+    @Nullable
+    private Object read(int i) {
+        assert snapshot != null;
+        try {
+            return snapshot.readValue(i);
+        } catch (IOException e) {
+            if (!reportedFailure) {
+                reportedFailure = true;
+                System.err.println("Couldn't read the variable '" + snapshot.getName(i) + "' from the snapshot, and it will be ignored, like any other variable that can't be read. Stack trace :");
+                e.printStackTrace();
+            }
+            return null;
+        }
+    }
+
+    private void releaseSnapshot() {
+        snapshot = null;
+        loaded = null;
+    }
+
+    @Nullable
+    private Node getListNode(String name) {
+        assert name.endsWith(Variables.LIST_SEPARATOR + "*");
+        String path = name.substring(0, name.length() - Variables.LIST_SEPARATOR.length() - 1);
+        if (snapshot != null)
+            loadList(path, true);
+        return find(path);
+    }
+
+    /**
+     * @param segment a segment of a variable name
+     * @return the index the segment is the canonical form of, or {@code -1} if it isn't a positive integer written
+     * without leading zeros
+     */
+    static int parseIndex(String segment) {
+        int length = segment.length();
+        if (length == 0 || length > 9 || segment.charAt(0) == '0')
+            return -1;
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            char c = segment.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            index = index * 10 + c - '0';
+        }
+        return index;
+    }
+
+    private static int compareSegments(String first, String second) {
+        boolean firstNumeric = isNumeric(first);
+        if (firstNumeric != isNumeric(second))
+            return firstNumeric ? -1 : 1;
+        if (!firstNumeric)
+            return first.compareTo(second);
+        int firstStart = skipZeros(first);
+        int secondStart = skipZeros(second);
+        int firstLength = first.length() - firstStart;
+        int secondLength = second.length() - secondStart;
+        if (firstLength != secondLength)
+            return firstLength < secondLength ? -1 : 1;
+        for (int i = 0; i < firstLength; i++) {
+            char c = first.charAt(firstStart + i);
+            char d = second.charAt(secondStart + i);
+            if (c != d)
+                return c < d ? -1 : 1;
+        }
+        // Same numeric value, written with a different number of leading zeros
+        return Integer.compare(first.length(), second.length());
+    }
+
+    private static boolean isNumeric(String segment) {
+        if (segment.isEmpty())
+            return false;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
+    private static int skipZeros(String segment) {
+        int i = 0;
+        while (i < segment.length() - 1 && segment.charAt(i) == '0')
+            i++;
+        return i;
+    }
+
+    /**
+     * A node of the tree, holding the value of the variable of its name, if any, and the nodes of its elements
+     */
+    private static final class Node {
+        @Nullable
+        private Object value;
+        /*
+         * The children of this node, when they are kept in a map. At most one of children and elements is non-null.
+         */
+        @Nullable
+        private NavigableMap<String, Node> children;
+        /*
+         * The children of this node, when their names are indexes from 1 to size : the child named i is at index i - 1.
+         * The last element is never null, but the others are when their child was removed, and holes counts them.
+         */
+        @Nullable
+        private Node[] elements;
+        private int size;
+        private int holes;
+        /*
+         * Whether a view took a snapshot of the array or map of the children since it was last copied
+         */
+        private boolean shared;
+        /*
+         * The index of the values of the children, built the first time they are searched and kept up to date afterwards
+         */
+        @Nullable
+        private ValueIndex index;
+        /*
+         * The children of this node, when they were moved out of the heap. Then, children and elements are both null.
+         */
+        @Nullable
+        private OffHeapTier.Block cold;
+        /*
+         * The deletion of the value of this node, if it was set to expire, and the time at which it expires
+         */
+        @Nullable
+        private TimerWheel.Timeout expiry;
+        private long deadline;
+        /*
+         * Whether the children of this node were accessed since the last sweep
+         */
+        private boolean accessed;
+
+        /*
+         * Marks the children as accessed, and moves them back into the heap if they were moved out of it
+         */
+        void access() {
+            accessed = true;
+            if (cold != null)
+                promote();
+        }
+
+        private void promote() {
+            assert cold != null;
+            OffHeapTier.Block block = cold;
+            cold = null;
+            if (block.dense) {
+                elements = new Node[Math.max(4, block.count)];
+                size = block.count;
+            } else {
+                children = new TreeMap<>(INDEX_ORDER);
+            }
+            shared = false;
+            forEachColdChild(block, (segment, child) -> {
+                if (block.dense) {
+                    elements[parseIndex(segment) - 1] = child;
+                } else {
+                    children.put(segment, child);
+                }
+            });
+            block.getTier().promote(block);
+        }
+
+        private static void forEachColdChild(OffHeapTier.Block block, BiConsumer<String, Node> action) {
+            ValueInput in = block.read();
+            try {
+                for (int i = 0; i < block.count; i++) {
+                    Node child = new Node();
+                    String segment = block.dense ? String.valueOf(i + 1) : in.readString();
+                    child.value = in.readValue();
+                    action.accept(segment, child);
+                }
+            } catch (IOException e) {
+                // The values were written by the same codecs moments ago
+                throw new IllegalStateException("Couldn't read list elements moved out of the heap", e);
+            }
+        }
+
+        /*
+         * Moves the children out of the heap, if there are enough of them, they all have a value and no children of
+         * their own, and all of their values can be serialized
+         */
+        boolean demote(OffHeapTier tier, ValueOutput out) {
+            int count = childCount();
+            if (cold != null || count < tier.getMinimumSize())
+                return false;
+            out.reset();
+            boolean dense = elements != null && holes == 0;
+            if (elements != null) {
+                for (int i = 0; i < size; i++) {
+                    if (elements[i] != null && !writeColdChild(dense ? null : String.valueOf(i + 1), elements[i], out))
+                        return false;
+                }
+            } else {
+                assert children != null;
+                for (Map.Entry<String, Node> entry : children.entrySet()) {
+                    if (!writeColdChild(entry.getKey(), entry.getValue(), out))
+                        return false;
+                }
+            }
+            cold = tier.demote(out, count, dense);
+            children = null;
+            elements = null;
+            size = 0;
+            holes = 0;
+            shared = false;
+            index = null;
+            return true;
+        }
+
+        private static boolean writeColdChild(@Nullable String segment, Node child, ValueOutput out) {
+            if (child.hasChildren() || child.value == null || child.expiry != null || !out.canWrite(child.value))
+                return false;
+            if (segment != null)
+                out.writeString(segment);
+            out.writeValue(child.value);
+            return true;
+        }
+
+        void setChildValue(String segment, Node child, @Nullable Object value) {
+            if (index != null) {
+                if (child.value != null)
+                    index.remove(segment, child.value);
+                if (value != null)
+                    index.add(segment, value);
+            }
+            child.value = value;
+        }
+
+        /*
+         * The names of the children whose value is equal to the given one, in iteration order
+         */
+        List<String> findValue(Object lock, Object value, boolean all) {
+            access();
+            if (index == null) {
+                ValueIndex built = new ValueIndex();
+                forEachChild((segment, child) -> {
+                    if (child.value != null)
+                        built.add(segment, child.value);
+                });
+                index = built;
+            }
+            List<String> found = new ArrayList<>();
+            Collection<String> candidates = index.getCandidates(value);
+            if (candidates == null) {
+                forEachChild((segment, child) -> {
+                    if ((all || found.isEmpty()) && Relation.EQUAL.is(Comparators.compare(child.viewValue(lock), value)))
+                        found.add(segment);
+                });
+                return found;
+            }
+            for (String segment : candidates) {
+                Node child = getChild(segment);
+                if (child != null && Relation.EQUAL.is(Comparators.compare(child.viewValue(lock), value)))
+                    found.add(segment);
+            }
+            found.sort(INDEX_ORDER);
+            return all || found.size() <= 1 ? found : found.subList(0, 1);
+        }
+
+        /*
+         * Passes every child to the action, without moving them back into the heap if they were moved out of it
+         */
+        private void forEachChild(BiConsumer<String, Node> action) {
+            if (cold != null) {
+                forEachColdChild(cold, action);
+            } else if (elements != null) {
+                for (int i = 0; i < size; i++) {
+                    if (elements[i] != null)
+                        action.accept(String.valueOf(i + 1), elements[i]);
+                }
+            } else if (children != null) {
+                children.forEach(action);
+            }
+        }
+
+        /*
+         * Iterates over the children as they are now, however this node is modified afterwards : the array or map of
+         * the children is copied the next time it is modified, and the children that were moved out of the heap are
+         * read at once. Like the node itself, the iterator must only be used while holding the lock of the map.
+         */
+        private Iterator<Map.Entry<String, Node>> snapshotChildren() {
+            if (cold != null) {
+                List<Map.Entry<String, Node>> list = new ArrayList<>(cold.count);
+                forEachColdChild(cold, (segment, child) -> list.add(new AbstractMap.SimpleImmutableEntry<>(segment, child)));
+                return list.iterator();
+            } else if (elements != null) {
+                shared = true;
+                Node[] array = elements;
+                int end = size;
+                return new Iterator<Map.Entry<String, Node>>() {
+                    private int position;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (position < end && array[position] == null)
+                            position++;
+                        return position < end;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Node> next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        Node element = array[position++];
+                        return new AbstractMap.SimpleImmutableEntry<>(String.valueOf(position), element);
+                    }
+                };
+            } else if (children != null) {
+                shared = true;
+                return children.entrySet().iterator();
+            }
+            return Collections.emptyIterator();
+        }
+
+        @Nullable
+        Node getChild(String segment) {
+            access();
+            if (elements != null) {
+                int index = parseIndex(segment);
+                return index > 0 && index <= size ? elements[index - 1] : null;
+            }
+            return children == null ? null : children.get(segment);
+        }
+
+        Node getOrCreateChild(String segment) {
+            access();
+            if (elements != null) {
+                int index = parseIndex(segment);
+                if (index > 0 && index <= size) {
+                    Node child = elements[index - 1];
+                    if (child == null) {
+                        child = new Node();
+                        writableElements()[index - 1] = child;
+                        holes--;
+                    }
+                    return child;
+                } else if (index == size + 1) {
+                    return append();
+                }
+                toMap();
+            } else if (children == null) {
+                if (parseIndex(segment) == 1) {
+                    elements = new Node[4];
+                    shared = false;
+                    return append();
                 }
-                if (o instanceof Map) {
-                    current = (Map<String, Object>) o;
-                    assert i != split.length - 1;
+                children = new TreeMap<>(INDEX_ORDER);
+                shared = false;
+            }
+            Node child = children.get(segment);
+            if (child == null) {
+                child = new Node();
+                writableChildren().put(segment, child);
+            }
+            return child;
+        }
+
+        private NavigableMap<String, Node> writableChildren() {
+            assert children != null;
+            if (shared) {
+                children = new TreeMap<>(children);
+                shared = false;
+            }
+            return children;
+        }
+
+        private Node[] writableElements() {
+            assert elements != null;
+            if (shared) {
+                elements = elements.clone();
+                shared = false;
+            }
+            return elements;
+        }
+
+        private Node append() {
+            assert elements != null;
+            if (size == elements.length)
+                elements = Arrays.copyOf(elements, size * 2);
+            Node child = new Node();
+            elements[size++] = child;
+            return child;
+        }
+
+        /*
+         * Moves the elements to a map, once the names of the children stop being indexes, or too many of them are missing
+         */
+        private void toMap() {
+            assert elements != null;
+            NavigableMap<String, Node> map = new TreeMap<>(INDEX_ORDER);
+            for (int i = 0; i < size; i++) {
+                if (elements[i] != null)
+                    map.put(String.valueOf(i + 1), elements[i]);
+            }
+            children = map;
+            elements = null;
+            size = 0;
+            holes = 0;
+            shared = false;
+        }
+
+        void removeChild(String segment) {
+            access();
+            if (elements != null) {
+                int index = parseIndex(segment);
+                if (index <= 0 || index > size || elements[index - 1] == null) {
+                    return;
+                } else if (index < size && (holes + 1) * 2 > size) {
+                    toMap();
                 } else {
+                    // Appending doesn't affect snapshots, as they only go up to the size they were taken at
+                    Node[] array = writableElements();
+                    array[index - 1] = null;
+                    if (index < size) {
+                        holes++;
+                        return;
+                    }
+                    size--;
+                    while (size > 0 && array[size - 1] == null) {
+                        size--;
+                        holes--;
+                    }
+                    if (size == 0)
+                        elements = null;
+                    return;
+                }
+            }
+            if (children != null && children.containsKey(segment)) {
+                writableChildren().remove(segment);
+                if (children.isEmpty())
+                    children = null;
+            }
+        }
+
+        void clearChildren() {
+            if (cold != null) {
+                cold.getTier().release(cold);
+                cold = null;
+            }
+            index = null;
+            children = null;
+            elements = null;
+            size = 0;
+            holes = 0;
+            shared = false;
+        }
+
+        /*
+         * Replaces the children with the given values, as described by VariableMap#setList. When none of them is null
+         * or an array, the array of elements is filled directly.
+         */
+        void setChildren(Object[] values) {
+            clearChildren();
+            accessed = true;
+            boolean dense = values.length > 0;
+            for (Object value : values) {
+                if (value == null || value instanceof Object[]) {
+                    dense = false;
+                    break;
+                }
+            }
+            if (dense) {
+                elements = new Node[Math.max(4, values.length)];
+                for (int i = 0; i < values.length; i++) {
+                    Node child = new Node();
+                    child.value = values[i];
+                    elements[i] = child;
+                }
+                size = values.length;
+                return;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] instanceof Object[]) {
+                    Object[] nested = (Object[]) values[i];
+                    Node child = null;
+                    for (int j = 0; j < nested.length; j++) {
+                        if (nested[j] != null) {
+                            if (child == null)
+                                child = getOrCreateChild(String.valueOf(i + 1));
+                            child.getOrCreateChild(String.valueOf(j)).value = nested[j];
+                        }
+                    }
+                } else if (values[i] != null) {
+                    getOrCreateChild(String.valueOf(i + 1)).value = values[i];
+                }
+            }
+        }
+
+        boolean hasChildren() {
+            return children != null || elements != null || cold != null;
+        }
+
+        int childCount() {
+            if (cold != null)
+                return cold.count;
+            return elements != null ? size - holes : children == null ? 0 : children.size();
+        }
+
+        /*
+         * The lowest positive index that isn't the name of a child
+         */
+        int nextIndex() {
+            access();
+            if (elements != null) {
+                for (int i = 0; holes > 0 && i < size; i++) {
+                    if (elements[i] == null)
+                        return i + 1;
+                }
+                return size + 1;
+            }
+            int index = 1;
+            if (children != null) {
+                while (children.containsKey(String.valueOf(index)))
+                    index++;
+            }
+            return index;
+        }
+
+        boolean isEmpty() {
+            return value == null && !hasChildren();
+        }
+
+        /*
+         * A node with children is seen as its elements, where elements that have elements of their own are themselves
+         * seen as maps, holding their own value under the null key
+         */
+        SortedMap<String, Object> view(Object lock) {
+            return new NodeView(lock, this, null, null);
+        }
+
+        @Nullable
+        Object viewValue(Object lock) {
+            return hasChildren() ? view(lock) : value;
+        }
+    }
+
+    /**
+     * An index of the children of a node by their value.
+     * <br>
+     * Values are hashed so that values {@linkplain Comparators#compare(Object, Object) comparing} as equal share the
+     * same key : numbers are keyed by their {@code double} value, so that {@code 1} and {@code 1.0} match, and any other
+     * value by itself. This only holds for classes compared with {@link Object#equals(Object)}, or that no comparator
+     * can compare with the class of the searched value. When the values of other classes are present, the index can't
+     * be relied on, and the children are compared one by one instead.
+     */
+    private static final class ValueIndex {
+        private final Map<Object, List<String>> byValue = new HashMap<>();
+        private final Map<Class<?>, int[]> classes = new HashMap<>();
+
+        void add(String segment, Object value) {
+            byValue.computeIfAbsent(getKey(value), k -> new ArrayList<>(1)).add(segment);
+            classes.computeIfAbsent(value.getClass(), c -> new int[1])[0]++;
+        }
+
+        void remove(String segment, Object value) {
+            Object key = getKey(value);
+            List<String> segments = byValue.get(key);
+            if (segments != null && segments.remove(segment) && segments.isEmpty())
+                byValue.remove(key);
+            int[] count = classes.get(value.getClass());
+            if (count != null && --count[0] == 0)
+                classes.remove(value.getClass());
+        }
+
+        /*
+         * The names of the children that may be equal to the given value, or null if they can't be told apart from
+         * the others
+         */
+        @Nullable
+        Collection<String> getCandidates(Object value) {
+            Class<?> searched = value.getClass();
+            for (Class<?> c : classes.keySet()) {
+                if (Number.class.isAssignableFrom(c) && value instanceof Number)
+                    continue;
+                Comparator<?, ?> comparator = Comparators.getComparator(c, searched);
+                if (c == searched ? comparator != Comparators.EQUALS_COMPARATOR : comparator != null)
                     return null;
+            }
+            List<String> segments = byValue.get(getKey(value));
+            return segments == null ? Collections.emptyList() : segments;
+        }
+
+        private static Object getKey(Object value) {
+            if (value instanceof Number) {
+                double d = ((Number) value).doubleValue();
+                return d == 0 ? 0.0 : d; // 0.0 and -0.0 compare as equal, but don't have the same hash code
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A read-only view of the elements of a node, between two bounds, which reflects later changes to the node. Reads
+     * are made while holding the lock of the variable map, like any other access.
+     */
+    private static final class NodeView extends AbstractMap<String, Object> implements SortedMap<String, Object> {
+        private final Object lock;
+        private final Node node;
+        @Nullable
+        private final String from;
+        @Nullable
+        private final String to;
+
+        /**
+         * @param from the lowest name in the view, inclusive, or {@code null} for no bound
+         * @param to the highest name in the view, exclusive, or {@code null} for no bound
+         */
+        NodeView(Object lock, Node node, @Nullable String from, @Nullable String to) {
+            this.lock = lock;
+            this.node = node;
+            this.from = from;
+            this.to = from != null && to != null && INDEX_ORDER.compare(from, to) > 0 ? from : to;
+        }
+
+        private boolean inRange(String key) {
+            return (from == null || INDEX_ORDER.compare(key, from) >= 0) && (to == null || INDEX_ORDER.compare(key, to) < 0);
+        }
+
+        /*
+         * The position in the array of the elements of the first element that isn't lower than the bound
+         */
+        private static int position(int size, String bound) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (INDEX_ORDER.compare(String.valueOf(middle + 1), bound) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int start() {
+            return from == null ? 0 : position(node.size, from);
+        }
+
+        private int end() {
+            return to == null ? node.size : position(node.size, to);
+        }
+
+        private NavigableMap<String, Node> bound(NavigableMap<String, Node> children) {
+            if (from == null) {
+                return to == null ? children : children.headMap(to, false);
+            } else {
+                return to == null ? children.tailMap(from, true) : children.subMap(from, true, to, false);
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (lock) {
+                node.access();
+                if (node.elements != null) {
+                    int start = start();
+                    int end = end();
+                    if (node.holes == 0)
+                        return Math.max(0, end - start);
+                    int size = 0;
+                    for (int i = start; i < end; i++) {
+                        if (node.elements[i] != null)
+                            size++;
+                    }
+                    return size;
+                }
+                return node.children == null ? 0 : bound(node.children).size();
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Nullable
+        @Override
+        public Object get(@Nullable Object key) {
+            synchronized (lock) {
+                if (key == null)
+                    return node.value;
+                Node child = key instanceof String && inRange((String) key) ? node.getChild((String) key) : null;
+                return child == null ? null : child.viewValue(lock);
+            }
+        }
+
+        @Override
+        public java.util.Comparator<? super String> comparator() {
+            return INDEX_ORDER;
+        }
+
+        @Override
+        public SortedMap<String, Object> subMap(String fromKey, String toKey) {
+            return new NodeView(lock, node, max(from, fromKey), min(to, toKey));
+        }
+
+        @Override
+        public SortedMap<String, Object> headMap(String toKey) {
+            return new NodeView(lock, node, from, min(to, toKey));
+        }
+
+        @Override
+        public SortedMap<String, Object> tailMap(String fromKey) {
+            return new NodeView(lock, node, max(from, fromKey), to);
+        }
+
+        private static String max(@Nullable String bound, String key) {
+            return bound != null && INDEX_ORDER.compare(bound, key) > 0 ? bound : key;
+        }
+
+        private static String min(@Nullable String bound, String key) {
+            return bound != null && INDEX_ORDER.compare(bound, key) < 0 ? bound : key;
+        }
+
+        @Override
+        public String firstKey() {
+            Iterator<Entry<String, Object>> entries = entrySet().iterator();
+            if (!entries.hasNext())
+                throw new NoSuchElementException();
+            return entries.next().getKey();
+        }
+
+        @Override
+        public String lastKey() {
+            synchronized (lock) {
+                node.access();
+                if (node.elements != null) {
+                    for (int i = end() - 1; i >= start(); i--) {
+                        if (node.elements[i] != null)
+                            return String.valueOf(i + 1);
+                    }
+                } else if (node.children != null) {
+                    NavigableMap<String, Node> bounded = bound(node.children);
+                    if (!bounded.isEmpty())
+                        return bounded.lastKey();
+                }
+                throw new NoSuchElementException();
+            }
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public int size() {
+                    return NodeView.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    synchronized (lock) {
+                        node.access();
+                        node.shared = true;
+                        if (node.elements != null)
+                            return new ElementIterator(node.elements, start(), end());
+                        if (node.children == null)
+                            return Collections.emptyIterator();
+                        return new ChildIterator(bound(node.children).entrySet().iterator());
+                    }
+                }
+            };
+        }
+
+        /*
+         * Iterates over a snapshot of the array of the elements, which is never modified below the size it had when
+         * the snapshot was taken, unless it is copied first. Holes are skipped.
+         */
+        private final class ElementIterator implements Iterator<Entry<String, Object>> {
+            private final Node[] elements;
+            private final int end;
+            private int position;
+
+            ElementIterator(Node[] elements, int start, int end) {
+                this.elements = elements;
+                this.position = start;
+                this.end = end;
+            }
+
+            @Override
+            public boolean hasNext() {
+                while (position < end && elements[position] == null)
+                    position++;
+                return position < end;
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Node element = elements[position++];
+                synchronized (lock) {
+                    // Keep the list in the heap while it is iterated over
+                    node.accessed = true;
+                    return new SimpleImmutableEntry<>(String.valueOf(position), element.viewValue(lock));
+                }
+            }
+        }
+
+        /*
+         * Iterates over a snapshot of the map of the children, which is never modified once the snapshot is taken
+         */
+        private final class ChildIterator implements Iterator<Entry<String, Object>> {
+            private final Iterator<Entry<String, Node>> entries;
+
+            ChildIterator(Iterator<Entry<String, Node>> entries) {
+                this.entries = entries;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+                Entry<String, Node> entry = entries.next();
+                synchronized (lock) {
+                    node.accessed = true;
+                    return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().viewValue(lock));
                 }
             }
-            return null;
         }
     }
 }
@@ -0,0 +1,597 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.serialization.TypeCodec;
+import io.github.syst3ms.skriptparser.types.serialization.ValueInput;
+import io.github.syst3ms.skriptparser.types.serialization.ValueOutput;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the global variables to a directory, through an append-only journal and periodic snapshots.
+ * <br>
+ * Every change to a variable is queued by the thread making it, and written to the journal by a background thread, so
+ * that the execution of triggers never waits for the disk. The writer takes all changes queued while it was writing the
+ * previous batch, and writes them as a single frame, with a single write and at most a single
+ * {@linkplain FsyncPolicy fsync}. Each frame carries its length and a checksum, so that a frame left incomplete by a
+ * crash is detected and ignored when the journal is replayed. If a batch can't be written, the storage stops persisting
+ * changes altogether, since journaling the later changes without the ones of that batch would make replaying the journal
+ * restore a state that never existed. {@link #flush()} then reports the error.
+ * <br>
+ * Once the journal holds enough changes, a snapshot of all variables is taken, and the journal starts over. Snapshots
+ * and journals are numbered by generation : the journal of a generation holds the changes made after the snapshot of
+ * the same generation was requested. The snapshot is then collected by the writer thread, a few variables at a time,
+ * so that the lock of the map is never held for long. It is thus fuzzy : changes made while it is collected may or
+ * may not be in it, but since they are all in the journal of its generation, which sets every variable to its latest
+ * value, replaying that journal restores them either way. A snapshot is written to a temporary file and then renamed,
+ * so that it either exists completely or not at all. Loading the variables maps the latest snapshot as a
+ * {@link MappedSnapshot}, whose variables are only read when they are first accessed, and replays the journals of its
+ * generation and of all later ones. Variables that were never accessed are copied from one snapshot to the next
+ * without being read.
+ * <br>
+ * Changes are written in the compact form of {@link ValueOutput}, each frame being a stream of its own : the names of
+ * variables and types repeated within a frame are only written once. Only values whose type has a {@link TypeCodec} can
+ * be persisted. Variables holding any other value are persisted as deleted.
+ */
+public class VariableStorage implements AutoCloseable {
+    private static final int MAGIC = 0x534B5653; // "SKVS"
+    private static final int MAX_BATCH = 65536;
+    /*
+     * The number of variables collected for a snapshot every time the lock of the map is taken
+     */
+    private static final int SNAPSHOT_STEP = 1024;
+    private static final long PERIODIC_FSYNC_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SUFFIX = ".dat";
+
+    private static final byte SET = 1;
+    private static final byte DELETE = 2;
+
+    private final Path directory;
+    private final FsyncPolicy fsync;
+    private final int snapshotThreshold;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Set<Class<?>> unsupported = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    @Nullable
+    private VariableMap map;
+    @Nullable
+    private Thread writer;
+    // Only accessed by the writer thread, once opened
+    @Nullable
+    private FileChannel journal;
+    private long generation;
+    private long journalRecords;
+    private long lastFsync;
+    private boolean snapshotRequested;
+    private volatile long written;
+    private volatile long batches;
+    private volatile long snapshots;
+    private volatile boolean closed;
+    @Nullable
+    private volatile Exception failure;
+
+    /**
+     * Creates a storage, which does nothing until it is {@linkplain Variables#setStorage(VariableStorage) used}
+     * @param directory the directory holding the journals and snapshots, created if needed
+     * @param fsync when to force written changes to the disk
+     * @param snapshotThreshold the number of changes in the journal after which a snapshot is taken
+     */
+    public VariableStorage(Path directory, FsyncPolicy fsync, int snapshotThreshold) {
+        if (snapshotThreshold <= 0)
+            throw new IllegalArgumentException("The snapshot threshold must be positive");
+        this.directory = directory;
+        this.fsync = fsync;
+        this.snapshotThreshold = snapshotThreshold;
+    }
+
+    /**
+     * Loads the persisted variables into the given map, and starts persisting its changes
+     * @param map the map
+     * @throws IOException if the variables couldn't be read, or the journal couldn't be created
+     */
+    void open(VariableMap map) throws IOException {
+        if (this.map != null)
+            throw new IllegalStateException("This storage is already open");
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> journals = list(JOURNAL_PREFIX);
+        TreeMap<Long, Path> snapshots = list(SNAPSHOT_PREFIX);
+        long loaded = 0;
+        long replayed = 0;
+        if (!snapshots.isEmpty()) {
+            loaded = snapshots.lastKey();
+            Path snapshot = snapshots.lastEntry().getValue();
+            if (readMagic(snapshot) == MappedSnapshot.MAGIC) {
+                map.setSnapshot(MappedSnapshot.open(snapshot));
+            } else {
+                // Snapshots used to be written like journals
+                read(snapshot, map);
+            }
+        }
+        for (Path journal : journals.tailMap(loaded, true).values())
+            replayed += read(journal, map);
+        long last = Math.max(loaded, journals.isEmpty() ? 0 : journals.lastKey());
+        generation = last + 1;
+        journal = openJournal(generation);
+        // The changes of the journals that were replayed are only covered by a snapshot once the next one is taken
+        journalRecords = replayed;
+        lastFsync = System.nanoTime();
+        this.map = map;
+        map.setStorage(this);
+        if (replayed >= snapshotThreshold)
+            requestSnapshot();
+        Thread t = new Thread(this::writeLoop, "skript-variable-storage");
+        t.setDaemon(true);
+        writer = t;
+        t.start();
+    }
+
+    /**
+     * Queues a change to a variable. Called while holding the lock of the map.
+     * @param name the name of the variable
+     * @param value the new value, or {@code null} if the variable was deleted
+     */
+    void record(String name, @Nullable Object value) {
+        if (!closed)
+            queue.add(new Change(name, value));
+    }
+
+    /**
+     * Waits until all changes made before this call are written, and forced to the disk unless the policy is
+     * {@link FsyncPolicy#NEVER}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws IOException if this storage stopped persisting changes because of an error
+     */
+    public void flush() throws InterruptedException, IOException {
+        if (writer != null && !closed) {
+            CountDownLatch latch = new CountDownLatch(1);
+            queue.add(new Flush(latch));
+            // Once closed, the writer may have released the waiting threads already
+            if (!closed)
+                latch.await();
+        }
+        Exception e = failure;
+        if (e != null)
+            throw new IOException("Variables couldn't be persisted", e);
+    }
+
+    /**
+     * @return the error that stopped this storage from persisting changes, or {@code null} if there was none
+     */
+    @Nullable
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return the number of changes written to the journals since this storage was opened
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return the number of frames written to the journals since this storage was opened, each holding a batch of
+     * changes
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return the number of snapshots taken since this storage was opened
+     */
+    public long getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @return the number of changes waiting to be written
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * Writes all pending changes, forces them to the disk, and stops persisting changes
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        Thread t = writer;
+        if (t == null)
+            return;
+        queue.add(Close.INSTANCE);
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        VariableMap m = map;
+        if (m != null) {
+            synchronized (m) {
+                m.setStorage(null);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        ValueOutput out = new ValueOutput(8192);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                int records = 0;
+                for (Object item : batch) {
+                    if (item instanceof Change) {
+                        Change change = (Change) item;
+                        writeChange(out, change.name, change.value);
+                        records++;
+                        continue;
+                    }
+                    // Every marker applies once the changes queued before it are written
+                    writeFrame(out, records);
+                    records = 0;
+                    if (item instanceof Flush) {
+                        force();
+                        ((Flush) item).latch.countDown();
+                    } else if (item instanceof Rotate) {
+                        rotate((Rotate) item);
+                    } else {
+                        running = false;
+                    }
+                }
+                writeFrame(out, records);
+                if (fsync == FsyncPolicy.EVERY_BATCH
+                        || fsync == FsyncPolicy.PERIODIC && System.nanoTime() - lastFsync >= PERIODIC_FSYNC_NANOS) {
+                    force();
+                }
+                if (running && journalRecords >= snapshotThreshold && !snapshotRequested)
+                    requestSnapshot();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+                closed = true;
+                running = false;
+                System.err.println("Couldn't persist variables, changes won't be persisted anymore. Stack trace :");
+                e.printStackTrace();
+            } finally {
+                for (Object item : batch) {
+                    if (item instanceof Flush)
+                        ((Flush) item).latch.countDown();
+                }
+                batch.clear();
+                out.reset();
+            }
+        }
+        try {
+            force();
+            if (journal != null)
+                journal.close();
+        } catch (IOException e) {
+            System.err.println("Couldn't close the variable journal. Stack trace :");
+            e.printStackTrace();
+        }
+        // Release the threads waiting for a flush that will never happen
+        for (Object item : queue) {
+            if (item instanceof Flush)
+                ((Flush) item).latch.countDown();
+        }
+    }
+
+    private void writeFrame(ValueOutput out, int records) throws IOException {
+        if (records == 0)
+            return;
+        assert journal != null;
+        writeFrame(journal, out);
+        journalRecords += records;
+        written += records;
+        batches++;
+    }
+
+    /*
+     * Takes a snapshot of the map, on the writer thread. Starting the walk over the variables while holding the lock
+     * of the map, and queueing the rotation before releasing it, makes the rotation happen before every change the
+     * walk may miss, so that the journal of the new generation holds them all.
+     */
+    private void requestSnapshot() {
+        VariableMap m = map;
+        assert m != null;
+        synchronized (m) {
+            queue.add(new Rotate(m.walkLoadedVariables(), m.getSnapshot(), m.getLoadedEntries()));
+        }
+        snapshotRequested = true;
+    }
+
+    private void rotate(Rotate rotate) throws IOException {
+        force();
+        assert journal != null;
+        journal.close();
+        long snapshotGeneration = ++generation;
+        journal = openJournal(snapshotGeneration);
+        journalRecords = 0;
+        snapshotRequested = false;
+
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeSnapshot(channel, rotate);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        for (Path old : list(SNAPSHOT_PREFIX).headMap(snapshotGeneration).values()) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                // Some systems don't allow deleting a mapped file : it is deleted after a later snapshot instead
+            }
+        }
+        for (Path old : list(JOURNAL_PREFIX).headMap(snapshotGeneration).values())
+            Files.deleteIfExists(old);
+        snapshots++;
+    }
+
+    /*
+     * Writes the variables of the tree, merged with the ones only in the previous snapshot, in the order of their names
+     */
+    private void writeSnapshot(FileChannel channel, Rotate rotate) throws IOException {
+        VariableMap m = map;
+        assert m != null;
+        List<String> names = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        boolean walking = true;
+        while (walking) {
+            synchronized (m) {
+                walking = rotate.walk.step(SNAPSHOT_STEP, (name, value) -> {
+                    names.add(name);
+                    values.add(value);
+                });
+            }
+        }
+        int size = names.size();
+        byte[][] keys = new byte[size][];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> MappedSnapshot.compareKeys(keys[first], keys[second]));
+        MappedSnapshot previous = rotate.snapshot;
+        int previousSize = previous == null ? 0 : previous.size();
+        ValueOutput out = new ValueOutput();
+        List<String> types = previous == null ? Collections.emptyList() : previous.getTypes();
+        try (MappedSnapshot.Writer writer = new MappedSnapshot.Writer(channel, types)) {
+            int j = rotate.loaded.nextClearBit(0);
+            for (int k = 0; k <= size; k++) {
+                byte[] key = k < size ? keys[order[k]] : null;
+                // The entries of the previous snapshot that were loaded or overwritten are in the tree, if still set
+                boolean previouslyLoaded = false;
+                while (j < previousSize) {
+                    byte[] previousKey = previous.getKey(j);
+                    int comparison = key == null ? -1 : MappedSnapshot.compareKeys(previousKey, key);
+                    if (comparison > 0)
+                        break;
+                    writer.add(previousKey, previous.getRawValue(j));
+                    j = rotate.loaded.nextClearBit(j + 1);
+                    if (comparison == 0) {
+                        // Loaded during the walk : this is still its value when the snapshot was requested
+                        previouslyLoaded = true;
+                        break;
+                    }
+                }
+                if (key == null)
+                    break;
+                if (previouslyLoaded)
+                    continue;
+                Object value = values.get(order[k]);
+                if (!out.canWrite(value)) {
+                    warnUnsupported(value);
+                    continue;
+                }
+                // Every value is a stream of its own, whose type is written once for the whole snapshot
+                out.reset();
+                out.writeValue(value, writer.getTypes());
+                writer.add(key, ByteBuffer.wrap(out.toByteArray()));
+            }
+        }
+    }
+
+    private void force() throws IOException {
+        if (journal != null && journal.isOpen() && fsync != FsyncPolicy.NEVER) {
+            journal.force(false);
+            lastFsync = System.nanoTime();
+        }
+    }
+
+    private FileChannel openJournal(long generation) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(JOURNAL_PREFIX + generation + SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        writeHeader(channel);
+        return channel;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(MAGIC).flip();
+        while (header.hasRemaining())
+            channel.write(header);
+    }
+
+    /*
+     * Writes the content of the output as a frame, and resets it so that the next frame can be read independently
+     */
+    private static void writeFrame(FileChannel channel, ValueOutput out) throws IOException {
+        if (out.size() == 0)
+            return;
+        byte[] payload = out.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (frame.hasRemaining())
+            channel.write(frame);
+        out.reset();
+    }
+
+    private static int readMagic(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readInt();
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+
+    /*
+     * Applies the changes of a journal or snapshot to the map, stopping at the first incomplete or corrupted frame
+     */
+    private static long read(Path file, VariableMap map) throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a variable file : " + file);
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int checksum = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum)
+                    break;
+                ValueInput frame = new ValueInput(payload);
+                while (frame.remaining() > 0) {
+                    readChange(frame, map);
+                    records++;
+                }
+            }
+        } catch (EOFException e) {
+            // The last frame was cut short, and never acknowledged
+        }
+        return records;
+    }
+
+    private void writeChange(ValueOutput out, String name, @Nullable Object value) {
+        if (value != null && !out.canWrite(value)) {
+            warnUnsupported(value);
+            value = null;
+        }
+        out.writeByte(value == null ? DELETE : SET);
+        out.writeString(name);
+        if (value != null)
+            out.writeValue(value);
+    }
+
+    private void warnUnsupported(Object value) {
+        if (unsupported.add(value.getClass()))
+            System.err.println("Variables of type " + value.getClass().getName() + " can't be persisted, and will be lost on restart");
+    }
+
+    private static void readChange(ValueInput in, VariableMap map) throws IOException {
+        byte op = in.readByte();
+        String name = in.readString();
+        map.setVariable(name, op == SET ? in.readValue() : null);
+    }
+
+    private TreeMap<Long, Path> list(String prefix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length())), file);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * When written changes are forced to the disk, trading durability for throughput. Changes are always written to
+     * the journal as soon as possible, so that they survive the process crashing : this only matters when the whole
+     * system crashes.
+     */
+    public enum FsyncPolicy {
+        /**
+         * After every batch of changes
+         */
+        EVERY_BATCH,
+        /**
+         * At most once per second
+         */
+        PERIODIC,
+        /**
+         * Never, leaving it to the operating system
+         */
+        NEVER
+    }
+
+    private static final class Change {
+        private final String name;
+        @Nullable
+        private final Object value;
+
+        Change(String name, @Nullable Object value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private static final class Flush {
+        private final CountDownLatch latch;
+
+        Flush(CountDownLatch latch) {
+            this.latch = latch;
+        }
+    }
+
+    private static final class Rotate {
+        private final VariableMap.LoadedWalk walk;
+        @Nullable
+        private final MappedSnapshot snapshot;
+        private final BitSet loaded;
+
+        Rotate(VariableMap.LoadedWalk walk, @Nullable MappedSnapshot snapshot, BitSet loaded) {
+            this.walk = walk;
+            this.snapshot = snapshot;
+            this.loaded = loaded;
+        }
+    }
+
+    private static final class Close {
+        private static final Close INSTANCE = new Close();
+    }
+}
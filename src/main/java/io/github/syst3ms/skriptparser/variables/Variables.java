@@ -1,5 +1,7 @@
 package io.github.syst3ms.skriptparser.variables;
 
+import io.github.syst3ms.skriptparser.execution.Scheduler;
+import io.github.syst3ms.skriptparser.execution.TimerWheel;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.lang.Variable;
@@ -7,14 +9,20 @@ import io.github.syst3ms.skriptparser.lang.VariableString;
 import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.util.TimeUtils;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
- * A class handling operations on variables
+ * A class handling operations on variables.
+ * Variables may be read and written from multiple threads : every access to a variable map is made while holding its
+ * lock. List variables are returned as sorted views of their elements, which take the same lock, and which are iterated
+ * over in the order of their indexes, through a snapshot that isn't affected by later modifications.
  */
 public class Variables {
     public static final String LIST_SEPARATOR = "::";
@@ -22,7 +30,11 @@ public class Variables {
     public static final Pattern REGEX_PATTERN = Pattern.compile("\\{([^{}]|%\\{|}%)+}");
     private static final VariableMap variableMap = new VariableMap();
     // Yes, I know it should be trigger-specific, but I haven't got to that part yet, ok ? TODO make the change
-    private static final Map<TriggerContext, VariableMap> localVariables = new HashMap<>();
+    private static final Map<TriggerContext, VariableMap> localVariables = new ConcurrentHashMap<>();
+    @Nullable
+    private static VariableStorage storage;
+    @Nullable
+    private static OffHeapTier offHeapTier;
 
     @Nullable
     public static <T> Expression<T> parseVariable(String s, Class<? extends T> types, ParserState parserState, SkriptLogger logger) {
@@ -87,13 +99,11 @@ public class Variables {
 	 */
     @Nullable
     public static Object getVariable(String name, TriggerContext e, boolean local) {
-        if (local) {
-            VariableMap map = localVariables.get(e);
-            if (map == null)
-                return null;
+        VariableMap map = local ? localVariables.get(e) : variableMap;
+        if (map == null)
+            return null;
+        synchronized (map) {
             return map.getVariable(name);
-        } else {
-            return variableMap.getVariable(name);
         }
     }
 
@@ -104,14 +114,166 @@ public class Variables {
 	 * @param value The variable's value. Use <tt>null</tt> to delete the variable.
 	 */
     public static void setVariable(String name, @Nullable Object value, @Nullable TriggerContext e, boolean local) {
+        VariableMap map;
         if (local) {
             assert e != null : name;
-            VariableMap map = localVariables.get(e);
-            if (map == null)
-                localVariables.put(e, map = new VariableMap());
+            map = localVariables.computeIfAbsent(e, c -> new VariableMap());
+        } else {
+            map = variableMap;
+        }
+        synchronized (map) {
             map.setVariable(name, value);
+        }
+    }
+
+    /**
+     * Replaces the elements of a list variable in a single operation. Values are indexed from 1 upwards, arrays are set
+     * as lists of their own, indexed from 0 upwards, and <tt>null</tt> values are skipped.
+     *
+     * @param name The list's name, ending with "::*"
+     * @param values The new elements of the list
+     */
+    public static void setList(String name, Object[] values, @Nullable TriggerContext e, boolean local) {
+        VariableMap map;
+        if (local) {
+            assert e != null : name;
+            map = localVariables.computeIfAbsent(e, c -> new VariableMap());
+        } else {
+            map = variableMap;
+        }
+        synchronized (map) {
+            map.setList(name, values);
+        }
+    }
+
+    /**
+     * Sets a variable that is deleted once the given duration has passed, as tracked by the timer wheel of the
+     * {@linkplain Scheduler#getDefault() default scheduler}. Expiring variables aren't persisted.
+     *
+     * @param name The variable's name, which can't be a list variable
+     * @param value The variable's value
+     * @param ttl The duration after which the variable is deleted
+     */
+    public static void setVariable(String name, Object value, Duration ttl, @Nullable TriggerContext e, boolean local) {
+        VariableMap map;
+        if (local) {
+            assert e != null : name;
+            map = localVariables.computeIfAbsent(e, c -> new VariableMap());
         } else {
-            variableMap.setVariable(name, value);
+            map = variableMap;
+        }
+        TimerWheel wheel = Scheduler.getDefault().getWheel();
+        synchronized (map) {
+            map.setVariable(name, value, TimeUtils.toNanosSaturated(ttl), wheel);
+        }
+    }
+
+    /**
+     * @return the statistics of the global variables that were set to expire
+     */
+    public static ExpiryStatistics getExpiryStatistics() {
+        return variableMap.getExpiryStatistics();
+    }
+
+    /**
+     * Adds a value to a list variable, at the lowest positive index that isn't used yet. Values added one after the
+     * other to an empty list are thus indexed from 1 upwards.
+     *
+     * @param name The name of the list variable, ending with "::*"
+     * @param value The value to add
+     * @return the index the value was added at
+     */
+    public static int appendVariable(String name, Object value, TriggerContext e, boolean local) {
+        VariableMap map = local ? localVariables.computeIfAbsent(e, c -> new VariableMap()) : variableMap;
+        synchronized (map) {
+            return map.appendVariable(name, value);
+        }
+    }
+
+    /**
+     * Checks whether a list variable has an element equal to the given value
+     *
+     * @param name The name of the list variable, ending with "::*"
+     * @param value The value
+     * @return whether an element of the list is equal to the value
+     */
+    public static boolean containsValue(String name, Object value, TriggerContext e, boolean local) {
+        VariableMap map = local ? localVariables.get(e) : variableMap;
+        if (map == null)
+            return false;
+        synchronized (map) {
+            return map.containsValue(name, value);
+        }
+    }
+
+    /**
+     * Deletes the elements of a list variable that are equal to the given value
+     *
+     * @param name The name of the list variable, ending with "::*"
+     * @param value The value
+     * @param all Whether to delete all equal elements, rather than only the first one
+     * @return the number of deleted elements
+     */
+    public static int removeValue(String name, Object value, boolean all, TriggerContext e, boolean local) {
+        VariableMap map = local ? localVariables.get(e) : variableMap;
+        if (map == null)
+            return 0;
+        synchronized (map) {
+            return map.removeValue(name, value, all);
+        }
+    }
+
+    /**
+     * Loads the global variables persisted by the given storage, and persists every later change to them. This should
+     * be done before any script is run, as the loaded variables overwrite the ones already set.
+     *
+     * @param storage The storage, which is closed by {@link #closeStorage()}
+     * @throws IOException if the persisted variables couldn't be loaded
+     */
+    public static void setStorage(VariableStorage storage) throws IOException {
+        synchronized (variableMap) {
+            if (Variables.storage != null)
+                throw new IllegalStateException("The variables are already persisted");
+            storage.open(variableMap);
+            Variables.storage = storage;
+        }
+    }
+
+    /**
+     * Writes the pending changes of the storage of the global variables, if any, and stops persisting them
+     */
+    public static void closeStorage() {
+        VariableStorage s;
+        synchronized (variableMap) {
+            s = storage;
+            storage = null;
+        }
+        if (s != null)
+            s.close();
+    }
+
+    /**
+     * Sets the tier the large lists of global variables that aren't accessed are moved to, by {@link #sweepColdLists()}.
+     *
+     * @param tier The tier, or {@code null} to move all lists back into the heap and stop moving them
+     */
+    public static void setOffHeapTier(@Nullable OffHeapTier tier) {
+        synchronized (variableMap) {
+            if (tier == null && offHeapTier != null)
+                variableMap.promoteAll();
+            offHeapTier = tier;
+        }
+    }
+
+    /**
+     * Moves the large lists of global variables that weren't accessed since the last call out of the heap, if an
+     * {@linkplain #setOffHeapTier(OffHeapTier) off-heap tier} is set. This should be called periodically, for example
+     * every minute through a {@link io.github.syst3ms.skriptparser.execution.TimerWheel TimerWheel}.
+     */
+    public static void sweepColdLists() {
+        synchronized (variableMap) {
+            if (offHeapTier != null)
+                variableMap.sweep(offHeapTier);
         }
     }
 }
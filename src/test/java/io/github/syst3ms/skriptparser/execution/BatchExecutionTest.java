@@ -0,0 +1,81 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
+import io.github.syst3ms.skriptparser.event.ScriptLoadEvent;
+import io.github.syst3ms.skriptparser.lang.ExecutionFrame;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BatchExecutionTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    private static final String[] VARIABLES = {"{batch::runs}", "{batch::many}", "{batch::length}", "{batch::done}"};
+
+    private static void run(String effect) {
+        Statement.runAll(SyntaxParser.parseEffect(effect, new ParserState(), new SkriptLogger()), TriggerContext.DUMMY);
+    }
+
+    private static int[] results() {
+        int[] results = new int[VARIABLES.length];
+        for (int i = 0; i < VARIABLES.length; i++) {
+            Expression<?> variable = SyntaxParser.parseExpression(VARIABLES[i], SyntaxParser.OBJECT_PATTERN_TYPE, new ParserState(), new SkriptLogger());
+            assertNotNull(variable);
+            results[i] = ((Number) variable.getSingle(TriggerContext.DUMMY)).intValue();
+            run("set " + VARIABLES[i] + " to 0");
+        }
+        return results;
+    }
+
+    @Test
+    public void batchMatchesSequential() {
+        for (String variable : VARIABLES)
+            run("set " + variable + " to 0");
+        Trigger trigger = TriggerCompilerTest.loadTrigger(Arrays.asList(
+                "script load:",
+                "    add 1 to {batch::runs}",
+                "    if amount of arguments > 1:",
+                "        add 10 to {batch::many}",
+                "    loop arguments:",
+                "        add length of loop-value to {batch::length}",
+                "    add 1 to {batch::done}"
+        ), new ScriptLoadEvent());
+        for (int size : new int[]{1, 64, 1024}) {
+            TriggerContext[] contexts = new TriggerContext[size + 1];
+            for (int i = 0; i < size; i++)
+                contexts[i] = new ScriptLoadContext(i % 3 == 0 ? new String[]{"ab", "c"} : new String[]{"xyz"});
+            contexts[size] = TriggerContext.DUMMY; // Not accepted by the event
+            for (TriggerContext ctx : contexts)
+                assertTrue(Statement.runAll(trigger, ctx));
+            int[] sequential = results();
+            assertEquals(size, sequential[0]);
+            assertEquals(size, sequential[3]);
+
+            assertEquals(size + 1, Statement.runAll(trigger, contexts));
+            assertArrayEquals(sequential, results());
+            assertNull(ExecutionFrame.current());
+
+            EventDispatcher dispatcher = new EventDispatcher();
+            @SuppressWarnings("unchecked")
+            Class<? extends TriggerContext>[] handled = (Class<? extends TriggerContext>[]) new Class<?>[]{ScriptLoadContext.class};
+            dispatcher.register(trigger, handled);
+            assertEquals(size, dispatcher.dispatchAll(contexts));
+            assertArrayEquals(sequential, results());
+        }
+        for (String variable : VARIABLES)
+            run("delete " + variable);
+    }
+}
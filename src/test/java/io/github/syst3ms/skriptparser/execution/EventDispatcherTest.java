@@ -0,0 +1,74 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
+import io.github.syst3ms.skriptparser.event.ScriptLoadEvent;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class EventDispatcherTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final Class<? extends TriggerContext>[] CONTEXTS =
+            (Class<? extends TriggerContext>[]) new Class<?>[]{ScriptLoadContext.class};
+
+    @Test
+    public void dispatchTest() {
+        Trigger first = TriggerCompilerTest.loadTrigger(
+                Arrays.asList("script load:", "    set {dispatch::order} to \"first\""),
+                new ScriptLoadEvent()
+        );
+        Trigger second = TriggerCompilerTest.loadTrigger(
+                Arrays.asList("script load:", "    set {dispatch::order} to \"second\""),
+                new ScriptLoadEvent() {
+                    @Override
+                    public int getLoadingPriority() {
+                        return 1;
+                    }
+                }
+        );
+        EventDispatcher dispatcher = new EventDispatcher();
+        dispatcher.register(first, CONTEXTS);
+        dispatcher.register(second, CONTEXTS, null);
+        // Higher priorities run first, so the first trigger has the last word
+        assertEquals(Arrays.asList(second, first), dispatcher.getTriggers(ScriptLoadContext.class));
+        assertEquals(2, dispatcher.dispatch(new ScriptLoadContext(new String[0])));
+        assertEquals("first", variable("{dispatch::order}"));
+
+        assertEquals(0, dispatcher.dispatch(TriggerContext.DUMMY));
+        assertNull(variable("{dispatch::order}"));
+
+        dispatcher.unregister(second);
+        assertEquals(1, dispatcher.dispatch(new ScriptLoadContext(new String[0])));
+        DispatchStatistics statistics = dispatcher.getStatistics(ScriptLoadContext.class);
+        assertNotNull(statistics);
+        assertEquals(2, statistics.getDispatches());
+        assertEquals(3, statistics.getTriggers());
+        assertTrue(statistics.getMaxNanos() >= statistics.getAverageNanos());
+        variable("{dispatch::order}");
+    }
+
+    private static Object variable(String name) {
+        SkriptLogger logger = new SkriptLogger();
+        ParserState parserState = new ParserState();
+        Expression<?> variable = SyntaxParser.parseExpression(name, SyntaxParser.OBJECT_PATTERN_TYPE, parserState, logger);
+        assertNotNull(variable);
+        Object value = variable.getSingle(TriggerContext.DUMMY);
+        Statement.runAll(SyntaxParser.parseEffect("delete " + name, parserState, logger), TriggerContext.DUMMY);
+        return value;
+    }
+}
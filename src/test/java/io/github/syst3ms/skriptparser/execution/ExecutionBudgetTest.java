@@ -0,0 +1,126 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
+import io.github.syst3ms.skriptparser.event.ScriptLoadEvent;
+import io.github.syst3ms.skriptparser.lang.ExecutionBudget;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ExecutionBudgetTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    private static final TriggerContext CONTEXT = new ScriptLoadContext(new String[0]);
+
+    @Nullable
+    private static Object take(String variable) {
+        Expression<?> expression = SyntaxParser.parseExpression(variable, SyntaxParser.OBJECT_PATTERN_TYPE, new ParserState(), new SkriptLogger());
+        assertNotNull(expression);
+        Object value = expression.getSingle(TriggerContext.DUMMY);
+        Statement.runAll(SyntaxParser.parseEffect("delete " + variable, new ParserState(), new SkriptLogger()), TriggerContext.DUMMY);
+        return value;
+    }
+
+    private static Trigger infiniteLoop() {
+        return TriggerCompilerTest.loadTrigger(Arrays.asList(
+                "script load:",
+                "    set {budget::i} to 0",
+                "    while {budget::i} >= 0:",
+                "        add 1 to {budget::i}",
+                "    set {budget::unreachable} to true"
+        ), new ScriptLoadEvent());
+    }
+
+    @Test
+    public void statementBudget() {
+        Trigger trigger = infiniteLoop();
+        ExecutionBudget budget = new ExecutionBudget(1000, 1, TimeUnit.MINUTES, ExecutionBudget.Action.ABORT);
+        trigger.setBudget(budget);
+        PrintStream err = System.err;
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(report, true));
+        try {
+            assertFalse(Statement.runAll(trigger, CONTEXT));
+        } finally {
+            System.setErr(err);
+        }
+        // The statement the execution was aborted at is reported by its line
+        assertTrue(report.toString(), report.toString().matches("(?s).*, at unit-tests:[34]\\s*"));
+        assertTrue(((Number) take("{budget::i}")).intValue() < 1000);
+        assertNull(take("{budget::unreachable}"));
+        CompiledTrigger compiled = TriggerCompiler.compile(trigger);
+        assertNotNull(compiled);
+        assertFalse(compiled.run(CONTEXT));
+        assertTrue(((Number) take("{budget::i}")).intValue() < 1000);
+        CompiledTrigger assembled = TriggerAssembler.assemble(trigger);
+        assertNotNull(assembled);
+        assertFalse(assembled.run(CONTEXT));
+        assertTrue(((Number) take("{budget::i}")).intValue() < 1000);
+        assertEquals(3, budget.getAborted());
+        assertEquals(0, budget.getYielded());
+    }
+
+    @Test
+    public void timeBudget() {
+        Trigger trigger = infiniteLoop();
+        ExecutionBudget budget = new ExecutionBudget(Long.MAX_VALUE, 20, TimeUnit.MILLISECONDS, ExecutionBudget.Action.ABORT);
+        trigger.setBudget(budget);
+        assertFalse(Statement.runAll(trigger, CONTEXT));
+        CompiledTrigger compiled = TriggerCompiler.compile(trigger);
+        assertNotNull(compiled);
+        assertFalse(compiled.run(CONTEXT));
+        assertEquals(2, budget.getAborted());
+        take("{budget::i}");
+    }
+
+    @Test
+    public void yieldingBudget() {
+        AtomicLong clock = new AtomicLong();
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 8, clock::get);
+        Scheduler.setDefault(new Scheduler(wheel, null));
+        try {
+            Trigger trigger = TriggerCompilerTest.loadTrigger(Arrays.asList(
+                    "script load:",
+                    "    set {budget::sum} to 0",
+                    "    loop range from 1 to 500:",
+                    "        add loop-value to {budget::sum}",
+                    "    set {budget::done} to true"
+            ), new ScriptLoadEvent());
+            ExecutionBudget budget = new ExecutionBudget(100, 1, TimeUnit.MINUTES, ExecutionBudget.Action.YIELD);
+            trigger.setBudget(budget);
+            assertNull(TriggerCompiler.compile(trigger));
+            assertNull(TriggerAssembler.assemble(trigger));
+            assertTrue(Statement.runAll(trigger, CONTEXT));
+            int slices = 1;
+            while (budget.getYielded() >= slices && slices < 100) {
+                clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+                wheel.advance();
+                slices++;
+            }
+            assertEquals(true, take("{budget::done}"));
+            assertEquals(125250, ((Number) take("{budget::sum}")).intValue());
+            assertTrue(budget.getYielded() > 5);
+            assertEquals(0, budget.getAborted());
+        } finally {
+            Scheduler.setDefault(null);
+        }
+    }
+}
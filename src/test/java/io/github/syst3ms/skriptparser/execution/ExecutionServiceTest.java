@@ -0,0 +1,136 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadEvent;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ExecutionServiceTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    @Test
+    public void orderingTest() throws Exception {
+        ExecutionService service = new ExecutionService(4, 16, TriggerContext::getName, false);
+        List<List<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            results.add(Collections.synchronizedList(new ArrayList<>()));
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            int key = i % 4;
+            int value = i;
+            futures.add(service.submit(() -> "key " + key, () -> results.get(key).add(value)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        for (int key = 0; key < 4; key++) {
+            List<Integer> values = results.get(key);
+            assertEquals(100, values.size());
+            for (int i = 0; i < values.size(); i++)
+                assertEquals(i * 4 + key, (int) values.get(i));
+        }
+        assertEquals(400, service.getCompleted());
+        assertEquals(0, service.getQueueDepth());
+        assertTrue(service.shutdown(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void backpressureTest() throws Exception {
+        ExecutionService service = new ExecutionService(1, 1, null, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocking = service.submit(TriggerContext.DUMMY, () -> {
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        started.await(10, TimeUnit.SECONDS);
+        assertEquals(1, service.getRunning());
+        Trigger trigger = new Trigger(new ScriptLoadEvent());
+        assertNull(service.trySubmit(trigger, TriggerContext.DUMMY, 10, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(blocking.get(10, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> next = service.trySubmit(trigger, TriggerContext.DUMMY, 10, TimeUnit.SECONDS);
+        assertNotNull(next);
+        assertTrue(next.get(10, TimeUnit.SECONDS));
+        assertEquals(0, service.getFailed());
+        assertTrue(service.shutdown(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void saturationTest() throws Exception {
+        ExecutionService service = new ExecutionService(2, 1, null, false);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<CompletableFuture<Boolean>> inner = new CompletableFuture<>();
+        CompletableFuture<Boolean> blocking = service.submit(TriggerContext.DUMMY, () -> {
+            // Submitting from a task doesn't wait for the permit the task itself holds
+            inner.complete(service.submit(TriggerContext.DUMMY, () -> true));
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        CompletableFuture<Boolean> submitted = inner.get(10, TimeUnit.SECONDS);
+        // Neither does resuming an execution, even while the service is saturated
+        CompletableFuture<Boolean> resumed = service.resume(TriggerContext.DUMMY, () -> true);
+        // Both are parked until the blocking task gives its permit back, even though a worker is free
+        assertFalse(submitted.isDone());
+        assertFalse(resumed.isDone());
+        assertEquals(2, service.getQueueDepth());
+        assertEquals(1, service.getRunning());
+        release.countDown();
+        assertTrue(blocking.get(10, TimeUnit.SECONDS));
+        assertTrue(submitted.get(10, TimeUnit.SECONDS));
+        assertTrue(resumed.get(10, TimeUnit.SECONDS));
+        assertTrue(service.submit(TriggerContext.DUMMY, () -> true).get(10, TimeUnit.SECONDS));
+        assertEquals(0, service.getQueueDepth());
+        assertTrue(service.shutdown(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void closingTest() throws Exception {
+        ExecutionService service = new ExecutionService(1, 1, null, false);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocking = service.submit(TriggerContext.DUMMY, () -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        CompletableFuture<Boolean> resumed = service.resume(TriggerContext.DUMMY, () -> true);
+        service.close();
+        assertTrue(service.resume(TriggerContext.DUMMY, () -> true).isCompletedExceptionally());
+        // A task parked before the service was closed still runs
+        release.countDown();
+        assertTrue(blocking.get(10, TimeUnit.SECONDS));
+        assertTrue(resumed.get(10, TimeUnit.SECONDS));
+        assertTrue(service.shutdown(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rejectionTest() throws Exception {
+        ExecutionService service = new ExecutionService(1, 4, TriggerContext::getName, false);
+        service.close();
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<Boolean> future = service.submit(() -> "key", () -> true);
+            // The key of a rejected task doesn't keep the tasks after it waiting
+            assertTrue(future.isCompletedExceptionally());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
+import io.github.syst3ms.skriptparser.event.ScriptLoadEvent;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProfilerTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    @Test
+    public void attributesTimeToLines() {
+        Trigger trigger = TriggerCompilerTest.loadTrigger(Arrays.asList(
+                "script load:",
+                "    set {profile::sum} to 0",
+                "    loop range from 1 to 100:",
+                "        add loop-value to {profile::sum}"
+        ), new ScriptLoadEvent());
+        TriggerContext ctx = new ScriptLoadContext(new String[0]);
+        Profiler profiler = new Profiler(1).start();
+        try {
+            CompiledTrigger compiled = TriggerCompiler.compile(trigger);
+            assertNotNull(compiled);
+            assertTrue(compiled.run(ctx));
+        } finally {
+            profiler.stop();
+        }
+        assertNull(Profiler.getActive());
+        assertTrue(Statement.runAll(trigger, ctx)); // Not profiled anymore
+
+        List<Profiler.Entry> top = profiler.getTop(10);
+        Profiler.Entry add = null;
+        for (Profiler.Entry entry : top) {
+            if (entry.getLocation().equals("unit-tests:4"))
+                add = entry;
+        }
+        assertNotNull(add);
+        assertEquals(100, add.getInvocations());
+        assertTrue(add.getTotalNanos() > 0);
+        // The loop is walked through once before every iteration, and once more when it ends
+        assertEquals(101, profiler.getTop(10).stream()
+                .filter(e -> e.getLocation().equals("unit-tests:3"))
+                .findFirst()
+                .orElseThrow(AssertionError::new)
+                .getInvocations());
+        assertTrue(profiler.toCollapsedStacks().contains(
+                "unit-tests:1 script load;unit-tests:3 loop range from 1 to 100;unit-tests:4 add loop-value to {profile::sum} "
+        ));
+        assertTrue(profiler.report(3).contains("unit-tests:4"));
+        Statement.runAll(SyntaxParser.parseEffect("delete {profile::sum}", new ParserState(), new SkriptLogger()), TriggerContext.DUMMY);
+    }
+
+    @Test
+    public void sampling() {
+        Profiler profiler = new Profiler(4);
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (profiler.sample())
+                sampled++;
+        }
+        assertTrue(sampled > 2000 && sampled < 3000);
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
+import io.github.syst3ms.skriptparser.event.ScriptLoadEvent;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SchedulerTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    private static Object read(String name) {
+        Expression<?> variable = SyntaxParser.parseExpression(name, SyntaxParser.OBJECT_PATTERN_TYPE, new ParserState(), new SkriptLogger());
+        assertNotNull(variable);
+        return variable.getSingle(TriggerContext.DUMMY);
+    }
+
+    private static void delete(String name) {
+        Statement.runAll(SyntaxParser.parseEffect("delete " + name, new ParserState(), new SkriptLogger()), TriggerContext.DUMMY);
+    }
+
+    @Test
+    public void timerWheel() {
+        AtomicLong clock = new AtomicLong();
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 8, clock::get);
+        AtomicInteger ran = new AtomicInteger();
+        wheel.schedule(ran::incrementAndGet, 3, TimeUnit.MILLISECONDS);
+        wheel.schedule(ran::incrementAndGet, 20, TimeUnit.MILLISECONDS); // More than one revolution
+        wheel.schedule(ran::incrementAndGet, 5, TimeUnit.MILLISECONDS).cancel();
+        clock.set(TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(0, wheel.advance());
+        clock.set(TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(1, wheel.advance());
+        clock.set(TimeUnit.MILLISECONDS.toNanos(19));
+        assertEquals(0, wheel.advance());
+        clock.set(TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(1, wheel.advance());
+        assertEquals(2, ran.get());
+    }
+
+    @Test
+    public void waitResumesExecution() {
+        AtomicLong clock = new AtomicLong();
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 8, clock::get);
+        Scheduler scheduler = new Scheduler(wheel, null);
+        Scheduler.setDefault(scheduler);
+        try {
+            Trigger trigger = TriggerCompilerTest.loadTrigger(Arrays.asList(
+                    "script load:",
+                    "    set {wait::sum} to 0",
+                    "    loop range from 1 to 3:",
+                    "        wait 5 seconds",
+                    "        add loop-value to {wait::sum}",
+                    "    set {wait::after} to true"
+            ), new ScriptLoadEvent());
+            assertNull("A trigger that waits can't be compiled", TriggerCompiler.compile(trigger));
+            assertTrue(Statement.runAll(trigger, new ScriptLoadContext(new String[0])));
+            assertEquals(1, scheduler.getSuspended());
+            assertFalse(scheduler.isIdle());
+            int[] sums = {1, 3, 6};
+            for (int sum : sums) {
+                assertEquals(0, wheel.advance());
+                clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+                assertEquals(1, wheel.advance());
+                assertEquals(sum, ((Number) read("{wait::sum}")).intValue());
+            }
+            assertEquals(0, scheduler.getSuspended());
+            assertTrue(scheduler.isIdle());
+            assertEquals(true, read("{wait::after}"));
+        } finally {
+            delete("{wait::sum}");
+            delete("{wait::after}");
+            Scheduler.setDefault(null);
+        }
+    }
+}
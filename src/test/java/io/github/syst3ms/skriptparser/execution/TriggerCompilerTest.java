@@ -0,0 +1,122 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
+import io.github.syst3ms.skriptparser.event.ScriptLoadEvent;
+import io.github.syst3ms.skriptparser.file.FileElement;
+import io.github.syst3ms.skriptparser.file.FileParser;
+import io.github.syst3ms.skriptparser.file.FileSection;
+import io.github.syst3ms.skriptparser.lang.ExecutionFrame;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.SkriptEvent;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.log.LogEntry;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TriggerCompilerTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    private static final List<String> SCRIPT = Arrays.asList(
+            "script load:",
+            "    set {compiler::sum} to 0",
+            "    set {compiler::big} to 0",
+            "    loop range from 1 to 10:",
+            "        continue if loop-value < 9",
+            "        if loop-value > 7:",
+            "            add 1 to {compiler::big}",
+            "        else if loop-value = 2:",
+            "            add 100 to {compiler::sum}",
+            "        else:",
+            "            add loop-value to {compiler::sum}",
+            "    loop 1, 2 and 3:",
+            "        add loop-value to {compiler::sum}",
+            "    set {compiler::i} to 0",
+            "    while {compiler::i} < 5:",
+            "        add 1 to {compiler::i}",
+            "    continue if {compiler::i} = 3",
+            "    set {compiler::unreachable} to true"
+    );
+
+    static Trigger loadTrigger(List<String> script, SkriptEvent event) {
+        SkriptLogger logger = new SkriptLogger();
+        List<FileElement> elements = new FileParser().parseFileLines("unit-tests", script, 0, 1, logger);
+        logger.setFileInfo("unit-tests", elements);
+        Trigger trigger = new Trigger(event);
+        ParserState parserState = new ParserState();
+        @SuppressWarnings("unchecked")
+        Class<? extends TriggerContext>[] contexts = (Class<? extends TriggerContext>[]) new Class<?>[]{ScriptLoadContext.class};
+        parserState.setCurrentContexts(contexts);
+        trigger.loadSection((FileSection) elements.get(0), parserState, logger);
+        List<LogEntry> logs = logger.close();
+        assertTrue(logs.isEmpty() ? "" : logs.get(0).getMessage(), logs.isEmpty());
+        return trigger;
+    }
+
+    private Object[] results() {
+        SkriptLogger logger = new SkriptLogger();
+        ParserState parserState = new ParserState();
+        Object[] results = new Object[4];
+        String[] names = {"{compiler::sum}", "{compiler::big}", "{compiler::i}", "{compiler::unreachable}"};
+        for (int i = 0; i < names.length; i++) {
+            Expression<?> variable = SyntaxParser.parseExpression(names[i], SyntaxParser.OBJECT_PATTERN_TYPE, parserState, logger);
+            assertNotNull(variable);
+            results[i] = variable.getSingle(TriggerContext.DUMMY);
+            Statement.runAll(SyntaxParser.parseEffect("delete " + names[i], parserState, logger), TriggerContext.DUMMY);
+        }
+        return results;
+    }
+
+    @Test
+    public void compiledMatchesInterpreted() {
+        Trigger trigger = loadTrigger(SCRIPT, new ScriptLoadEvent());
+        TriggerContext ctx = new ScriptLoadContext(new String[0]);
+        assertTrue(Statement.runAll(trigger, ctx));
+        Object[] interpreted = results();
+        assertEquals(132, ((Number) interpreted[0]).intValue());
+        assertEquals(1, ((Number) interpreted[1]).intValue());
+        assertEquals(5, ((Number) interpreted[2]).intValue());
+        assertNull(interpreted[3]);
+
+        assertCompiledMatches(interpreted, TriggerCompiler.compile(trigger), ctx);
+        assertCompiledMatches(interpreted, TriggerAssembler.assemble(trigger), ctx);
+        assertNull(ExecutionFrame.current());
+    }
+
+    @Test
+    public void nestedFrames() {
+        ExecutionFrame outer = ExecutionFrame.enter();
+        outer.setValue(0, "outer");
+        ExecutionFrame inner = ExecutionFrame.enter();
+        assertSame(inner, ExecutionFrame.current());
+        assertNull(inner.getValue(0));
+        inner.setValue(5, "inner");
+        inner.exit();
+        assertSame(outer, ExecutionFrame.current());
+        assertEquals("outer", outer.getValue(0));
+        outer.exit();
+        assertNull(ExecutionFrame.current());
+    }
+
+    private void assertCompiledMatches(Object[] interpreted, @Nullable CompiledTrigger compiled, TriggerContext ctx) {
+        assertNotNull(compiled);
+        assertTrue(compiled.run(ctx));
+        assertArrayEquals(interpreted, results());
+        // The event doesn't accept this context, so nothing should run
+        assertTrue(compiled.run(TriggerContext.DUMMY));
+        assertArrayEquals(new Object[4], results());
+    }
+}
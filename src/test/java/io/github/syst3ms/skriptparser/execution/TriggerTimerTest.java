@@ -0,0 +1,194 @@
+package io.github.syst3ms.skriptparser.execution;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadEvent;
+import io.github.syst3ms.skriptparser.lang.Effect;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
+import io.github.syst3ms.skriptparser.util.TimeUtils;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class TriggerTimerTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    private static Trigger counter(String variable) {
+        return TriggerCompilerTest.loadTrigger(Arrays.asList(
+                "script load:",
+                "    add 1 to " + variable
+        ), new ScriptLoadEvent());
+    }
+
+    private static void run(String effect) {
+        Statement.runAll(SyntaxParser.parseEffect(effect, new ParserState(), new SkriptLogger()), TriggerContext.DUMMY);
+    }
+
+    private static int count(String variable) {
+        Expression<?> expression = SyntaxParser.parseExpression(variable, SyntaxParser.OBJECT_PATTERN_TYPE, new ParserState(), new SkriptLogger());
+        assertNotNull(expression);
+        Object value = expression.getSingle(TriggerContext.DUMMY);
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    @Test
+    public void timeParsing() {
+        assertEquals(LocalTime.of(18, 30), TimeUtils.parseTime("18:30"));
+        assertEquals(LocalTime.of(6, 5, 30), TimeUtils.parseTime("6:05:30"));
+        assertEquals(LocalTime.of(18, 0), TimeUtils.parseTime("6pm"));
+        assertEquals(LocalTime.of(0, 30), TimeUtils.parseTime("12:30 am"));
+        assertEquals(LocalTime.NOON, TimeUtils.parseTime("noon"));
+        assertNull(TimeUtils.parseTime("24:00"));
+        assertNull(TimeUtils.parseTime("13pm"));
+    }
+
+    @Test
+    public void firesOnSchedule() {
+        String[] variables = {"{timer::slow}", "{timer::fast}", "{timer::noon}"};
+        for (String variable : variables)
+            run("set " + variable + " to 0");
+        AtomicLong clock = new AtomicLong();
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 64, clock::get);
+        TriggerTimer timer = new TriggerTimer(wheel, null, Clock.fixed(Instant.parse("2020-01-01T11:59:50Z"), ZoneOffset.UTC));
+        try {
+            timer.scheduleEvery(counter("{timer::slow}"), Duration.ofSeconds(5));
+            timer.scheduleEvery(counter("{timer::slow}"), Duration.ofSeconds(5));
+            Trigger fast = counter("{timer::fast}");
+            timer.scheduleEvery(fast, Duration.ofSeconds(2));
+            timer.scheduleDaily(counter("{timer::noon}"), LocalTime.NOON);
+            assertEquals(4, timer.getScheduled());
+            for (int second = 1; second <= 12; second++) {
+                clock.set(TimeUnit.SECONDS.toNanos(second));
+                wheel.advance();
+            }
+            assertEquals(4, count("{timer::slow}"));
+            assertEquals(6, count("{timer::fast}"));
+            assertEquals(1, count("{timer::noon}"));
+            TimerStatistics statistics = timer.getStatistics();
+            // Ticks 2, 4, 5, 6, 8, 10 and 12, with every trigger due at tick 10 in the same batch
+            assertEquals(7, statistics.getBatches());
+            assertEquals(11, statistics.getFirings());
+            assertEquals(0, statistics.getMaxJitterNanos());
+            assertEquals(0, statistics.getDriftNanos());
+
+            // The timer falls behind, but catches up on the next deadlines
+            clock.set(TimeUnit.MILLISECONDS.toNanos(15_500));
+            wheel.advance();
+            assertEquals(6, count("{timer::slow}"));
+            assertEquals(7, count("{timer::fast}"));
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(1_500), statistics.getMaxJitterNanos());
+            assertEquals(0, statistics.getMissed());
+
+            assertTrue(timer.cancel(fast));
+            clock.set(TimeUnit.SECONDS.toNanos(20));
+            wheel.advance();
+            assertEquals(8, count("{timer::slow}"));
+            assertEquals(7, count("{timer::fast}"));
+            assertEquals(3, timer.getScheduled());
+        } finally {
+            timer.close();
+            for (String variable : variables)
+                run("delete " + variable);
+        }
+    }
+
+    @Test
+    public void saturatedService() throws Exception {
+        run("set {timer::saturated} to 0");
+        AtomicLong clock = new AtomicLong();
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 64, clock::get);
+        ExecutionService service = new ExecutionService(2, 1, null, false);
+        TriggerTimer timer = new TriggerTimer(wheel, service, Clock.systemUTC());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            service.submit(TriggerContext.DUMMY, () -> {
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            });
+            timer.scheduleEvery(counter("{timer::saturated}"), Duration.ofSeconds(1));
+            clock.set(TimeUnit.SECONDS.toNanos(1));
+            // Advancing the wheel doesn't wait for the service to have room
+            assertEquals(1, wheel.advance());
+            release.countDown();
+            assertTrue(service.shutdown(10, TimeUnit.SECONDS));
+            assertEquals(1, count("{timer::saturated}"));
+        } finally {
+            release.countDown();
+            timer.close();
+            run("delete {timer::saturated}");
+        }
+    }
+
+    @Test
+    public void slowTrigger() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 64, clock::get);
+        ExecutionService service = new ExecutionService(4, 16, null, false);
+        TriggerTimer timer = new TriggerTimer(wheel, service, Clock.systemUTC());
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Trigger slow = new Trigger(new ScriptLoadEvent());
+        slow.setItems(Collections.singletonList(new Effect() {
+            @Override
+            protected void execute(TriggerContext ctx) {
+                runs.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+
+            @Override
+            public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+                return true;
+            }
+
+            @Override
+            public String toString(@Nullable TriggerContext ctx, boolean debug) {
+                return "slow";
+            }
+        }));
+        try {
+            timer.scheduleEvery(slow, Duration.ofMillis(10));
+            for (int i = 1; i <= 100; i++) {
+                clock.set(TimeUnit.MILLISECONDS.toNanos(10 * i));
+                wheel.advance();
+                // The firing that is still running is the only one the service ever holds
+                assertTrue(service.getQueueDepth() + service.getRunning() <= 1);
+            }
+            assertEquals(99, timer.getStatistics().getMissed());
+            release.countDown();
+            service.shutdown(10, TimeUnit.SECONDS);
+            assertEquals(1, runs.get());
+        } finally {
+            release.countDown();
+            timer.close();
+            service.close();
+        }
+    }
+}
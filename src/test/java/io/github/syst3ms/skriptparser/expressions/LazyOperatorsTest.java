@@ -0,0 +1,171 @@
+package io.github.syst3ms.skriptparser.expressions;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
+import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LazyOperatorsTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    private static final int OR = 1, AND = 2;
+
+    @Test
+    public void shortCircuitTest() {
+        Counting<Boolean> right = new Counting<>("right", new Boolean[]{true});
+        assertEquals(false, operation(AND, new Counting<>("left", new Boolean[]{false}), right).getSingle(TriggerContext.DUMMY));
+        assertEquals(true, operation(OR, new Counting<>("left", new Boolean[]{true}), right).getSingle(TriggerContext.DUMMY));
+        assertEquals(0, right.evaluations);
+
+        assertEquals(true, operation(AND, new Counting<>("left", new Boolean[]{true}), right).getSingle(TriggerContext.DUMMY));
+        assertEquals(1, right.evaluations);
+    }
+
+    @Test
+    public void missingValueTest() {
+        // A deciding operand wins no matter where the missing value is
+        assertEquals(true, operation(OR, unset(), new Counting<>("right", new Boolean[]{true})).getSingle(TriggerContext.DUMMY));
+        assertEquals(true, operation(OR, new Counting<>("left", new Boolean[]{true}), unset()).getSingle(TriggerContext.DUMMY));
+        assertEquals(false, operation(AND, unset(), new Counting<>("right", new Boolean[]{false})).getSingle(TriggerContext.DUMMY));
+        // Otherwise, the operation has no value
+        assertNull(operation(OR, unset(), new Counting<>("right", new Boolean[]{false})).getSingle(TriggerContext.DUMMY));
+        assertNull(operation(AND, new Counting<>("left", new Boolean[]{true}), unset()).getSingle(TriggerContext.DUMMY));
+        assertEquals(0, operation(AND, unset(), unset()).getValues(TriggerContext.DUMMY).length);
+    }
+
+    @Test
+    public void flatteningTest() {
+        Counting<Boolean> first = new Counting<>("first", new Boolean[]{false});
+        Counting<Boolean> second = new Counting<>("second", new Boolean[]{false});
+        // The neutral literal can only be dropped by the outer operation if the inner one was merged into it
+        ExprBooleanOperators chain = operation(OR, operation(OR, first, new SimpleLiteral<>(Boolean.class, false)), second);
+        Expression<Boolean> simplified = chain.simplify();
+        assertSame(chain, simplified);
+        assertEquals("first or second", simplified.toString(TriggerContext.DUMMY, false));
+
+        Expression<Boolean> folded = operation(OR, operation(OR, first, new SimpleLiteral<>(Boolean.class, true)), second).simplify();
+        assertTrue(folded instanceof Literal);
+        assertEquals(true, folded.getSingle(TriggerContext.DUMMY));
+
+        // Different operators are kept apart
+        Expression<Boolean> mixed = operation(AND, operation(OR, first, new SimpleLiteral<>(Boolean.class, false)), second).simplify();
+        assertEquals("first or false and second", mixed.toString(TriggerContext.DUMMY, false));
+        assertEquals(0, first.evaluations + second.evaluations);
+    }
+
+    @Test
+    public void reorderingTest() {
+        Counting<Boolean> slow = new Counting<Boolean>("slow", new Boolean[]{false}) {
+            @Override
+            public Boolean[] getValues(TriggerContext ctx) {
+                long start = System.nanoTime();
+                while (System.nanoTime() - start < 1000); // Busy-waits, so that this operand is measurably slower
+                return super.getValues(ctx);
+            }
+        };
+        Counting<Boolean> fast = new Counting<>("fast", new Boolean[]{true});
+        ExprBooleanOperators operation = operation(OR, slow, fast);
+        // The order is revised every 64 sampled evaluations, which is about every 1024 evaluations
+        for (int i = 0; i < 16384; i++)
+            assertEquals(true, operation.getSingle(TriggerContext.DUMMY));
+        int evaluated = slow.evaluations;
+        assertTrue(evaluated < 16384);
+        // After which the deciding operand always goes first
+        for (int i = 0; i < 4096; i++)
+            assertEquals(true, operation.getSingle(TriggerContext.DUMMY));
+        assertEquals(evaluated, slow.evaluations);
+        assertEquals(16384 + 4096, fast.evaluations);
+        assertEquals("slow or fast", operation.toString(TriggerContext.DUMMY, false));
+    }
+
+    @Test
+    public void ternaryTest() {
+        Counting<Object> first = new Counting<>("first", new Object[]{"a"});
+        Counting<Object> second = new Counting<>("second", new Object[]{"b"});
+        assertArrayEquals(new Object[]{"a"}, ternary(first, new Counting<>("condition", new Boolean[]{true}), second).getValues(TriggerContext.DUMMY));
+        assertEquals(0, second.evaluations);
+        assertArrayEquals(new Object[]{"b"}, ternary(first, new Counting<>("condition", new Boolean[]{false}), second).getValues(TriggerContext.DUMMY));
+        assertEquals(1, first.evaluations);
+        assertEquals(0, ternary(first, unset(), second).getValues(TriggerContext.DUMMY).length);
+        assertEquals(1, first.evaluations);
+        assertEquals(1, second.evaluations);
+    }
+
+    @Test
+    public void defaultValueTest() {
+        Counting<Object> fallback = new Counting<>("fallback", new Object[]{"b"});
+        assertEquals("a", defaultValue(new Counting<>("value", new Object[]{"a"}), fallback).getSingle(TriggerContext.DUMMY));
+        assertEquals(0, fallback.evaluations);
+        assertEquals("b", defaultValue(new Counting<>("value", new Object[0]), fallback).getSingle(TriggerContext.DUMMY));
+        assertEquals(1, fallback.evaluations);
+    }
+
+    private static ExprBooleanOperators operation(int pattern, Expression<?>... operands) {
+        ExprBooleanOperators operation = new ExprBooleanOperators();
+        assertTrue(operation.init(operands, pattern, parseContext()));
+        return operation;
+    }
+
+    private static ExprTernary ternary(Expression<?> first, Expression<?> condition, Expression<?> second) {
+        ExprTernary ternary = new ExprTernary();
+        assertTrue(ternary.init(new Expression<?>[]{first, condition, second}, 0, parseContext()));
+        return ternary;
+    }
+
+    private static ExprDefaultValue defaultValue(Expression<?> first, Expression<?> second) {
+        ExprDefaultValue defaultValue = new ExprDefaultValue();
+        assertTrue(defaultValue.init(new Expression<?>[]{first, second}, 0, parseContext()));
+        return defaultValue;
+    }
+
+    private static Counting<Boolean> unset() {
+        return new Counting<>("unset", new Boolean[0]);
+    }
+
+    /*
+     * None of the expressions under test look at their parse context
+     */
+    @SuppressWarnings("ConstantConditions")
+    private static ParseContext parseContext() {
+        return null;
+    }
+
+    /**
+     * An expression with fixed values, that counts how many times it is evaluated
+     */
+    private static class Counting<T> implements Expression<T> {
+        private final String name;
+        private final T[] values;
+        int evaluations;
+
+        Counting(String name, T[] values) {
+            this.name = name;
+            this.values = values;
+        }
+
+        @Override
+        public T[] getValues(TriggerContext ctx) {
+            evaluations++;
+            return values;
+        }
+
+        @Override
+        public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+            return true;
+        }
+
+        @Override
+        public String toString(@Nullable TriggerContext ctx, boolean debug) {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.effects.EffChange;
+import io.github.syst3ms.skriptparser.lang.SyntaxElement;
+import io.github.syst3ms.skriptparser.lang.Variable;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParserStateTest {
+
+    @Test
+    public void clearedRestrictions() {
+        ParserState parserState = new ParserState();
+        assertFalse(parserState.forbidsSyntax(EffChange.class));
+
+        List<Class<? extends SyntaxElement>> allowed = Collections.singletonList(EffChange.class);
+        parserState.setSyntaxRestrictions(allowed, true);
+        assertFalse(parserState.forbidsSyntax(EffChange.class));
+        assertTrue(parserState.forbidsSyntax(Variable.class));
+        assertTrue(parserState.isRestrictingExpressions());
+
+        // Leaving a section clears the restrictions, and the next lines of the trigger are parsed right after
+        parserState.clearSyntaxRestrictions();
+        assertFalse(parserState.forbidsSyntax(EffChange.class));
+        assertFalse(parserState.forbidsSyntax(Variable.class));
+        assertFalse(parserState.isRestrictingExpressions());
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.types.PatternType;
+import io.github.syst3ms.skriptparser.types.TypeManager;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import static io.github.syst3ms.skriptparser.lang.TriggerContext.DUMMY;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that expressions overriding {@link Expression#getSingle(io.github.syst3ms.skriptparser.lang.TriggerContext)}
+ * stay consistent with their {@link Expression#getValues(io.github.syst3ms.skriptparser.lang.TriggerContext)}.
+ */
+@SuppressWarnings("ConstantConditions")
+public class SingleValueTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    private void assertConsistent(@Nullable Expression<?> expr) {
+        if (expr == null)
+            fail("Null expression");
+        Object[] values = expr.getValues(DUMMY);
+        Object single = expr.getSingle(DUMMY);
+        if (values.length == 0) {
+            assertNull(single);
+        } else {
+            assertEquals(1, values.length);
+            assertEquals(values[0], single);
+        }
+    }
+
+    @Test
+    public void getSingleTest() {
+        SkriptLogger logger = new SkriptLogger();
+        ParserState parserState = new ParserState();
+        PatternType<Number> numberType = new PatternType<>(TypeManager.getByClassExact(Number.class), true);
+        PatternType<Boolean> booleanType = new PatternType<>(TypeManager.getByClassExact(Boolean.class), true);
+        PatternType<Long> longType = new PatternType<>(TypeManager.getByClassExact(Long.class), true);
+        PatternType<String> stringType = new PatternType<>(TypeManager.getByClassExact(String.class), true);
+        assertConsistent(SyntaxParser.parseExpression("1 + 2", numberType, parserState, logger));
+        assertConsistent(SyntaxParser.parseExpression("2 ^ 10", numberType, parserState, logger));
+        assertConsistent(SyntaxParser.parseExpression("root 2 of 4", numberType, parserState, logger));
+        assertConsistent(SyntaxParser.parseExpression("sqrt 16", numberType, parserState, logger));
+        assertConsistent(SyntaxParser.parseExpression("1 + 2", longType, parserState, logger));
+        assertConsistent(SyntaxParser.parseExpression("whether 1 < 2", booleanType, parserState, logger));
+        assertConsistent(SyntaxParser.parseExpression("\"text\"", stringType, parserState, logger));
+        assertConsistent(SyntaxParser.parseExpression("{single::unset}", numberType, parserState, logger));
+        Statement.runAll(SyntaxParser.parseEffect("set {single::value} to 5", parserState, logger), DUMMY);
+        assertConsistent(SyntaxParser.parseExpression("{single::value}", numberType, parserState, logger));
+        assertConsistent(SyntaxParser.parseExpression("{single::value} * 3", longType, parserState, logger));
+    }
+}
@@ -18,8 +18,7 @@ import java.math.BigInteger;
 
 import static io.github.syst3ms.skriptparser.lang.TriggerContext.DUMMY;
 import static io.github.syst3ms.skriptparser.parsing.SyntaxParser.*;
-import static org.junit.Assert.assertArrayEquals;
-import static org.junit.Assert.fail;
+import static org.junit.Assert.*;
 
 @SuppressWarnings({"unchecked", "ConstantConditions"})
 public class SyntaxParserTest {
@@ -103,6 +102,9 @@ public class SyntaxParserTest {
         assertExpressionTrue(
             parseBooleanExpression("not (false and (false or true))", SyntaxParser.NOT_CONDITIONAL, parserState, logger)
         );
+        assertExpressionTrue(
+            parseBooleanExpression("{unset::boolean} or (1 < 2) or (2 < 1)", SyntaxParser.NOT_CONDITIONAL, parserState, logger)
+        );
         // ExprNumberArithmetic
         assertExpressionEquals(
             literal(new BigDecimal("251")),
@@ -126,6 +128,10 @@ public class SyntaxParserTest {
             literal(CollectionUtils.reverseArray(oneThroughTen)),
             parseExpression("range from 10 to 1", objectsType, parserState, logger)
         );
+        assertExpressionEquals(
+            literal(10_000_000),
+            parseExpression("amount of range from 10000000 to 1", numberType, parserState, logger)
+        );
         // ExprUnaryMathFunctions
         assertExpressionEquals(
             literal(new BigDecimal("3628800")),
@@ -143,6 +149,68 @@ public class SyntaxParserTest {
         );
     }
 
+    @Test
+    public void rangeTest() throws Exception {
+        SkriptLogger logger = new SkriptLogger();
+        ParserState parserState = new ParserState();
+        // These ranges are too large to be stored, so they can only be checked through their endpoints
+        assertExpressionTrue(
+            parseBooleanExpression("range from 1 to 2000000000 contains 5 and 2000000000", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+        assertExpressionTrue(
+            parseBooleanExpression("range from 2000000000 to 1 doesn't contain 0", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+        assertExpressionTrue(
+            parseBooleanExpression("range from 1 to 2000000000 is between 0 and 2000000000", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+        assertExpressionTrue(
+            parseBooleanExpression("not (range from 2000000000 to 1 is between 2 and 3000000000)", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+        // Empty ranges, and values that are only compared with the elements
+        assertExpressionTrue(
+            parseBooleanExpression("range from 5 to 5 doesn't contain 5", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+        assertExpressionTrue(
+            parseBooleanExpression("range from 1 to 10 contains 2.0", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+        assertExpressionTrue(
+            parseBooleanExpression("range from 1 to 10 doesn't contain 2.5", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+        assertExpressionTrue(
+            parseBooleanExpression("neither range from 1 to 10 is between 11 and 20", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+        // Characters
+        assertExpressionTrue(
+            parseBooleanExpression("range from \"z\" to \"a\" contains \"q\"", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+        assertExpressionTrue(
+            parseBooleanExpression("range from \"a\" to \"z\" doesn't contain \"qq\"", SyntaxParser.MAYBE_CONDITIONAL, parserState, logger)
+        );
+    }
+
+    @Test
+    public void constantFoldingTest() throws Exception {
+        SkriptLogger logger = new SkriptLogger();
+        ParserState parserState = new ParserState();
+        PatternType<Number> numberType = getType(Number.class, true);
+        PatternType<Object> objectsType = getType(Object.class, false);
+        Expression<?> folded = parseExpression("2 * pi + 1", numberType, parserState, logger);
+        assertTrue(folded instanceof Literal);
+        assertExpressionEquals(
+            literal(new BigDecimal("2").multiply(BigDecimalMath.pi(BigDecimalMath.DEFAULT_CONTEXT)).add(BigDecimal.ONE)),
+            folded
+        );
+        Expression<?> ternary = parseExpression("\"abc\" if true else \"def\"", objectsType, parserState, logger);
+        assertTrue(Literal.isLiteral(ternary));
+        assertExpressionEquals(literal("abc"), ternary);
+        assertFalse(parseExpression("{folding} + 1", numberType, parserState, logger) instanceof Literal);
+        // Expressions that fail are left for the runtime to report, and only logged in debug mode
+        SkriptLogger debugLogger = new SkriptLogger(true);
+        assertFalse(parseExpression("ln 0", numberType, parserState, debugLogger) instanceof Literal);
+        debugLogger.logOutput();
+        assertTrue(debugLogger.close().stream().anyMatch(entry -> entry.getMessage().startsWith("Couldn't fold 'ln 0'")));
+    }
+
     /*
     @Test
     public void sectionTest() throws Exception {
@@ -1,6 +1,8 @@
 package io.github.syst3ms.skriptparser.parsing;
 
 import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.effects.EffChange;
+import io.github.syst3ms.skriptparser.effects.EffSetExpiring;
 import io.github.syst3ms.skriptparser.lang.Effect;
 import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
@@ -13,6 +15,7 @@ import org.junit.Test;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
 
 import static io.github.syst3ms.skriptparser.lang.TriggerContext.DUMMY;
 import static org.junit.Assert.*;
@@ -66,5 +69,60 @@ public class VariablesTest {
                             .getSingle(DUMMY)
                             .getClass()
         );
+        // Lists
+        run(SyntaxParser.parseEffect("set {list::*} to 1, 2 and 3", parserState, logger));
+        assertArrayEquals(
+                new Number[] {BigInteger.ONE, BigInteger.valueOf(2), BigInteger.valueOf(3)},
+                SyntaxParser.parseExpression("{list::*}", new PatternType<>(TypeManager.getByClassExact(Number.class), false), parserState, logger)
+                            .getValues(DUMMY)
+        );
+        assertEquals(
+                3,
+                SyntaxParser.parseExpression("amount of {list::*}", numberType, parserState, logger)
+                            .getSingle(DUMMY)
+                            .intValue()
+        );
+        PatternType<Boolean> booleanType = new PatternType<>(TypeManager.getByClassExact(Boolean.class), true);
+        assertTrue(SyntaxParser.parseExpression("whether {list::*} contains 2 and 3", booleanType, parserState, logger).getSingle(DUMMY));
+        assertFalse(SyntaxParser.parseExpression("whether {list::*} contains 4", booleanType, parserState, logger).getSingle(DUMMY));
+        assertTrue(SyntaxParser.parseExpression("whether {list::*} does not contain 4", booleanType, parserState, logger).getSingle(DUMMY));
+        assertFalse(SyntaxParser.parseExpression("whether {list::*} doesn't contain 1", booleanType, parserState, logger).getSingle(DUMMY));
+        run(SyntaxParser.parseEffect("add 2 and 2.0 to {list::*}", parserState, logger));
+        run(SyntaxParser.parseEffect("remove 2 from {list::*}", parserState, logger));
+        assertArrayEquals(
+                new Number[] {BigInteger.ONE, BigInteger.valueOf(3), BigInteger.valueOf(2), new BigDecimal("2.0")},
+                SyntaxParser.parseExpression("{list::*}", new PatternType<>(TypeManager.getByClassExact(Number.class), false), parserState, logger)
+                            .getValues(DUMMY)
+        );
+        run(SyntaxParser.parseEffect("remove all 2 from {list::*}", parserState, logger));
+        assertArrayEquals(
+                new Number[] {BigInteger.ONE, BigInteger.valueOf(3)},
+                SyntaxParser.parseExpression("{list::*}", new PatternType<>(TypeManager.getByClassExact(Number.class), false), parserState, logger)
+                            .getValues(DUMMY)
+        );
+    }
+
+    @Test
+    public void expiringVariables() throws InterruptedException {
+        SkriptLogger logger = new SkriptLogger();
+        ParserState parserState = new ParserState();
+        // Plain assignments aren't taken for expiring ones, although those are tried first
+        Effect plain = SyntaxParser.parseEffect("set {expiring} to 2", parserState, logger);
+        assertTrue(plain instanceof EffChange);
+        Effect expiring = SyntaxParser.parseEffect("set {expiring} to 1 for 50 milliseconds", parserState, logger);
+        assertTrue(expiring instanceof EffSetExpiring);
+        run(expiring);
+        PatternType<Number> numberType = new PatternType<>(TypeManager.getByClassExact(Number.class), true);
+        Expression<? extends Number> variable = SyntaxParser.parseExpression("{expiring}", numberType, parserState, logger);
+        assertEquals(1, variable.getSingle(DUMMY).intValue());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (variable.getSingle(DUMMY) != null && System.nanoTime() - deadline < 0)
+            Thread.sleep(10);
+        assertNull(variable.getSingle(DUMMY));
+        // Setting it normally afterwards doesn't expire
+        run(plain);
+        Thread.sleep(100);
+        assertEquals(2, variable.getSingle(DUMMY).intValue());
+        run(SyntaxParser.parseEffect("delete {expiring}", parserState, logger));
     }
 }
@@ -0,0 +1,191 @@
+package io.github.syst3ms.skriptparser.types.serialization;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.types.TypeManager;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TypeCodecTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void longs() throws Exception {
+        List<Object> values = new ArrayList<>();
+        for (long l : new long[] {0, 1, -1, 63, -64, 64, Long.MAX_VALUE, Long.MIN_VALUE})
+            values.add(l);
+        for (int i = 0; i < 1000; i++)
+            values.add(random.nextLong() >> random.nextInt(64));
+        assertRoundTrip(values);
+        ValueOutput out = new ValueOutput();
+        out.writeSignedVarLong(-1);
+        assertEquals(1, out.size());
+    }
+
+    @Test
+    public void doubles() throws Exception {
+        List<Object> values = new ArrayList<>();
+        for (double d : new double[] {0.0, -0.0, 1.0, -3.0, 0.1, Double.NaN, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, 0x1p53, -0x1p60})
+            values.add(d);
+        for (int i = 0; i < 1000; i++)
+            values.add(i % 2 == 0 ? random.nextGaussian() * 1e6 : (double) random.nextInt());
+        List<Object> read = roundTrip(values);
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(Double.class, read.get(i).getClass());
+            assertEquals(Double.doubleToRawLongBits((Double) values.get(i)), Double.doubleToRawLongBits((Double) read.get(i)));
+        }
+    }
+
+    @Test
+    public void bigNumbers() throws Exception {
+        List<Object> values = new ArrayList<>();
+        values.add(BigInteger.ZERO);
+        values.add(BigInteger.valueOf(Long.MIN_VALUE));
+        values.add(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE));
+        values.add(new BigDecimal("-1.000"));
+        values.add(new BigDecimal("1E+5"));
+        values.add(new BigDecimal("123456789012345678901234567890.123456789"));
+        for (int i = 0; i < 500; i++) {
+            BigInteger unscaled = new BigInteger(random.nextInt(200), random);
+            if (random.nextBoolean())
+                unscaled = unscaled.negate();
+            values.add(unscaled);
+            values.add(new BigDecimal(unscaled, random.nextInt(40) - 20));
+        }
+        List<Object> read = roundTrip(values);
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i).getClass(), read.get(i).getClass());
+            // BigDecimal#equals also compares the scale
+            assertEquals(values.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    public void strings() throws Exception {
+        List<Object> values = new ArrayList<>();
+        values.add("");
+        values.add("héllo wörld");
+        values.add("😀 emoji");
+        for (int i = 0; i < 500; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(20);
+            while (sb.length() < length) {
+                int codePoint = random.nextInt(Character.MAX_CODE_POINT + 1);
+                if (codePoint < Character.MIN_SURROGATE || codePoint > Character.MAX_SURROGATE)
+                    sb.appendCodePoint(codePoint);
+            }
+            values.add(sb.toString());
+            // Repeated strings are written as references
+            values.add(values.get(values.size() - 1 - random.nextInt(values.size())));
+        }
+        assertRoundTrip(values);
+    }
+
+    @Test
+    public void otherTypes() throws Exception {
+        List<Object> values = new ArrayList<>();
+        values.add(true);
+        values.add(false);
+        values.add(Duration.ZERO);
+        values.add(Duration.ofSeconds(-5, 1));
+        values.add(LocalTime.MIDNIGHT);
+        values.add(LocalTime.MAX);
+        for (int i = 0; i < 500; i++) {
+            values.add(Duration.ofSeconds(random.nextInt(), random.nextInt(1_000_000_000)));
+            values.add(LocalTime.ofNanoOfDay((long) (random.nextDouble() * LocalTime.MAX.toNanoOfDay())));
+        }
+        assertRoundTrip(values);
+    }
+
+    @Test
+    public void unsupported() throws Exception {
+        ValueOutput out = new ValueOutput();
+        assertFalse(out.canWrite(new Object()));
+        assertTrue(out.canWrite(1.5));
+        try {
+            out.writeValue(new Object());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        out.writeString("unknown type");
+        try {
+            new ValueInput(out.toByteArray()).readValue();
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void malformed() {
+        ValueOutput duration = new ValueOutput();
+        duration.writeString("duration");
+        duration.writeSignedVarLong(Long.MAX_VALUE);
+        duration.writeVarLong(2_000_000_000);
+        assertMalformed(duration);
+        ValueOutput time = new ValueOutput();
+        time.writeString("time");
+        time.writeVarLong(LocalTime.MAX.toNanoOfDay() + 1);
+        assertMalformed(time);
+        ValueOutput number = new ValueOutput();
+        number.writeString("number");
+        number.writeByte(4);
+        number.writeBytes(new byte[0]);
+        assertMalformed(number);
+    }
+
+    @Test
+    public void compactness() throws Exception {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add((long) random.nextInt(1000));
+            values.add("status");
+            values.add(random.nextInt(100) / 4.0);
+        }
+        ValueOutput out = new ValueOutput();
+        for (Object value : values)
+            out.writeValue(value);
+        int text = 0;
+        for (Object value : values)
+            text += (TypeManager.getByClass(value.getClass()).getBaseName() + ":" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(out.size() + " bytes against " + text, out.size() * 2 < text);
+    }
+
+    private List<Object> roundTrip(List<Object> values) throws IOException {
+        ValueOutput out = new ValueOutput(16);
+        for (Object value : values)
+            out.writeValue(value);
+        ValueInput in = new ValueInput(out.toByteArray());
+        List<Object> read = new ArrayList<>();
+        while (in.remaining() > 0)
+            read.add(in.readValue());
+        return read;
+    }
+
+    private void assertMalformed(ValueOutput out) {
+        try {
+            new ValueInput(out.toByteArray()).readValue();
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    private void assertRoundTrip(List<Object> values) throws IOException {
+        assertEquals(values, roundTrip(values));
+    }
+}
@@ -0,0 +1,486 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.execution.TimerWheel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class VariableMapTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void listsAndValues() {
+        VariableMap map = new VariableMap();
+        map.setVariable("a", 1);
+        map.setVariable("a::1", 2);
+        map.setVariable("a::2", 3);
+        map.setVariable("a::2::x", 4);
+        assertEquals(1, map.getVariable("a"));
+        assertEquals(3, map.getVariable("a::2"));
+        assertEquals(4, map.getVariable("a::2::x"));
+        assertNull(map.getVariable("a::3"));
+        assertNull(map.getVariable("a::1::*"));
+
+        Map<String, Object> list = (Map<String, Object>) map.getVariable("a::*");
+        assertNotNull(list);
+        assertEquals(2, list.size());
+        assertEquals(1, list.get(null));
+        assertEquals(2, list.get("1"));
+        Map<String, Object> nested = (Map<String, Object>) list.get("2");
+        assertEquals(3, nested.get(null));
+        assertEquals(4, nested.get("x"));
+        Map<String, Object> copy = new HashMap<>(list);
+        assertEquals(2, copy.size());
+
+        // The view follows later changes
+        map.setVariable("a::3", 5);
+        assertEquals(3, list.size());
+        assertEquals(5, list.get("3"));
+    }
+
+    @Test
+    public void deletion() {
+        VariableMap map = new VariableMap();
+        map.setVariable("a", 1);
+        map.setVariable("a::1", 2);
+        map.setVariable("a::2::x", 3);
+        map.setVariable("b::c::d", 4);
+
+        map.setVariable("a::*", null);
+        assertNull(map.getVariable("a::*"));
+        assertNull(map.getVariable("a::1"));
+        assertNull(map.getVariable("a::2::x"));
+        assertEquals(1, map.getVariable("a"));
+
+        // Deleting the only value of a branch removes the branch
+        map.setVariable("b::c::d", null);
+        assertNull(map.getVariable("b::*"));
+        map.setVariable("a", null);
+        assertNull(map.getVariable("a"));
+        map.setVariable("missing::value", null);
+        map.setVariable("missing::*", null);
+        assertNull(map.getVariable("missing"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void denseLists() {
+        VariableMap map = new VariableMap();
+        for (int i = 1; i <= 100; i++)
+            assertEquals(i, map.appendVariable("l::*", i * 10));
+        assertEquals(1000, map.getVariable("l::100"));
+        Map<String, Object> list = (Map<String, Object>) map.getVariable("l::*");
+        assertEquals(100, list.size());
+        assertNull(list.get("0"));
+        assertNull(list.get("01"));
+        assertNull(list.get("101"));
+        int expected = 1;
+        for (Map.Entry<String, Object> entry : list.entrySet()) {
+            assertEquals(String.valueOf(expected), entry.getKey());
+            assertEquals(expected * 10, entry.getValue());
+            expected++;
+        }
+
+        // Removing the last element keeps the list contiguous, removing another one leaves a hole to fill
+        map.setVariable("l::100", null);
+        assertEquals(100, map.appendVariable("l::*", 0));
+        map.setVariable("l::50", null);
+        assertEquals(99, list.size());
+        assertNull(map.getVariable("l::50"));
+        assertEquals(510, map.getVariable("l::51"));
+        assertEquals(50, map.appendVariable("l::*", 0));
+        assertEquals(101, map.appendVariable("l::*", 0));
+    }
+
+    @Test
+    public void sparseKeys() {
+        VariableMap map = new VariableMap();
+        map.setVariable("l::1", "a");
+        map.setVariable("l::2", "b");
+        map.setVariable("l::x", "c");
+        map.setVariable("l::3", "d");
+        map.setVariable("l::5", "e");
+        assertEquals("a", map.getVariable("l::1"));
+        assertEquals("b", map.getVariable("l::2"));
+        assertEquals("c", map.getVariable("l::x"));
+        assertEquals("e", map.getVariable("l::5"));
+        assertEquals(4, map.appendVariable("l::*", "f"));
+        assertEquals(6, map.appendVariable("l::*", "g"));
+
+        map.setVariable("m::01", "a");
+        assertNull(map.getVariable("m::1"));
+        assertEquals("a", map.getVariable("m::01"));
+        assertEquals(1, map.appendVariable("m::*", "b"));
+
+        assertEquals(1, VariableMap.parseIndex("1"));
+        assertEquals(123, VariableMap.parseIndex("123"));
+        assertEquals(-1, VariableMap.parseIndex("0"));
+        assertEquals(-1, VariableMap.parseIndex("-1"));
+        assertEquals(-1, VariableMap.parseIndex("1a"));
+        assertEquals(-1, VariableMap.parseIndex("9999999999"));
+    }
+
+    @Test
+    public void valueIndex() {
+        VariableMap map = new VariableMap();
+        for (int i = 1; i <= 1000; i++)
+            map.appendVariable("l::*", (long) (i % 10));
+        assertTrue(map.containsValue("l::*", 3L));
+        assertTrue(map.containsValue("l::*", 3.0));
+        assertFalse(map.containsValue("l::*", 10L));
+        assertFalse(map.containsValue("l::*", "3"));
+        assertFalse(map.containsValue("missing::*", 3L));
+
+        // The index follows later changes
+        map.setVariable("l::1", 10L);
+        map.appendVariable("l::*", 11L);
+        assertTrue(map.containsValue("l::*", 10L));
+        assertTrue(map.containsValue("l::*", 11L));
+        assertEquals(1, map.removeValue("l::*", 1L, false));
+        assertNull(map.getVariable("l::11"));
+        assertEquals(98, map.removeValue("l::*", 1L, true));
+        assertFalse(map.containsValue("l::*", 1L));
+        assertEquals(100, map.removeValue("l::*", 0.0, true));
+        assertEquals(0, map.removeValue("l::*", 0L, true));
+
+        // Elements that have elements of their own are compared as maps, as when iterating over the list
+        map.setVariable("l::2::x", 5L);
+        assertTrue(map.containsValue("l::*", 2L));
+        map.setVariable("l::*", null);
+        assertFalse(map.containsValue("l::*", 2L));
+        map.setVariable("l::1", "text");
+        assertTrue(map.containsValue("l::*", "text"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void orderedIteration() {
+        VariableMap map = new VariableMap();
+        for (String index : new String[] {"b", "10", "2", "a", "01", "1", "100"})
+            map.setVariable("l::" + index, index);
+        Map<String, Object> list = (Map<String, Object>) map.getVariable("l::*");
+        assertEquals(Arrays.asList("1", "01", "2", "10", "100", "a", "b"), new ArrayList<>(list.keySet()));
+
+        // Iteration goes over the elements present when it started, while reading their current values
+        Iterator<Map.Entry<String, Object>> entries = list.entrySet().iterator();
+        map.setVariable("l::3", "3");
+        map.setVariable("l::01", null);
+        map.setVariable("l::10", "ten");
+        List<Object> values = new ArrayList<>();
+        entries.forEachRemaining(e -> values.add(e.getValue()));
+        assertEquals(Arrays.asList("1", null, "2", "ten", "100", "a", "b"), values);
+        assertEquals(Arrays.asList("1", "2", "3", "10", "100", "a", "b"), new ArrayList<>(list.keySet()));
+
+        VariableMap dense = new VariableMap();
+        for (int i = 1; i <= 10; i++)
+            dense.appendVariable("d::*", i);
+        Map<String, Object> elements = (Map<String, Object>) dense.getVariable("d::*");
+        entries = elements.entrySet().iterator();
+        dense.setVariable("d::10", null);
+        dense.appendVariable("d::*", 0);
+        dense.appendVariable("d::*", 11);
+        int count = 0;
+        while (entries.hasNext()) {
+            assertEquals(String.valueOf(++count), entries.next().getKey());
+        }
+        assertEquals(10, count);
+        assertEquals(11, elements.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void rangeScans() {
+        VariableMap map = new VariableMap();
+        for (int i = 1; i <= 100; i++)
+            map.appendVariable("d::*", i);
+        SortedMap<String, Object> dense = (SortedMap<String, Object>) map.getVariable("d::*");
+        SortedMap<String, Object> range = dense.subMap("10", "20");
+        assertEquals(10, range.size());
+        assertEquals("10", range.firstKey());
+        assertEquals("19", range.lastKey());
+        assertEquals(15, range.get("15"));
+        assertNull(range.get("20"));
+        assertEquals(Arrays.asList("98", "99", "100"), new ArrayList<>(dense.tailMap("98").keySet()));
+        assertEquals(2, dense.headMap("3").size());
+        assertTrue(dense.subMap("a", "b").isEmpty());
+        assertEquals(5, range.subMap("5", "15").size());
+
+        map.setVariable("s::x", "x");
+        for (int i = 1; i <= 100; i += 2)
+            map.setVariable("s::" + i, i);
+        SortedMap<String, Object> sparse = (SortedMap<String, Object>) map.getVariable("s::*");
+        assertEquals(Arrays.asList("11", "13", "15", "17", "19"), new ArrayList<>(sparse.subMap("10", "20").keySet()));
+        assertEquals("x", sparse.lastKey());
+        assertEquals(Collections.singletonList("x"), new ArrayList<>(sparse.tailMap("100").keySet()));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void removalHoles() {
+        VariableMap map = new VariableMap();
+        for (int i = 1; i <= 12; i++)
+            map.appendVariable("l::*", (long) i);
+        SortedMap<String, Object> list = (SortedMap<String, Object>) map.getVariable("l::*");
+        assertNotNull(list);
+
+        // Removing elements keeps the names of the others
+        assertEquals(1, map.removeValue("l::*", 5L, false));
+        assertEquals(1, map.removeValue("l::*", 11L, false));
+        assertNull(map.getVariable("l::5"));
+        assertEquals(6L, map.getVariable("l::6"));
+        assertEquals(10, list.size());
+        assertEquals(4, list.subMap("3", "8").size());
+        assertEquals("7", list.headMap("8").lastKey());
+        assertEquals(Arrays.asList("1", "2", "3", "4", "6", "7", "8", "9", "10", "12"), new ArrayList<>(list.keySet()));
+
+        // Holes are filled first, and removing the last element drops the holes before it
+        assertEquals(5, map.appendVariable("l::*", 5L));
+        assertEquals(1, map.removeValue("l::*", 12L, false));
+        assertEquals("10", list.lastKey());
+        assertEquals(11, map.appendVariable("l::*", 11L));
+        assertEquals(12, map.appendVariable("l::*", 12L));
+
+        // Lists with holes can still move out of the heap, and come back with the same names
+        OffHeapTier tier = new OffHeapTier(10);
+        assertEquals(1, map.removeValue("l::*", 2L, false));
+        map.sweep(tier);
+        map.sweep(tier);
+        assertEquals(1, tier.getOffHeapLists());
+        assertEquals(11, list.size());
+        assertNull(map.getVariable("l::2"));
+        assertEquals(3L, map.getVariable("l::3"));
+        assertEquals(2, map.appendVariable("l::*", 2L));
+
+        // Once most elements are gone, the list is kept as a map
+        for (long i = 1; i <= 11; i++)
+            assertEquals(1, map.removeValue("l::*", i, false));
+        assertEquals(Collections.singletonList("12"), new ArrayList<>(list.keySet()));
+        assertEquals(1, map.appendVariable("l::*", 1L));
+        assertEquals(1, map.removeValue("l::*", 12L, true));
+        assertEquals(1L, map.getVariable("l::1"));
+        assertEquals(1, map.removeValue("l::*", 1L, true));
+        assertNull(map.getVariable("l::*"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void offHeapTier() {
+        VariableMap map = new VariableMap();
+        OffHeapTier tier = new OffHeapTier(10);
+        for (int i = 1; i <= 100; i++) {
+            map.appendVariable("dense::*", (long) i);
+            map.setVariable("sparse::k" + i, "value " + i);
+            map.setVariable("hot::" + i, (long) i);
+        }
+        for (int i = 1; i <= 5; i++)
+            map.setVariable("small::" + i, (long) i);
+        map.setVariable("nested::1::1", 1L);
+        for (int i = 2; i <= 20; i++)
+            map.setVariable("nested::" + i, (long) i);
+        map.setVariable("objects::1", new Object());
+        for (int i = 2; i <= 20; i++)
+            map.setVariable("objects::" + i, (long) i);
+
+        // Every list was just accessed, so the first sweep only clears the marks
+        map.sweep(tier);
+        assertEquals(0, tier.getOffHeapLists());
+        assertEquals(map.getVariable("hot::1"), 1L);
+        map.sweep(tier);
+        assertEquals(2, tier.getOffHeapLists());
+        assertEquals(200, tier.getOffHeapElements());
+        assertTrue(tier.getOffHeapBytes() > 0);
+        // hot, small, nested, its element and objects stay in the heap
+        assertEquals(5, tier.getHeapLists());
+        assertEquals(2, tier.getDemotions());
+
+        // Reading through a view moves the list back, but getting the view doesn't
+        SortedMap<String, Object> dense = (SortedMap<String, Object>) map.getVariable("dense::*");
+        assertNotNull(dense);
+        assertEquals(2, tier.getOffHeapLists());
+        assertEquals(100, dense.size());
+        assertEquals(1, tier.getOffHeapLists());
+        assertEquals(1, tier.getPromotions());
+        assertEquals("100", dense.lastKey());
+        assertEquals(101, map.appendVariable("dense::*", 101L));
+
+        // Lists that stopped being accessed, like hot, move out too
+        map.sweep(tier);
+        map.sweep(tier);
+        assertEquals(3, tier.getOffHeapLists());
+        assertEquals("value 7", map.getVariable("sparse::k7"));
+        assertEquals(2, tier.getOffHeapLists());
+        assertEquals("value 8", map.getVariable("sparse::k8"));
+        map.sweep(tier);
+        map.sweep(tier);
+        // Appending to a list moved out of the heap keeps its elements dense
+        assertEquals(102, map.appendVariable("dense::*", 102L));
+        List<String> keys = new ArrayList<>(((SortedMap<String, Object>) map.getVariable("dense::*")).keySet());
+        assertEquals(102, keys.size());
+        assertEquals("1", keys.get(0));
+        assertEquals("102", keys.get(101));
+
+        // Listing the variables doesn't move anything back
+        map.sweep(tier);
+        map.sweep(tier);
+        long offHeap = tier.getOffHeapLists();
+        int[] count = new int[1];
+        map.forEachVariable((name, value) -> count[0]++);
+        assertEquals(102 + 100 + 100 + 5 + 20 + 20, count[0]);
+        assertEquals(offHeap, tier.getOffHeapLists());
+
+        // Deleting a list releases its elements without reading them
+        map.setVariable("sparse::*", null);
+        assertNull(map.getVariable("sparse::*"));
+        long promotions = tier.getPromotions();
+        map.setVariable("dense::*", null);
+        map.setVariable("hot::*", null);
+        assertEquals(promotions, tier.getPromotions());
+        assertEquals(0, tier.getOffHeapLists());
+        assertEquals(0, tier.getOffHeapElements());
+        assertEquals(0, tier.getOffHeapBytes());
+    }
+
+    @Test
+    public void loadedWalk() {
+        VariableMap map = new VariableMap();
+        for (int i = 1; i <= 10; i++)
+            map.setVariable("list::" + i, (long) i);
+        map.setVariable("other::a", "a");
+        map.setVariable("other::b::c", "c");
+        List<String> names = new ArrayList<>();
+        VariableMap.LoadedWalk walk = map.walkLoadedVariables();
+        // The list node, and its first two elements
+        assertTrue(walk.step(3, (name, value) -> names.add(name)));
+        assertEquals(Arrays.asList("list::1", "list::2"), names);
+        // The rest of the list was already reached, unlike the new variable
+        map.setVariable("list::*", null);
+        map.setVariable("new", "value");
+        map.setVariable("other::b::d", "d");
+        while (walk.step(1, (name, value) -> names.add(name))) {
+            // Once the walk reached a list, adding elements to it doesn't change what the walk sees
+            if (names.contains("other::a"))
+                map.appendVariable("other::*", "appended");
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 10; i++)
+            expected.add("list::" + i);
+        expected.addAll(Arrays.asList("other::a", "other::b::c", "other::b::d"));
+        assertEquals(expected, names);
+        assertNull(map.getVariable("list::1"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void expiringVariables() {
+        long[] now = new long[1];
+        TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 64, () -> now[0]);
+        VariableMap map = new VariableMap();
+        ExpiryStatistics statistics = map.getExpiryStatistics();
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+
+        map.setVariable("cooldown", "a", 10 * ms, wheel);
+        map.setVariable("cache::1", 1L, 5 * ms, wheel);
+        map.setVariable("cache::2", 2L, 500 * ms, wheel);
+        map.setVariable("cache::3", 3L);
+        assertEquals(3, statistics.getExpiring());
+
+        // Reading a variable after its deadline deletes it, even before the wheel gets to it
+        now[0] = 10 * ms;
+        assertNull(map.getVariable("cooldown"));
+        assertEquals(1, statistics.getExpired());
+
+        // The wheel deletes the others from their lists, and skips the deadlines that were already handled
+        assertEquals(1, wheel.advance());
+        now[0] = 20 * ms;
+        map.setVariable("cooldown", "b", 10 * ms, wheel);
+        map.setVariable("cooldown", "c");
+        assertEquals(0, wheel.advance());
+        assertEquals(Arrays.asList("2", "3"), new ArrayList<>(((SortedMap<String, Object>) map.getVariable("cache::*")).keySet()));
+        assertEquals(2, statistics.getExpired());
+        assertEquals(1, statistics.getExpiring());
+
+        // Setting a variable again replaces its deadline
+        now[0] = 40 * ms;
+        wheel.advance();
+        assertEquals("c", map.getVariable("cooldown"));
+        map.setVariable("cache::2", 4L, 5 * ms, wheel);
+        int[] count = new int[1];
+        map.forEachLoadedVariable((name, value) -> count[0]++);
+        assertEquals(2, count[0]);
+        map.forEachVariable((name, value) -> count[0]++);
+        assertEquals(5, count[0]);
+
+        // Expiring elements keep their list in the heap
+        OffHeapTier tier = new OffHeapTier(1);
+        map.sweep(tier);
+        map.sweep(tier);
+        assertEquals(0, tier.getOffHeapLists());
+
+        now[0] = 600 * ms;
+        assertEquals(1, wheel.advance());
+        assertNull(map.getVariable("cache::2"));
+        assertEquals(0, statistics.getExpiring());
+        assertEquals(3, statistics.getExpired());
+
+        // Elements deleted along with their list, or replaced with it, don't expire anymore
+        map.setVariable("cache::5", 5L, 5 * ms, wheel);
+        map.setVariable("cache::nested::1", 6L, 5 * ms, wheel);
+        map.setVariable("cache::*", null);
+        assertEquals(0, statistics.getExpiring());
+        map.setVariable("cache::1", 7L, 5 * ms, wheel);
+        map.setList("cache::*", new Object[] {8L});
+        assertEquals(0, statistics.getExpiring());
+        now[0] = 700 * ms;
+        assertEquals(0, wheel.advance());
+        assertEquals(3, statistics.getExpired());
+        assertEquals(8L, map.getVariable("cache::1"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void bulkAssignment() {
+        VariableMap map = new VariableMap();
+        map.setVariable("list", "own value");
+        map.setVariable("list::old", 1L);
+        map.setVariable("list::old::nested", 2L);
+        Object[] values = new Object[100_000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = (long) i;
+        map.setList("list::*", values);
+        SortedMap<String, Object> list = (SortedMap<String, Object>) map.getVariable("list::*");
+        assertEquals(100_000, list.size());
+        assertEquals("100000", list.lastKey());
+        assertEquals(99_999L, map.getVariable("list::100000"));
+        assertNull(map.getVariable("list::old"));
+        assertEquals("own value", map.getVariable("list"));
+        assertEquals(100_001, map.appendVariable("list::*", 1L));
+
+        // Arrays become lists of their own, and null values leave their index unused
+        map.setList("list::*", new Object[] {"a", null, new Object[] {"b", null, "c"}, new Object[] {null}});
+        assertEquals(Arrays.asList("1", "3"), new ArrayList<>(((SortedMap<String, Object>) map.getVariable("list::*")).keySet()));
+        assertEquals("c", map.getVariable("list::3::2"));
+        assertNull(map.getVariable("list::3::1"));
+        assertEquals(2, map.appendVariable("list::*", "d"));
+
+        map.setList("other::list::*", new Object[] {null});
+        assertNull(map.getVariable("other::*"));
+        map.setVariable("list::*", null);
+        assertNull(map.getVariable("list::*"));
+        assertEquals("own value", map.getVariable("list"));
+    }
+}
@@ -0,0 +1,317 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.types.TypeManager;
+import io.github.syst3ms.skriptparser.variables.VariableStorage.FsyncPolicy;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class VariableStorageTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    @Test
+    public void journalReplay() throws Exception {
+        Path directory = Files.createTempDirectory("variables");
+        try {
+            VariableMap map = new VariableMap();
+            VariableStorage storage = new VariableStorage(directory, FsyncPolicy.EVERY_BATCH, 1_000_000);
+            storage.open(map);
+            map.setVariable("text", "hello");
+            map.setVariable("flag", true);
+            map.setVariable("long", 42L);
+            map.setVariable("double", 1.5);
+            map.setVariable("big::1", new BigInteger("123456789012345678901234567890"));
+            map.setVariable("big::2", new BigDecimal("-1.000"));
+            map.setVariable("deleted", "x");
+            map.setVariable("deleted", null);
+            map.appendVariable("list::*", "a");
+            map.appendVariable("list::*", "b");
+            map.setVariable("gone::1", 1L);
+            map.setVariable("gone::*", null);
+            map.setVariable("object", new Object());
+            storage.flush();
+            assertEquals(13, storage.getWritten());
+            storage.close();
+
+            VariableMap loaded = new VariableMap();
+            VariableStorage reopened = new VariableStorage(directory, FsyncPolicy.EVERY_BATCH, 1_000_000);
+            reopened.open(loaded);
+            assertEquals(dump(map, "object"), dump(loaded, null));
+            assertEquals(new BigDecimal("-1.000"), loaded.getVariable("big::2"));
+            assertEquals("b", loaded.getVariable("list::2"));
+            assertNull(loaded.getVariable("object"));
+            reopened.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void snapshots() throws Exception {
+        Path directory = Files.createTempDirectory("variables");
+        try {
+            VariableMap map = new VariableMap();
+            VariableStorage storage = new VariableStorage(directory, FsyncPolicy.NEVER, 1000);
+            storage.open(map);
+            // Snapshots are taken from the writer thread, so the map must be locked like Variables does
+            for (int i = 0; i < 10_000; i++) {
+                synchronized (map) {
+                    map.setVariable("counter::" + (i % 100), (long) i);
+                }
+            }
+            storage.flush();
+            // The snapshot is requested after the batch that crossed the threshold, so wait for it too
+            synchronized (map) {
+                map.setVariable("last", "value");
+            }
+            storage.flush();
+            storage.close();
+            assertTrue(storage.getSnapshots() > 0);
+            assertTrue(storage.getBatches() < storage.getWritten());
+            List<String> files = list(directory);
+            assertEquals(1, files.stream().filter(f -> f.startsWith("snapshot-")).count());
+
+            VariableMap loaded = new VariableMap();
+            VariableStorage reopened = new VariableStorage(directory, FsyncPolicy.NEVER, 1000);
+            reopened.open(loaded);
+            assertEquals(dump(map, null), dump(loaded, null));
+            assertEquals(9999L, loaded.getVariable("counter::99"));
+            reopened.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void concurrentSnapshots() throws Exception {
+        Path directory = Files.createTempDirectory("variables");
+        try {
+            VariableMap map = new VariableMap();
+            VariableStorage storage = new VariableStorage(directory, FsyncPolicy.NEVER, 500);
+            storage.open(map);
+            // Snapshots are collected while the map keeps changing, and the journal makes up for what they miss
+            for (int i = 0; i < 50_000; i++) {
+                synchronized (map) {
+                    if (i % 5000 == 4999) {
+                        map.setVariable("counter::*", null);
+                    } else {
+                        map.setVariable("counter::" + (i % 3000), (long) i);
+                    }
+                }
+            }
+            storage.flush();
+            storage.close();
+            assertTrue(storage.getSnapshots() > 1);
+
+            VariableMap loaded = new VariableMap();
+            VariableStorage reopened = new VariableStorage(directory, FsyncPolicy.NEVER, 500);
+            reopened.open(loaded);
+            assertEquals(dump(map, null), dump(loaded, null));
+            reopened.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void mappedSnapshot() throws Exception {
+        Path directory = Files.createTempDirectory("variables");
+        try {
+            VariableMap map = new VariableMap();
+            VariableStorage storage = new VariableStorage(directory, FsyncPolicy.NEVER, 100);
+            storage.open(map);
+            for (int i = 1; i <= 1000; i++) {
+                synchronized (map) {
+                    map.setVariable("list::" + i, (long) i);
+                    map.setVariable("other::" + i + "::name", "name " + i);
+                }
+            }
+            storage.flush();
+            storage.close();
+
+            VariableMap loaded = new VariableMap();
+            VariableStorage reopened = new VariableStorage(directory, FsyncPolicy.NEVER, 100);
+            reopened.open(loaded);
+            assertNotNull(loaded.getSnapshot());
+            assertEquals(dump(map, null), dump(loaded, null));
+            synchronized (loaded) {
+                assertEquals("name 10", loaded.getVariable("other::10::name"));
+                loaded.setVariable("other::11::name", "renamed");
+                loaded.setVariable("other::12::*", null);
+                assertEquals(1000, ((Map<?, ?>) loaded.getVariable("list::*")).size());
+                loaded.setVariable("list::500", null);
+                assertEquals(500, loaded.appendVariable("list::*", "appended"));
+                assertEquals(1001, loaded.appendVariable("list::*", "last"));
+            }
+            // Only what was accessed was loaded : the list, and three of the other variables
+            assertNotNull(loaded.getSnapshot());
+            assertTrue(loaded.getLoadedEntries().cardinality() <= 1003);
+            // Rotate, merging the tree with the variables that are still only in the snapshot
+            for (int i = 0; i < 200; i++) {
+                synchronized (loaded) {
+                    loaded.setVariable("counter", (long) i);
+                }
+            }
+            reopened.flush();
+            synchronized (loaded) {
+                loaded.setVariable("last", "value");
+            }
+            reopened.flush();
+            reopened.close();
+            assertTrue(reopened.getSnapshots() > 0);
+            // The names of types are written once per snapshot, rather than once per value
+            for (String file : list(directory)) {
+                if (file.startsWith("snapshot-")) {
+                    String content = new String(Files.readAllBytes(directory.resolve(file)), StandardCharsets.ISO_8859_1);
+                    String type = TypeManager.getByClass(String.class).getBaseName();
+                    assertEquals(content.indexOf(type), content.lastIndexOf(type));
+                    assertTrue(content.contains(type));
+                }
+            }
+
+            VariableMap reloaded = new VariableMap();
+            VariableStorage third = new VariableStorage(directory, FsyncPolicy.NEVER, 100);
+            third.open(reloaded);
+            assertEquals(dump(loaded, null), dump(reloaded, null));
+            assertNull(reloaded.getVariable("other::12::name"));
+            assertEquals("renamed", reloaded.getVariable("other::11::name"));
+            assertEquals("appended", reloaded.getVariable("list::500"));
+            third.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void truncatedJournal() throws Exception {
+        Path directory = Files.createTempDirectory("variables");
+        try {
+            VariableMap map = new VariableMap();
+            VariableStorage storage = new VariableStorage(directory, FsyncPolicy.EVERY_BATCH, 1_000_000);
+            storage.open(map);
+            map.setVariable("kept", 1L);
+            storage.flush();
+            map.setVariable("lost", 2L);
+            storage.close();
+
+            // Cut the last frame short, as if the process had crashed while writing it
+            Path journal;
+            try (Stream<Path> files = Files.list(directory)) {
+                journal = files.filter(f -> f.getFileName().toString().startsWith("journal-")).findFirst().orElseThrow(AssertionError::new);
+            }
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 3);
+            }
+
+            VariableMap loaded = new VariableMap();
+            VariableStorage reopened = new VariableStorage(directory, FsyncPolicy.EVERY_BATCH, 1_000_000);
+            reopened.open(loaded);
+            assertEquals(1L, loaded.getVariable("kept"));
+            assertNull(loaded.getVariable("lost"));
+            reopened.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void writeFailure() throws Exception {
+        Path directory = Files.createTempDirectory("variables");
+        try {
+            VariableMap map = new VariableMap();
+            VariableStorage storage = new VariableStorage(directory, FsyncPolicy.EVERY_BATCH, 1_000_000);
+            storage.open(map);
+            map.setVariable("kept", 1L);
+            storage.flush();
+            // A number the codec can't write
+            map.setVariable("broken", new Number() {
+                @Override
+                public int intValue() {
+                    throw new IllegalStateException();
+                }
+
+                @Override
+                public long longValue() {
+                    throw new IllegalStateException();
+                }
+
+                @Override
+                public float floatValue() {
+                    throw new IllegalStateException();
+                }
+
+                @Override
+                public double doubleValue() {
+                    throw new IllegalStateException();
+                }
+            });
+            try {
+                storage.flush();
+                fail();
+            } catch (IOException expected) {
+            }
+            assertNotNull(storage.getFailure());
+            // Later changes aren't journaled without the ones that were lost
+            map.setVariable("after", 2L);
+            try {
+                storage.flush();
+                fail();
+            } catch (IOException expected) {
+            }
+            storage.close();
+
+            VariableMap loaded = new VariableMap();
+            VariableStorage reopened = new VariableStorage(directory, FsyncPolicy.EVERY_BATCH, 1_000_000);
+            reopened.open(loaded);
+            assertEquals(1L, loaded.getVariable("kept"));
+            assertNull(loaded.getVariable("after"));
+            reopened.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static List<String> dump(VariableMap map, @org.jetbrains.annotations.Nullable String excluded) {
+        List<String> variables = new ArrayList<>();
+        map.forEachVariable((name, value) -> {
+            if (!name.equals(excluded))
+                variables.add(name + "=" + value + "(" + value.getClass().getSimpleName() + ")");
+        });
+        variables.sort(Comparator.naturalOrder());
+        return variables;
+    }
+
+    private static List<String> list(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream)
+                names.add(file.getFileName().toString());
+        }
+        return names;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+}